@@ -32,6 +32,7 @@ CREATE TABLE IF NOT EXISTS accounts (
   account_number  CHAR(12)     NOT NULL,          -- simple 12-char number (unique)
   balance         DECIMAL(12,2) NOT NULL DEFAULT 0.00,
   status          ENUM('OPEN','FROZEN','CLOSED') NOT NULL DEFAULT 'OPEN',
+  version         BIGINT       NOT NULL DEFAULT 0,  -- bumped by every write when db.writeMode=VERSIONED
   created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
   UNIQUE KEY uq_accounts_number (account_number),
@@ -54,7 +55,7 @@ CREATE TABLE IF NOT EXISTS transactions (
   note        VARCHAR(255),
   created_at  TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (id),
-  KEY idx_tx_account (account_id),
+  KEY idx_tx_account_created (account_id, created_at, id),  -- history pages: (created_at, id) keyset per account
   CONSTRAINT fk_tx_account
     FOREIGN KEY (account_id) REFERENCES accounts(id)
     ON DELETE CASCADE
@@ -66,7 +67,9 @@ CREATE TABLE IF NOT EXISTS transactions (
 -- - uq_users_email (unique email)
 -- - uq_accounts_number (unique account number)
 -- - idx_accounts_owner (owner_user_id for lookups)
--- - idx_tx_account (account_id for history lookups)
+-- - idx_tx_account_created (account_id, created_at, id) for keyset-paginated history
+--   Existing databases can switch over with:
+--   ALTER TABLE transactions ADD KEY idx_tx_account_created (account_id, created_at, id), DROP KEY idx_tx_account;
 
 -- 5) Optional starter data (safe to remove)
 -- NOTE: IDs are example UUIDs. Replace as needed.
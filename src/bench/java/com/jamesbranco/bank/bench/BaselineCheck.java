@@ -0,0 +1,196 @@
+package com.jamesbranco.bank.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Compares a JMH JSON result file with a stored baseline and fails (exit 1)
+ * when any benchmark got worse by more than the tolerance. Throughput modes
+ * regress when the score drops, time modes when it rises. A difference that
+ * fits inside the two runs' combined error margins is treated as noise.
+ * Benchmarks missing from either side are listed but don't fail the check.
+ *
+ * Usage: BaselineCheck result.json baseline.json [tolerance=0.10]
+ *        BaselineCheck --update result.json baseline.json
+ */
+public final class BaselineCheck {
+
+    private record Score(String mode, double value, double error, String unit) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("--update")) {
+            Path baseline = Path.of(args[2]);
+            if (baseline.getParent() != null) Files.createDirectories(baseline.getParent());
+            Files.copy(Path.of(args[1]), baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck result.json baseline.json [tolerance]");
+            System.exit(2);
+        }
+        Path result = Path.of(args[0]);
+        Path baseline = Path.of(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        if (!Files.exists(baseline)) {
+            System.out.println("No baseline at " + baseline + "; record one with --update.");
+            return;
+        }
+        Map<String, Score> current = read(result);
+        Map<String, Score> base = read(baseline);
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> e : current.entrySet()) {
+            Score now = e.getValue();
+            Score then = base.get(e.getKey());
+            if (then == null) {
+                System.out.printf("NEW        %s: %.3f %s%n", e.getKey(), now.value, now.unit);
+                continue;
+            }
+            if (!then.unit.equals(now.unit) || !then.mode.equals(now.mode)) {
+                System.out.printf("SKIPPED    %s: mode/unit changed (%s %s -> %s %s)%n",
+                        e.getKey(), then.mode, then.unit, now.mode, now.unit);
+                continue;
+            }
+            boolean higherIsBetter = now.mode.equals("thrpt");
+            double change = (now.value - then.value) / then.value;
+            double worse = higherIsBetter ? -change : change;
+            double margin = (nan0(now.error) + nan0(then.error)) / then.value;
+            if (Math.abs(change) <= margin) worse = 0;
+            String verdict = worse > tolerance ? "REGRESSION" : worse < -tolerance ? "IMPROVED  " : "OK        ";
+            if (worse > tolerance) regressions++;
+            System.out.printf("%s %s: %.3f -> %.3f %s (%+.1f%%)%n",
+                    verdict, e.getKey(), then.value, now.value, now.unit, change * 100);
+        }
+        for (String key : base.keySet()) {
+            if (!current.containsKey(key)) System.out.println("NOT RUN    " + key);
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, tolerance * 100);
+            System.exit(1);
+        }
+    }
+
+    // benchmark name plus sorted params -> primary score
+    @SuppressWarnings("unchecked")
+    private static Map<String, Score> read(Path file) throws IOException {
+        Object parsed = new Parser(Files.readString(file)).value();
+        Map<String, Score> out = new TreeMap<>();
+        for (Object o : (List<Object>) parsed) {
+            Map<String, Object> run = (Map<String, Object>) o;
+            StringBuilder key = new StringBuilder((String) run.get("benchmark"));
+            Object params = run.get("params");
+            if (params instanceof Map<?, ?> p) {
+                new TreeMap<>((Map<String, Object>) p).forEach((k, v) -> key.append(' ').append(k).append('=').append(v));
+            }
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            out.put(key.toString(), new Score((String) run.get("mode"),
+                    number(metric.get("score")), number(metric.get("scoreError")), (String) metric.get("scoreUnit")));
+        }
+        return out;
+    }
+
+    private static double number(Object o) {
+        return o instanceof Double d ? d : Double.NaN; // JMH writes "NaN" as a string
+    }
+
+    private static double nan0(double v) {
+        return Double.isNaN(v) ? 0 : v;
+    }
+
+    /** Minimal JSON reader: objects, arrays, strings, numbers, true/false/null. */
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Object value() {
+            skip();
+            char c = s.charAt(pos);
+            switch (c) {
+                case '{' -> {
+                    pos++;
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    skip();
+                    if (s.charAt(pos) == '}') {
+                        pos++;
+                        return m;
+                    }
+                    while (true) {
+                        skip();
+                        String k = string();
+                        skip();
+                        pos++; // ':'
+                        m.put(k, value());
+                        skip();
+                        if (s.charAt(pos++) == '}') return m;
+                    }
+                }
+                case '[' -> {
+                    pos++;
+                    List<Object> l = new ArrayList<>();
+                    skip();
+                    if (s.charAt(pos) == ']') {
+                        pos++;
+                        return l;
+                    }
+                    while (true) {
+                        l.add(value());
+                        skip();
+                        if (s.charAt(pos++) == ']') return l;
+                    }
+                }
+                case '"' -> {
+                    return string();
+                }
+                default -> {
+                    int start = pos;
+                    while (pos < s.length() && ",}] \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+                    String lit = s.substring(start, pos);
+                    return switch (lit) {
+                        case "true" -> Boolean.TRUE;
+                        case "false" -> Boolean.FALSE;
+                        case "null" -> null;
+                        default -> Double.parseDouble(lit);
+                    };
+                }
+            }
+        }
+
+        private String string() {
+            pos++; // opening quote
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = s.charAt(pos++);
+                if (c == '"') return sb.toString();
+                if (c == '\\') {
+                    char e = s.charAt(pos++);
+                    switch (e) {
+                        case 'n' -> sb.append('\n');
+                        case 't' -> sb.append('\t');
+                        case 'r' -> sb.append('\r');
+                        case 'b' -> sb.append('\b');
+                        case 'f' -> sb.append('\f');
+                        case 'u' -> {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                            pos += 4;
+                        }
+                        default -> sb.append(e);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private void skip() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+    }
+}
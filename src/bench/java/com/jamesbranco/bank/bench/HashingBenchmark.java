@@ -0,0 +1,27 @@
+package com.jamesbranco.bank.bench;
+
+import com.jamesbranco.bank.security.PasswordUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashingBenchmark {
+    private final String password = "CorrectHorseBatteryStaple!1";
+    private final String stored = PasswordUtil.hash(password);
+
+    @Benchmark
+    public String hash() {
+        return PasswordUtil.hash(password);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return PasswordUtil.matches(password, stored);
+    }
+}
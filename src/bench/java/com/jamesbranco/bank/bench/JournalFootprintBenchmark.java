@@ -0,0 +1,106 @@
+package com.jamesbranco.bank.bench;
+
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.PackedJournal;
+import com.jamesbranco.bank.repo.TieredJournal;
+import com.jamesbranco.bank.repo.TieringConfig;
+import com.jamesbranco.bank.util.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained per journal entry, reported as the bytesPerEntry counter
+ * next to the cost of reading a page: heap journals, packed ones (which build
+ * Transactions on read) and tiered ones with everything sealed to disk (the
+ * entries are all older than the hot window; pages come through the block
+ * cache).
+ *
+ * Entries are built the way they arrive in a running service: account ids
+ * and notes are fresh strings per request (parsed from HTTP or the
+ * write-ahead log), notes drawn from a handful of common texts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class JournalFootprintBenchmark {
+    private static final String[] NOTES = {"ATM", "Initial deposit", "move", "Salary", "Rent", ""};
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        @Param({"heap", "packed", "tiered"})
+        String journal;
+
+        @Param({"1000"})
+        int accounts;
+
+        @Param({"1000"})
+        int perAccount;
+
+        InMemoryStore store;
+        TieredJournal tiered;
+        String[] accountIds;
+        long bytesPerEntry;
+
+        @Setup
+        public void setUp() throws InterruptedException, IOException {
+            accountIds = new String[accounts];
+            for (int i = 0; i < accounts; i++) accountIds[i] = IdGenerator.newId();
+            long before = usedHeap();
+            store = switch (journal) {
+                case "packed" -> new InMemoryStore(new PackedJournal());
+                case "tiered" -> new InMemoryStore(tiered = TieredJournal.open(
+                        TieringConfig.defaults(Files.createTempDirectory("bench-cold"))));
+                default -> new InMemoryStore();
+            };
+            Instant t = Instant.parse("2024-01-01T00:00:00Z");
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int k = 0; k < perAccount; k++) {
+                for (String id : accountIds) {
+                    store.appendTransaction(new Transaction(IdGenerator.newId(), new String(id),
+                            TransactionType.DEPOSIT, 1 + random.nextInt(100_000), t.plusMillis(k),
+                            new String(NOTES[random.nextInt(NOTES.length)])));
+                }
+            }
+            if (tiered != null) tiered.sealNow();
+            bytesPerEntry = (usedHeap() - before) / ((long) accounts * perAccount);
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (tiered != null) tiered.close();
+        }
+
+        private static long usedHeap() throws InterruptedException {
+            for (int i = 0; i < 4; i++) {
+                System.gc();
+                Thread.sleep(100);
+            }
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerEntry;
+    }
+
+    @Benchmark
+    public TransactionPage newestPage(Store s, Footprint f) {
+        f.bytesPerEntry = s.bytesPerEntry;
+        String id = s.accountIds[ThreadLocalRandom.current().nextInt(s.accountIds.length)];
+        return s.store.getTransactionPage(id, TransactionQuery.firstPage(50));
+    }
+}
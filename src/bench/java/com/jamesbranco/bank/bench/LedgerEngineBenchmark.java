@@ -0,0 +1,79 @@
+package com.jamesbranco.bank.bench;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.service.LedgerEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers through the lock-based BankService vs. the single-writer LedgerEngine.
+ * The engine is driven the way it is meant to be used, with many commands in
+ * flight; accounts=2 is the hot settlement-account case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LedgerEngineBenchmark {
+    private static final int IN_FLIGHT = 1_000;
+
+    @Param({"2", "1000"})
+    int accounts;
+
+    private InMemoryStore store;
+    private BankService lockBased;
+    private LedgerEngine engine;
+    private String[] ids;
+
+    // Fresh store per iteration so journals don't grow across the whole run.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        store = new InMemoryStore();
+        ids = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = "acct-" + i;
+            Account a = new Account(ids[i], "owner", String.format("%012d", i));
+            a.depositMinor(1_000_000_000_000L);
+            store.saveAccount(a);
+        }
+        lockBased = new BankService(store);
+        engine = new LedgerEngine(store);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        engine.close();
+    }
+
+    private int other(int from) {
+        int to = ThreadLocalRandom.current().nextInt(accounts - 1);
+        return to >= from ? to + 1 : to;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void lockBased() {
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            int from = ThreadLocalRandom.current().nextInt(accounts);
+            lockBased.transferMinor(ids[from], ids[other(from)], 1, "bench");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void ledgerEngine() {
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            int from = ThreadLocalRandom.current().nextInt(accounts);
+            last = engine.transfer(ids[from], ids[other(from)], 1, "bench");
+        }
+        last.join(); // futures complete in sequence order
+    }
+}
@@ -0,0 +1,65 @@
+package com.jamesbranco.bank.bench;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findAccountsByUserId through the owner index vs. the full scan it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OwnerLookupBenchmark {
+
+    @Param({"1000000"})
+    int accounts;
+
+    @Param({"3"})
+    int accountsPerUser;
+
+    private InMemoryStore store;
+    private String[] owners;
+
+    @Setup
+    public void setUp() {
+        store = new InMemoryStore();
+        owners = new String[accounts / accountsPerUser];
+        for (int u = 0; u < owners.length; u++) {
+            owners[u] = "user-" + u;
+        }
+        for (int i = 0; i < accounts; i++) {
+            String owner = owners[i % owners.length];
+            store.saveAccount(new Account("acct-" + i, owner, String.format("%012d", i)));
+        }
+    }
+
+    private String randomOwner() {
+        return owners[ThreadLocalRandom.current().nextInt(owners.length)];
+    }
+
+    @Benchmark
+    public List<Account> ownerIndex() {
+        return store.findAccountsByUserId(randomOwner());
+    }
+
+    @Benchmark
+    public List<Account> fullScan() {
+        String userId = randomOwner();
+        List<Account> out = new ArrayList<>();
+        for (Account a : store.findAllAccounts()) {
+            if (a.getOwnerUserId().equals(userId)) {
+                out.add(a);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,88 @@
+package com.jamesbranco.bank.bench;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BankService money movements on random accounts, on one thread and on four
+ * contending ones. Amounts go through the minor-unit entry points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ServiceBenchmark {
+
+    @Param({"1000"})
+    int accounts;
+
+    private BankService bank;
+    private String[] ids;
+
+    // Fresh store per iteration so journals don't grow across the whole run.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        InMemoryStore store = new InMemoryStore();
+        ids = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = "acct-" + i;
+            Account a = new Account(ids[i], "owner", String.format("%012d", i));
+            a.depositMinor(1_000_000_000_000L);
+            store.saveAccount(a);
+        }
+        bank = new BankService(store);
+    }
+
+    private String any() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private void transferOnce() {
+        int from = ThreadLocalRandom.current().nextInt(ids.length);
+        int to = ThreadLocalRandom.current().nextInt(ids.length - 1);
+        bank.transferMinor(ids[from], ids[to >= from ? to + 1 : to], 1, "bench");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void deposit() {
+        bank.depositMinor(any(), 1, "bench");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void depositContended() {
+        bank.depositMinor(any(), 1, "bench");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void withdraw() {
+        bank.withdrawMinor(any(), 1, "bench");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void withdrawContended() {
+        bank.withdrawMinor(any(), 1, "bench");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void transfer() {
+        transferOnce();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void transferContended() {
+        transferOnce();
+    }
+}
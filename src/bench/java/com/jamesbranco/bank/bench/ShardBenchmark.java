@@ -0,0 +1,62 @@
+package com.jamesbranco.bank.bench;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.service.ShardedBankService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShardedBankService throughput as the shard count grows, with eight calling
+ * threads. Transfers pick random accounts, so with n shards about (n-1)/n of
+ * them take the two-phase cross-shard path. Compare with ServiceBenchmark
+ * for the unsharded store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(8)
+public class ShardBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    int shards;
+
+    @Param({"1000"})
+    int accounts;
+
+    private ShardedBankService bank;
+    private String[] ids;
+
+    // Fresh shards per iteration so journals don't grow across the whole run.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        bank = new ShardedBankService(shards);
+        String owner = bank.registerUser("Bench", "bench@example.com", "pw", Role.CUSTOMER);
+        ids = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = bank.openCheckingAccount(owner);
+            bank.depositMinor(ids[i], 1_000_000_000_000L, "seed");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        bank.close();
+    }
+
+    @Benchmark
+    public void deposit() {
+        bank.depositMinor(ids[ThreadLocalRandom.current().nextInt(ids.length)], 1, "bench");
+    }
+
+    @Benchmark
+    public void transfer() {
+        int from = ThreadLocalRandom.current().nextInt(ids.length);
+        int to = ThreadLocalRandom.current().nextInt(ids.length - 1);
+        bank.transferMinor(ids[from], ids[to >= from ? to + 1 : to], 1, "bench");
+    }
+}
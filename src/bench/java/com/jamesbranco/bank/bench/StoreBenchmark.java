@@ -0,0 +1,73 @@
+package com.jamesbranco.bank.bench;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InMemoryStore reads at different data sizes: the owner lookup and reading
+ * an account's whole history.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Owners {
+        @Param({"1000", "1000000"})
+        int accounts;
+
+        InMemoryStore store;
+        String[] owners;
+
+        @Setup
+        public void setUp() {
+            store = new InMemoryStore();
+            owners = new String[Math.max(1, accounts / 3)];
+            for (int u = 0; u < owners.length; u++) owners[u] = "user-" + u;
+            for (int i = 0; i < accounts; i++) {
+                store.saveAccount(new Account("acct-" + i, owners[i % owners.length], String.format("%012d", i)));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class History {
+        @Param({"10", "1000", "100000"})
+        int transactions;
+
+        InMemoryStore store;
+
+        @Setup
+        public void setUp() {
+            store = new InMemoryStore();
+            Instant t = Instant.parse("2024-01-01T00:00:00Z");
+            for (int i = 0; i < transactions; i++) {
+                store.appendTransaction(new Transaction(UUID.randomUUID().toString(), "acct",
+                        TransactionType.DEPOSIT, 100 + i, t.plusMillis(i), "bench"));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Account> findAccountsByUserId(Owners s) {
+        return s.store.findAccountsByUserId(s.owners[ThreadLocalRandom.current().nextInt(s.owners.length)]);
+    }
+
+    @Benchmark
+    public void getTransactions(History s, Blackhole bh) {
+        for (Transaction t : s.store.getTransactions("acct")) bh.consume(t.getAmountMinor());
+    }
+}
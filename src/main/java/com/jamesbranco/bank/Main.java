@@ -1,20 +1,36 @@
 package com.jamesbranco.bank;
 
+import com.jamesbranco.bank.export.TransactionExporter;
+import com.jamesbranco.bank.metrics.BankMetrics;
 import com.jamesbranco.bank.model.Account;
 import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.repo.DurabilityConfig;
+import com.jamesbranco.bank.repo.DurableStore;
 import com.jamesbranco.bank.repo.InMemoryStore;
 import com.jamesbranco.bank.service.BankService;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
 public class Main {
 
     private static final Scanner in = new Scanner(System.in);
+    private static final int HISTORY_PAGE_SIZE = 20;
 
     public static void main(String[] args) {
-        InMemoryStore store = new InMemoryStore();
+        // -Dbank.dataDir=<dir> keeps the in-memory store across restarts (write-ahead log + snapshots)
+        String dataDir = System.getProperty("bank.dataDir");
+        InMemoryStore store;
+        if (dataDir != null && !dataDir.isBlank()) {
+            DurableStore durable = DurableStore.open(DurabilityConfig.defaults(Path.of(dataDir)));
+            Runtime.getRuntime().addShutdownHook(new Thread(durable::close));
+            store = durable.store();
+        } else {
+            store = new InMemoryStore();
+        }
         BankService bank = new BankService(store);
 
         // Seed an admin user
@@ -129,6 +145,8 @@ public class Main {
             System.out.println("3) Freeze an account");
             System.out.println("4) Unfreeze an account");
             System.out.println("5) View transactions for any account");
+            System.out.println("6) Export an account's transactions to CSV");
+            System.out.println("7) Show operation metrics");
             System.out.println("0) Exit");
             System.out.print("Choose an option: ");
 
@@ -140,6 +158,11 @@ public class Main {
                     case "3" -> freezeAccount(bank);
                     case "4" -> unfreezeAccount(bank);
                     case "5" -> viewAnyAccountTransactions(bank);
+                    case "6" -> exportAccountTransactions(bank);
+                    case "7" -> {
+                        System.out.println();
+                        BankMetrics.snapshot().print(System.out);
+                    }
                     case "0" -> {
                         System.out.println("Goodbye!");
                         return;
@@ -199,16 +222,19 @@ public class Main {
         System.out.print("Choose account number to view transactions: ");
         int idx = Integer.parseInt(in.nextLine().trim()) - 1;
         Account a = accounts.get(idx);
-        var txList = bank.getTransactions(a.getId());
-        if (txList.isEmpty()) {
-            System.out.println("No transactions for this account yet.");
-            return;
-        }
-        System.out.println("\nTransactions:");
-        txList.forEach(t -> System.out.printf(
-                "%s | %-14s | %s | %s%n",
-                t.getTimestamp(), t.getType(), t.getAmount(), t.getNote()
-        ));
+        printTransactions(bank, a.getId());
+    }
+
+    private static void exportAccountTransactions(BankService bank) {
+        var accounts = listAllAccounts(bank);
+        if (accounts.isEmpty()) return;
+        System.out.print("Choose account number to export: ");
+        int idx = Integer.parseInt(in.nextLine().trim()) - 1;
+        Account a = accounts.get(idx);
+        System.out.print("File path: ");
+        Path file = Path.of(in.nextLine().trim());
+        long rows = TransactionExporter.export(bank.streamTransactions(a.getId()), file, TransactionExporter.Format.CSV);
+        System.out.println("Exported " + rows + " transactions to " + file.toAbsolutePath());
     }
 
     // CUSTOMER HELPERS
@@ -290,15 +316,28 @@ public class Main {
 
     private static void viewTransactions(BankService bank, String userId) {
         Account acct = chooseAccount(bank, userId, "Choose account to view transactions");
-        var txList = bank.getTransactions(acct.getId());
-        if (txList.isEmpty()) {
+        printTransactions(bank, acct.getId());
+    }
+
+    // Newest first, one page at a time.
+    private static void printTransactions(BankService bank, String accountId) {
+        var query = TransactionQuery.firstPage(HISTORY_PAGE_SIZE);
+        var page = bank.getTransactionPage(accountId, query);
+        if (page.items().isEmpty()) {
             System.out.println("No transactions for this account yet.");
             return;
         }
         System.out.println("\nTransactions:");
-        txList.forEach(t -> System.out.printf(
-                "%s | %-14s | %s | %s%n",
-                t.getTimestamp(), t.getType(), t.getAmount(), t.getNote()
-        ));
+        while (true) {
+            page.items().forEach(t -> System.out.printf(
+                    "%s | %-14s | %s | %s%n",
+                    t.getTimestamp(), t.getType(), t.getAmount(), t.getNote()
+            ));
+            if (!page.hasMore()) return;
+            System.out.print("Show more? (y/N): ");
+            if (!in.nextLine().trim().equalsIgnoreCase("y")) return;
+            query = query.next(page);
+            page = bank.getTransactionPage(accountId, query);
+        }
     }
 }
@@ -0,0 +1,89 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.http.BankHttpServer;
+import com.jamesbranco.bank.http.HttpConfig;
+import com.jamesbranco.bank.jdbc.Jdbc;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.repo.DurabilityConfig;
+import com.jamesbranco.bank.repo.DurableStore;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.ReplicationConfig;
+import com.jamesbranco.bank.repo.ReplicationPrimary;
+import com.jamesbranco.bank.security.SessionConfig;
+import com.jamesbranco.bank.security.SessionManager;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.service.BankServiceJdbc;
+import com.jamesbranco.bank.service.Banking;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Serves the JSON API. -Dbank.backend=memory (default) or jdbc;
+ * with memory, -Dbank.dataDir=<dir> makes the store durable,
+ * -Dbank.journal=packed|tiered picks the journal ({@link StoreOptions}) and
+ * -Dbank.replicationSocket=<path> serves read replicas ({@link MainReplica}).
+ */
+public class MainHttp {
+    public static void main(String[] args) throws InterruptedException {
+        HttpConfig config = HttpConfig.from(Jdbc.properties());
+        if (args.length > 0) config = config.withPort(Integer.parseInt(args[0]));
+
+        Banking bank;
+        AutoCloseable backend;
+        if ("jdbc".equalsIgnoreCase(System.getProperty("bank.backend", "memory"))) {
+            BankServiceJdbc jdbc = new BankServiceJdbc();
+            bank = jdbc;
+            backend = () -> {
+                jdbc.close();
+                Jdbc.shutdown();
+            };
+        } else {
+            Supplier<InMemoryStore> emptyStore = StoreOptions.emptyStore();
+            String dataDir = System.getProperty("bank.dataDir");
+            InMemoryStore store;
+            AutoCloseable storage;
+            if (dataDir != null && !dataDir.isBlank()) {
+                DurableStore durable = DurableStore.open(DurabilityConfig.defaults(Path.of(dataDir)), emptyStore);
+                store = durable.store();
+                storage = durable;
+            } else {
+                store = emptyStore.get();
+                storage = () -> {};
+            }
+            String socket = System.getProperty("bank.replicationSocket");
+            if (socket != null && !socket.isBlank()) {
+                ReplicationPrimary primary = ReplicationPrimary.start(store,
+                        ReplicationConfig.defaults(Path.of(socket)));
+                backend = () -> {
+                    primary.close();
+                    storage.close();
+                };
+            } else {
+                backend = storage;
+            }
+            bank = new BankService(store);
+        }
+        try {
+            bank.registerUser("System Admin", "admin@example.com", "Admin123!", Role.ADMIN);
+        } catch (IllegalArgumentException ignored) {
+            // already there
+        }
+
+        BankHttpServer server = BankHttpServer.start(bank, config,
+                new SessionManager(bank, SessionConfig.from(Jdbc.properties())));
+        System.out.println("Listening on port " + server.port());
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                backend.close();
+            } catch (Exception e) {
+                System.err.println("Backend shutdown failed: " + e.getMessage());
+            }
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+}
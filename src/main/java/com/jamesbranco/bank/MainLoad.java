@@ -0,0 +1,79 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.jdbc.Jdbc;
+import com.jamesbranco.bank.jdbc.SchemaScript;
+import com.jamesbranco.bank.load.LoadConfig;
+import com.jamesbranco.bank.load.LoadDriver;
+import com.jamesbranco.bank.repo.DurabilityConfig;
+import com.jamesbranco.bank.repo.DurableStore;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.service.BankServiceJdbc;
+import com.jamesbranco.bank.service.ShardedBankService;
+import com.jamesbranco.bank.service.Banking;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Seeds a backend and runs the load driver against it, configured by load.*
+ * system properties (see {@link LoadConfig}). -Dbank.backend=memory (default),
+ * sharded (-Dbank.shards=N, default one per core) or jdbc; with jdbc, -Dload.createSchema=true loads the schema first, which
+ * lets an empty H2 database stand in for MySQL. With memory, -Dbank.journal=packed|tiered
+ * picks the journal ({@link StoreOptions}).
+ */
+public class MainLoad {
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.from(System.getProperties());
+
+        Banking bank;
+        AutoCloseable backend;
+        if ("jdbc".equalsIgnoreCase(System.getProperty("bank.backend", "memory"))) {
+            if (Boolean.getBoolean("load.createSchema")) {
+                try (Connection c = Jdbc.getConnection()) {
+                    SchemaScript.apply(c, SchemaScript.forConfiguredIds());
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            BankServiceJdbc jdbc = new BankServiceJdbc();
+            bank = jdbc;
+            backend = () -> {
+                System.out.println("Transaction retries: " + jdbc.retryStats());
+                jdbc.close();
+                Jdbc.shutdown();
+            };
+        } else if ("sharded".equalsIgnoreCase(System.getProperty("bank.backend"))) {
+            ShardedBankService sharded = new ShardedBankService(
+                    Integer.getInteger("bank.shards", Runtime.getRuntime().availableProcessors()));
+            bank = sharded;
+            backend = sharded;
+        } else {
+            Supplier<InMemoryStore> emptyStore = StoreOptions.emptyStore();
+            String dataDir = System.getProperty("bank.dataDir");
+            if (dataDir != null && !dataDir.isBlank()) {
+                DurableStore durable = DurableStore.open(DurabilityConfig.defaults(Path.of(dataDir)), emptyStore);
+                bank = new BankService(durable.store());
+                backend = durable;
+            } else {
+                bank = new BankService(emptyStore.get());
+                backend = () -> {};
+            }
+        }
+
+        try (backend) {
+            LoadDriver driver = new LoadDriver(bank, config);
+            long t0 = System.nanoTime();
+            driver.seed();
+            System.out.printf("Seeded %d users and %d accounts in %.1f s%n",
+                    config.users(), config.accounts(), (System.nanoTime() - t0) / 1e9);
+            System.out.printf("Running %s loop, %d threads%s, %d s warmup + %d s%n",
+                    config.openLoop() ? "open" : "closed", config.threads(),
+                    config.openLoop() ? " at " + config.ratePerSecond() + " ops/s" : "",
+                    config.warmupSeconds(), config.durationSeconds());
+            driver.run().print(System.out);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.http.BankHttpServer;
+import com.jamesbranco.bank.http.HttpConfig;
+import com.jamesbranco.bank.jdbc.Jdbc;
+import com.jamesbranco.bank.repo.ReplicationFollower;
+import com.jamesbranco.bank.security.SessionConfig;
+import com.jamesbranco.bank.security.SessionManager;
+import com.jamesbranco.bank.service.Banking;
+import com.jamesbranco.bank.service.ReplicaBanking;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the JSON API read-only from a replica of a primary started with
+ * -Dbank.replicationSocket=<path> (see {@link MainHttp}). Arguments: the
+ * socket path and optionally the HTTP port. Writes answer 409; the
+ * replication lag is printed every -Dbank.lagReportSeconds (default 10).
+ */
+public class MainReplica {
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: MainReplica <replication socket> [port]");
+            System.exit(2);
+        }
+        HttpConfig config = HttpConfig.from(Jdbc.properties());
+        if (args.length > 1) config = config.withPort(Integer.parseInt(args[1]));
+
+        ReplicationFollower follower = ReplicationFollower.start(Path.of(args[0]));
+        Banking bank = new ReplicaBanking(follower);
+        BankHttpServer server = BankHttpServer.start(bank, config,
+                new SessionManager(bank, SessionConfig.from(Jdbc.properties())));
+        System.out.println("Replica of " + args[0] + " listening on port " + server.port());
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            follower.close();
+            stopped.countDown();
+        }));
+        long reportMillis = Integer.getInteger("bank.lagReportSeconds", 10) * 1000L;
+        while (!stopped.await(reportMillis, TimeUnit.MILLISECONDS)) {
+            System.out.println("Replication: " + follower.lag());
+        }
+    }
+}
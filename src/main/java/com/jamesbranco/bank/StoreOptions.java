@@ -0,0 +1,29 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.PackedJournal;
+import com.jamesbranco.bank.repo.TieredJournal;
+import com.jamesbranco.bank.repo.TieringConfig;
+
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * The in-memory store flavour chosen by -Dbank.journal: heap (default),
+ * packed ({@link PackedJournal}) or tiered ({@link TieredJournal}, cold
+ * segments under -Dbank.coldDir, default "cold").
+ */
+final class StoreOptions {
+    private StoreOptions() {}
+
+    static Supplier<InMemoryStore> emptyStore() {
+        String journal = System.getProperty("bank.journal", "heap");
+        return switch (journal.toLowerCase()) {
+            case "heap" -> InMemoryStore::new;
+            case "packed" -> () -> new InMemoryStore(new PackedJournal());
+            case "tiered" -> () -> new InMemoryStore(TieredJournal.open(
+                    TieringConfig.defaults(Path.of(System.getProperty("bank.coldDir", "cold")))));
+            default -> throw new IllegalArgumentException("Unknown bank.journal: " + journal);
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package com.jamesbranco.bank.export;
+
+import com.jamesbranco.bank.model.Money;
+import com.jamesbranco.bank.model.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a transaction stream straight to a file as CSV or JSON lines.
+ * Each row is encoded into one reused buffer and flushed to the channel
+ * when it fills, so memory use doesn't grow with the history.
+ */
+public final class TransactionExporter {
+
+    public enum Format { CSV, JSON_LINES }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private TransactionExporter() {}
+
+    // Consumes and closes the stream; returns the number of transactions written.
+    public static long export(Stream<Transaction> transactions, Path file, Format format) {
+        try (transactions;
+             FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            CharsetEncoder enc = StandardCharsets.UTF_8.newEncoder();
+            ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            StringBuilder line = new StringBuilder(256);
+            long count = 0;
+
+            if (format == Format.CSV) {
+                line.append("id,account_id,type,amount,created_at,note\n");
+                write(line, enc, out, ch);
+            }
+            Iterator<Transaction> it = transactions.iterator();
+            while (it.hasNext()) {
+                Transaction t = it.next();
+                line.setLength(0);
+                if (format == Format.CSV) appendCsv(line, t);
+                else appendJson(line, t);
+                write(line, enc, out, ch);
+                count++;
+            }
+            out.flip();
+            while (out.hasRemaining()) ch.write(out);
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Export to " + file + " failed", e);
+        }
+    }
+
+    private static void write(CharSequence line, CharsetEncoder enc, ByteBuffer out, FileChannel ch) throws IOException {
+        CharBuffer in = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult r = enc.encode(in, out, false);
+            if (r.isUnderflow()) return;
+            if (r.isOverflow()) {
+                out.flip();
+                while (out.hasRemaining()) ch.write(out);
+                out.clear();
+            } else {
+                r.throwException();
+            }
+        }
+    }
+
+    private static void appendCsv(StringBuilder sb, Transaction t) {
+        sb.append(t.getId()).append(',')
+                .append(t.getAccountId()).append(',')
+                .append(t.getType()).append(',');
+        Money.appendPlain(sb, t.getAmountMinor()).append(',')
+                .append(t.getTimestamp()).append(',');
+        String note = t.getNote();
+        if (note.indexOf(',') >= 0 || note.indexOf('"') >= 0 || note.indexOf('\n') >= 0 || note.indexOf('\r') >= 0) {
+            sb.append('"').append(note.replace("\"", "\"\"")).append('"');
+        } else {
+            sb.append(note);
+        }
+        sb.append('\n');
+    }
+
+    private static void appendJson(StringBuilder sb, Transaction t) {
+        sb.append("{\"id\":\"").append(t.getId())
+                .append("\",\"accountId\":\"").append(t.getAccountId())
+                .append("\",\"type\":\"").append(t.getType())
+                .append("\",\"amount\":\"");
+        Money.appendPlain(sb, t.getAmountMinor())
+                .append("\",\"createdAt\":\"").append(t.getTimestamp())
+                .append("\",\"note\":\"");
+        String note = t.getNote();
+        for (int i = 0; i < note.length(); i++) {
+            char c = note.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append("\"}\n");
+    }
+}
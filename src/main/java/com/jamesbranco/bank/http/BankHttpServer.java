@@ -0,0 +1,458 @@
+package com.jamesbranco.bank.http;
+
+import com.jamesbranco.bank.metrics.BankMetrics;
+import com.jamesbranco.bank.model.*;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.security.Session;
+import com.jamesbranco.bank.security.SessionConfig;
+import com.jamesbranco.bank.security.SessionManager;
+import com.jamesbranco.bank.security.SessionStats;
+import com.jamesbranco.bank.service.Banking;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * JSON over HTTP in front of any {@link Banking} backend, on the JDK's built-in
+ * server. Each request runs on its own virtual thread, so blocking calls into
+ * the backend (JDBC, durable fsyncs) cost no platform thread.
+ *
+ * <pre>
+ * POST /users                          {name, email, password, role?}  -> 201 {userId}  (role other than CUSTOMER: admin only)
+ * POST /auth                           {email, password}               -> {userId, role, token, expiresAt}
+ * DELETE /auth                                                         (ends the bearer token's session)
+ * POST /accounts                       {userId}                        -> 201 {accountId}
+ * GET  /users/{id}/accounts                                            -> {accounts: [...]}
+ * GET  /accounts/{id}/balance                                          -> {accountId, balance}
+ * POST /accounts/{id}/deposit          {amount, note?}
+ * POST /accounts/{id}/withdraw         {amount, note?}
+ * POST /transfers                      {from, to, amount, note?}
+ * GET  /accounts/{id}/transactions     ?limit=&amp;cursor=&amp;from=&amp;to=    -> {items: [...], next}
+ * GET  /admin/users, /admin/accounts
+ * GET  /admin/metrics                                                  -> {operations, database, sessions}
+ * POST /admin/accounts/{id}/freeze, /admin/accounts/{id}/unfreeze
+ * DELETE /admin/users/{id}/sessions                                    -> {userId, revoked}
+ * </pre>
+ *
+ * Everything but POST /users and POST /auth needs an "Authorization: Bearer &lt;token&gt;" header;
+ * the token is resolved by the {@link SessionManager} without going back to the backend.
+ * /admin endpoints need an ADMIN login; account endpoints, and transfers out of an account,
+ * need the account's owner (or an admin).
+ *
+ * Errors come back as {error}: 400 for bad input, 401 for bad credentials or a missing/expired token,
+ * 403 for a non-admin token on /admin or someone else's account, 404 for unknown ids,
+ * 409 for business rule violations, 413 for oversized bodies, 503 when
+ * the request limit is reached or the server is draining.
+ */
+public final class BankHttpServer implements AutoCloseable {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final Banking bank;
+    private final HttpConfig config;
+    private final SessionManager sessions;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private volatile boolean draining;
+
+    private BankHttpServer(Banking bank, HttpConfig config, SessionManager sessions) throws IOException {
+        this.bank = bank;
+        this.config = config;
+        this.sessions = sessions;
+        this.inFlight = new Semaphore(config.maxConcurrentRequests());
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(config.port()), config.backlog());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static BankHttpServer start(Banking bank, HttpConfig config) {
+        return start(bank, config, new SessionManager(bank, SessionConfig.defaults()));
+    }
+
+    public static BankHttpServer start(Banking bank, HttpConfig config, SessionManager sessions) {
+        try {
+            BankHttpServer s = new BankHttpServer(bank, config, sessions);
+            s.server.start();
+            return s;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start HTTP server on port " + config.port(), e);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Stops accepting work, lets in-flight requests finish (up to drainSeconds) and shuts down. */
+    @Override
+    public void close() {
+        draining = true;
+        server.stop(config.drainSeconds());
+        executor.close();
+    }
+
+    private record Response(int status, String body) {}
+
+    private static final class PayloadTooLarge extends RuntimeException {
+        PayloadTooLarge() {
+            super("Request body too large");
+        }
+    }
+
+    private static final class Unauthorized extends RuntimeException {
+        final int status;
+
+        Unauthorized(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            if (draining || !inFlight.tryAcquire()) {
+                send(ex, new Response(503, error(draining ? "Server is shutting down" : "Too many requests")));
+                return;
+            }
+            try {
+                send(ex, route(ex));
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    private Response route(HttpExchange ex) {
+        try {
+            String method = ex.getRequestMethod();
+            List<String> path = segments(ex.getRequestURI().getRawPath());
+            int n = path.size();
+            String first = n > 0 ? path.get(0) : "";
+            if (first.equals("admin")) requireAdmin(ex);
+            if (method.equals("POST")) {
+                if (n == 1 && first.equals("users")) return register(ex, body(ex));
+                if (n == 1 && first.equals("auth")) return authenticate(body(ex));
+                if (n == 1 && first.equals("accounts")) return openAccount(requireSession(ex), body(ex));
+                if (n == 1 && first.equals("transfers")) return transfer(requireSession(ex), body(ex));
+                if (n == 3 && first.equals("accounts") && path.get(2).equals("deposit"))
+                    return deposit(owned(ex, path.get(1)), body(ex));
+                if (n == 3 && first.equals("accounts") && path.get(2).equals("withdraw"))
+                    return withdraw(owned(ex, path.get(1)), body(ex));
+                if (n == 4 && first.equals("admin") && path.get(1).equals("accounts")) {
+                    if (path.get(3).equals("freeze")) return freeze(path.get(2), true);
+                    if (path.get(3).equals("unfreeze")) return freeze(path.get(2), false);
+                }
+            } else if (method.equals("GET")) {
+                if (n == 3 && first.equals("accounts") && path.get(2).equals("balance")) return balance(owned(ex, path.get(1)));
+                if (n == 3 && first.equals("accounts") && path.get(2).equals("transactions"))
+                    return transactions(owned(ex, path.get(1)), query(ex.getRequestURI().getRawQuery()));
+                if (n == 3 && first.equals("users") && path.get(2).equals("accounts")) {
+                    requireUser(requireSession(ex), path.get(1));
+                    return accounts(bank.getAccountsForUser(path.get(1)));
+                }
+                if (n == 2 && first.equals("admin") && path.get(1).equals("users")) return users();
+                if (n == 2 && first.equals("admin") && path.get(1).equals("accounts")) return accounts(bank.getAllAccounts());
+                if (n == 2 && first.equals("admin") && path.get(1).equals("metrics")) return metrics();
+            } else if (method.equals("DELETE")) {
+                if (n == 1 && first.equals("auth")) return logout(ex);
+                if (n == 4 && first.equals("admin") && path.get(1).equals("users") && path.get(3).equals("sessions"))
+                    return revokeSessions(path.get(2));
+            }
+            return new Response(404, error("No such endpoint: " + method + " " + ex.getRequestURI().getPath()));
+        } catch (PayloadTooLarge e) {
+            return new Response(413, error(e.getMessage()));
+        } catch (Unauthorized e) {
+            return new Response(e.status, error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            String msg = e.getMessage() == null ? "Bad request" : e.getMessage();
+            int status = msg.endsWith("not found") ? 404 : msg.equals("Invalid credentials") ? 401 : 400;
+            return new Response(status, error(msg));
+        } catch (IllegalStateException | ArithmeticException e) {
+            return new Response(409, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            return new Response(500, error("Internal error"));
+        }
+    }
+
+    // --- endpoints ---
+
+    // Anyone may sign up as a customer; other roles are handed out by an admin.
+    private Response register(HttpExchange ex, Map<String, String> b) {
+        Role role = role(b.get("role"));
+        if (role != Role.CUSTOMER) requireAdmin(ex);
+        String id = bank.registerUser(required(b, "name"), required(b, "email"), required(b, "password"), role);
+        return new Response(201, new Json.Writer().beginObject().field("userId", id).endObject().toString());
+    }
+
+    private Response authenticate(Map<String, String> b) {
+        Session s = sessions.login(required(b, "email"), required(b, "password"));
+        return ok(new Json.Writer().beginObject().field("userId", s.userId()).field("role", s.role().name())
+                .field("token", s.token()).field("expiresAt", s.expiresAt().toString()).endObject());
+    }
+
+    private Response logout(HttpExchange ex) {
+        sessions.logout(bearer(ex));
+        return ok(new Json.Writer().beginObject().field("ok", true).endObject());
+    }
+
+    private Response revokeSessions(String userId) {
+        int revoked = sessions.revokeUser(userId);
+        return ok(new Json.Writer().beginObject().field("userId", userId).field("revoked", revoked).endObject());
+    }
+
+    private Response openAccount(Session s, Map<String, String> b) {
+        String userId = required(b, "userId");
+        requireUser(s, userId);
+        String id = bank.openCheckingAccount(userId);
+        return new Response(201, new Json.Writer().beginObject().field("accountId", id).endObject().toString());
+    }
+
+    private Response balance(String accountId) {
+        return ok(new Json.Writer().beginObject().field("accountId", accountId)
+                .rawNumber("balance", bank.getBalance(accountId).toPlainString()).endObject());
+    }
+
+    private Response deposit(String accountId, Map<String, String> b) {
+        bank.deposit(accountId, amount(b), b.get("note"));
+        return balance(accountId);
+    }
+
+    private Response withdraw(String accountId, Map<String, String> b) {
+        bank.withdraw(accountId, amount(b), b.get("note"));
+        return balance(accountId);
+    }
+
+    // Money may go to anyone's account, but only leave one the caller owns.
+    private Response transfer(Session s, Map<String, String> b) {
+        String from = required(b, "from");
+        requireOwner(s, from);
+        bank.transfer(from, required(b, "to"), amount(b), b.get("note"));
+        return ok(new Json.Writer().beginObject().field("ok", true).endObject());
+    }
+
+    private Response freeze(String accountId, boolean frozen) {
+        if (frozen) bank.freezeAccount(accountId);
+        else bank.unfreezeAccount(accountId);
+        return ok(new Json.Writer().beginObject().field("accountId", accountId).field("frozen", frozen).endObject());
+    }
+
+    private Response transactions(String accountId, Map<String, String> q) {
+        int limit = q.containsKey("limit") ? parseInt(q.get("limit"), "limit") : DEFAULT_PAGE_SIZE;
+        TransactionQuery query = new TransactionQuery(
+                q.containsKey("cursor") ? decodeCursor(q.get("cursor")) : null, limit,
+                instant(q.get("from"), "from"), instant(q.get("to"), "to"));
+        TransactionPage page = bank.getTransactionPage(accountId, query);
+        Json.Writer w = new Json.Writer().beginObject().beginArray("items");
+        for (Transaction t : page.items()) {
+            w.beginObject()
+                    .field("id", t.getId())
+                    .field("type", t.getType().name())
+                    .rawNumber("amount", t.getAmount().toPlainString())
+                    .field("createdAt", t.getTimestamp().toString())
+                    .field("note", t.getNote())
+                    .endObject();
+        }
+        w.endArray().field("next", page.hasMore() ? encodeCursor(page.next()) : null);
+        return ok(w.endObject());
+    }
+
+    private Response users() {
+        Json.Writer w = new Json.Writer().beginObject().beginArray("users");
+        for (InMemoryStore.UserRecord u : bank.getAllUsers()) {
+            w.beginObject().field("id", u.id).field("name", u.name).field("email", u.email)
+                    .field("role", u.role).endObject();
+        }
+        return ok(w.endArray().endObject());
+    }
+
+    private Response accounts(Collection<Account> accounts) {
+        Json.Writer w = new Json.Writer().beginObject().beginArray("accounts");
+        for (Account a : accounts) {
+            w.beginObject().field("id", a.getId()).field("ownerUserId", a.getOwnerUserId())
+                    .field("accountNumber", a.getAccountNumber())
+                    .rawNumber("balance", a.getBalance().toPlainString())
+                    .field("frozen", a.isFrozen()).endObject();
+        }
+        return ok(w.endArray().endObject());
+    }
+
+    // Latencies in microseconds.
+    private Response metrics() {
+        BankMetrics.Snapshot snapshot = BankMetrics.snapshot();
+        Json.Writer w = new Json.Writer().beginObject().field("enabled", BankMetrics.enabled());
+        metricsArray(w, "operations", snapshot.operations());
+        metricsArray(w, "database", snapshot.database());
+        SessionStats s = sessions.stats();
+        w.beginObject("sessions").field("active", s.active()).field("issued", s.issued())
+                .field("hits", s.hits()).field("misses", s.misses()).field("expired", s.expired())
+                .field("evicted", s.evicted()).field("revoked", s.revoked()).endObject();
+        return ok(w.endObject());
+    }
+
+    private static void metricsArray(Json.Writer w, String name, List<BankMetrics.Stats> stats) {
+        w.beginArray(name);
+        for (BankMetrics.Stats s : stats) {
+            w.beginObject().field("name", s.name().toLowerCase()).field("count", s.count())
+                    .field("p50", s.p50() / 1_000).field("p99", s.p99() / 1_000)
+                    .field("p999", s.p999() / 1_000).field("max", s.max() / 1_000)
+                    .beginObject("failures");
+            s.failures().forEach((reason, count) -> w.field(reason.name(), count));
+            w.endObject().endObject();
+        }
+        w.endArray();
+    }
+
+    // --- helpers ---
+
+    private Session requireSession(HttpExchange ex) {
+        return sessions.resolve(bearer(ex))
+                .orElseThrow(() -> new Unauthorized(401, "Missing or expired session token"));
+    }
+
+    private void requireAdmin(HttpExchange ex) {
+        if (requireSession(ex).role() != Role.ADMIN) throw new Unauthorized(403, "Admin role required");
+    }
+
+    private static void requireUser(Session s, String userId) {
+        if (s.role() != Role.ADMIN && !s.userId().equals(userId)) throw new Unauthorized(403, "Not your user");
+    }
+
+    // Admins may act on any account; everyone else only on their own.
+    private void requireOwner(Session s, String accountId) {
+        if (s.role() == Role.ADMIN) return;
+        for (Account a : bank.getAccountsForUser(s.userId())) {
+            if (a.getId().equals(accountId)) return;
+        }
+        throw new Unauthorized(403, "Not your account");
+    }
+
+    private String owned(HttpExchange ex, String accountId) {
+        requireOwner(requireSession(ex), accountId);
+        return accountId;
+    }
+
+    private static String bearer(HttpExchange ex) {
+        String h = ex.getRequestHeaders().getFirst("Authorization");
+        return h != null && h.regionMatches(true, 0, "Bearer ", 0, 7) ? h.substring(7).trim() : null;
+    }
+
+    private static Response ok(Json.Writer w) {
+        return new Response(200, w.toString());
+    }
+
+    private static String error(String message) {
+        return new Json.Writer().beginObject().field("error", message).endObject().toString();
+    }
+
+    private static void send(HttpExchange ex, Response r) throws IOException {
+        byte[] bytes = r.body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(r.status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Map<String, String> body(HttpExchange ex) {
+        String declared = ex.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null && Long.parseLong(declared.trim()) > config.maxBodyBytes()) throw new PayloadTooLarge();
+        try (InputStream in = ex.getRequestBody()) {
+            byte[] bytes = in.readNBytes(config.maxBodyBytes() + 1);
+            if (bytes.length > config.maxBodyBytes()) throw new PayloadTooLarge();
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String required(Map<String, String> b, String key) {
+        String v = b.get(key);
+        if (v == null || v.isBlank()) throw new IllegalArgumentException("Missing field: " + key);
+        return v;
+    }
+
+    private static BigDecimal amount(Map<String, String> b) {
+        try {
+            return new BigDecimal(required(b, "amount"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("amount must be a decimal number");
+        }
+    }
+
+    private static Role role(String v) {
+        if (v == null) return Role.CUSTOMER;
+        for (Role r : Role.values()) {
+            if (r.name().equals(v)) return r;
+        }
+        throw new IllegalArgumentException("Unknown role: " + v);
+    }
+
+    private static int parseInt(String v, String name) {
+        try {
+            return Integer.parseInt(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be an integer");
+        }
+    }
+
+    private static Instant instant(String v, String name) {
+        if (v == null) return null;
+        try {
+            return Instant.parse(v);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO-8601 instant");
+        }
+    }
+
+    // Opaque to clients: base64url of "createdAt|id".
+    private static String encodeCursor(TransactionCursor c) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((c.createdAt() + "|" + c.id()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static TransactionCursor decodeCursor(String v) {
+        try {
+            String s = new String(Base64.getUrlDecoder().decode(v), StandardCharsets.UTF_8);
+            int bar = s.indexOf('|');
+            return new TransactionCursor(Instant.parse(s.substring(0, bar)), s.substring(bar + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static List<String> segments(String rawPath) {
+        List<String> out = new ArrayList<>();
+        for (String s : rawPath.split("/")) {
+            if (!s.isEmpty()) out.add(URLDecoder.decode(s, StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> out = new HashMap<>();
+        if (raw == null) return out;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            out.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+}
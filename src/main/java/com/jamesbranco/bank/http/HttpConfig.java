@@ -0,0 +1,44 @@
+package com.jamesbranco.bank.http;
+
+import java.util.Properties;
+
+/**
+ * HTTP front end settings, read from the http.* keys of application.properties.
+ * Requests beyond maxConcurrentRequests are answered 503 straight away rather
+ * than queued; on shutdown in-flight requests get up to drainSeconds to finish.
+ */
+public record HttpConfig(int port,
+                         int backlog,
+                         int maxBodyBytes,
+                         int maxConcurrentRequests,
+                         int drainSeconds) {
+
+    public HttpConfig {
+        if (port < 0 || port > 65_535) throw new IllegalArgumentException("http.port must be 0-65535");
+        if (backlog < 0 || maxBodyBytes <= 0 || maxConcurrentRequests <= 0 || drainSeconds < 0)
+            throw new IllegalArgumentException("HTTP limits must be positive");
+    }
+
+    public static HttpConfig defaults() {
+        return new HttpConfig(8080, 4_096, 64 * 1024, 50_000, 10);
+    }
+
+    public static HttpConfig from(Properties props) {
+        HttpConfig d = defaults();
+        return new HttpConfig(
+                intProp(props, "http.port", d.port),
+                intProp(props, "http.backlog", d.backlog),
+                intProp(props, "http.maxBodyBytes", d.maxBodyBytes),
+                intProp(props, "http.maxConcurrentRequests", d.maxConcurrentRequests),
+                intProp(props, "http.drainSeconds", d.drainSeconds));
+    }
+
+    public HttpConfig withPort(int port) {
+        return new HttpConfig(port, backlog, maxBodyBytes, maxConcurrentRequests, drainSeconds);
+    }
+
+    private static int intProp(Properties props, String key, int def) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? def : Integer.parseInt(v.trim());
+    }
+}
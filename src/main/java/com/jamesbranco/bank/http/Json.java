@@ -0,0 +1,219 @@
+package com.jamesbranco.bank.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the HTTP API: request bodies are flat objects whose
+ * values are strings, numbers, booleans or null, and responses are built
+ * with {@link Writer}.
+ */
+final class Json {
+    private Json() {}
+
+    // Numbers are returned as their source text so amounts keep their exact decimal form.
+    static Map<String, String> parseObject(String text) {
+        Parser p = new Parser(text);
+        Map<String, String> out = p.object();
+        p.skipWhitespace();
+        if (p.pos != text.length()) throw p.error("Unexpected trailing content");
+        return out;
+    }
+
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> out = new LinkedHashMap<>();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return out;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                out.put(key, value());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') return out;
+                if (c != ',') throw error("Expected ',' or '}'");
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') return string();
+            int start = pos;
+            while (pos < s.length() && "{}[],: \t\r\n".indexOf(s.charAt(pos)) < 0) pos++;
+            String literal = s.substring(start, pos);
+            if (literal.equals("null")) return null;
+            if (literal.equals("true") || literal.equals("false")) return literal;
+            if (literal.matches("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?")) return literal;
+            throw error("Unsupported value");
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) throw error("Bad unicode escape");
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> throw error("Bad escape");
+                }
+            }
+        }
+
+        void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        private char peek() {
+            if (pos >= s.length()) throw error("Unexpected end of input");
+            return s.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) throw error("Expected '" + c + "'");
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Malformed JSON: " + message + " at offset " + pos);
+        }
+    }
+
+    /** Appends JSON to a StringBuilder; the caller is responsible for well-formed nesting. */
+    static final class Writer {
+        private final StringBuilder sb = new StringBuilder(128);
+        private boolean needComma;
+
+        Writer beginObject() {
+            comma();
+            sb.append('{');
+            needComma = false;
+            return this;
+        }
+
+        Writer beginObject(String name) {
+            name(name);
+            sb.append('{');
+            needComma = false;
+            return this;
+        }
+
+        Writer endObject() {
+            sb.append('}');
+            needComma = true;
+            return this;
+        }
+
+        Writer beginArray(String name) {
+            name(name);
+            sb.append('[');
+            needComma = false;
+            return this;
+        }
+
+        Writer endArray() {
+            sb.append(']');
+            needComma = true;
+            return this;
+        }
+
+        Writer field(String name, String value) {
+            name(name);
+            if (value == null) sb.append("null");
+            else quote(value);
+            needComma = true;
+            return this;
+        }
+
+        Writer field(String name, boolean value) {
+            name(name);
+            sb.append(value);
+            needComma = true;
+            return this;
+        }
+
+        Writer field(String name, long value) {
+            name(name);
+            sb.append(value);
+            needComma = true;
+            return this;
+        }
+
+        // A number written verbatim, e.g. BigDecimal.toPlainString().
+        Writer rawNumber(String name, String value) {
+            name(name);
+            sb.append(value);
+            needComma = true;
+            return this;
+        }
+
+        private void name(String name) {
+            comma();
+            quote(name);
+            sb.append(':');
+        }
+
+        private void comma() {
+            if (needComma) sb.append(',');
+        }
+
+        private void quote(String v) {
+            sb.append('"');
+            for (int i = 0; i < v.length(); i++) {
+                char c = v.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                    }
+                }
+            }
+            sb.append('"');
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
+    }
+}
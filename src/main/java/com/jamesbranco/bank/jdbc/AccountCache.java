@@ -0,0 +1,116 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Committed account rows (owner, balance, status) kept in memory so balance
+ * reads can skip the database. Entries are spread over segments, each an
+ * access-ordered LinkedHashMap that drops its least recently used entry when
+ * it is over its share of maxEntries.
+ *
+ * Writers call {@link #invalidate} once their transaction has ended, before
+ * returning to their caller, so a caller never reads a balance older than its
+ * own last commit. A reader that missed takes a {@link #stamp} before going to
+ * the database and installs the row with {@link #putIfUnchanged}; the stamp
+ * is bumped by every invalidation in the segment, so a row read before a
+ * concurrent commit is dropped instead of being cached after it. Changes made
+ * by other processes are not seen until the entry is evicted.
+ */
+public final class AccountCache {
+
+    public record Entry(String ownerUserId, BigDecimal balance, boolean frozen) {}
+
+    public record Stats(int size, long hits, long misses, long evictions, long invalidations) {}
+
+    private static final class Segment extends LinkedHashMap<String, Entry> {
+        final int capacity;
+        long generation;
+        long hits, misses, evictions, invalidations;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() <= capacity) return false;
+            evictions++;
+            return true;
+        }
+    }
+
+    private final Segment[] segments;
+    private final int mask;
+
+    public AccountCache(int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive");
+        int wanted = Math.min(Runtime.getRuntime().availableProcessors() * 4, Math.max(1, maxEntries / 64));
+        int n = Integer.highestOneBit(Math.max(1, wanted));
+        segments = new Segment[n];
+        for (int i = 0; i < n; i++) segments[i] = new Segment(Math.max(1, maxEntries / n));
+        mask = n - 1;
+    }
+
+    public Entry get(String accountId) {
+        Segment s = segment(accountId);
+        synchronized (s) {
+            Entry e = s.get(accountId);
+            if (e == null) s.misses++;
+            else s.hits++;
+            return e;
+        }
+    }
+
+    /** Taken before reading a row from the database; see {@link #putIfUnchanged}. */
+    public long stamp(String accountId) {
+        Segment s = segment(accountId);
+        synchronized (s) {
+            return s.generation;
+        }
+    }
+
+    /** Caches the row unless an invalidation in its segment happened since the stamp was taken. */
+    public void putIfUnchanged(String accountId, Entry entry, long stamp) {
+        Segment s = segment(accountId);
+        synchronized (s) {
+            if (s.generation == stamp) s.put(accountId, entry);
+        }
+    }
+
+    public void invalidate(String accountId) {
+        Segment s = segment(accountId);
+        synchronized (s) {
+            s.generation++;
+            s.invalidations++;
+            s.remove(accountId);
+        }
+    }
+
+    public void invalidateAll(Collection<String> accountIds) {
+        for (String id : accountIds) invalidate(id);
+    }
+
+    public Stats stats() {
+        int size = 0;
+        long hits = 0, misses = 0, evictions = 0, invalidations = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                size += s.size();
+                hits += s.hits;
+                misses += s.misses;
+                evictions += s.evictions;
+                invalidations += s.invalidations;
+            }
+        }
+        return new Stats(size, hits, misses, evictions, invalidations);
+    }
+
+    private Segment segment(String accountId) {
+        int h = accountId.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,24 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.util.Properties;
+
+/**
+ * Settings for {@link AccountCache}, read from the db.accountCache.* keys.
+ */
+public record AccountCacheConfig(boolean enabled, int maxEntries) {
+
+    public AccountCacheConfig {
+        if (maxEntries <= 0) throw new IllegalArgumentException("db.accountCache.maxEntries must be positive");
+    }
+
+    public static AccountCacheConfig disabled() {
+        return new AccountCacheConfig(false, 100_000);
+    }
+
+    public static AccountCacheConfig from(Properties props) {
+        AccountCacheConfig d = disabled();
+        return new AccountCacheConfig(
+                Boolean.parseBoolean(props.getProperty("db.accountCache.enabled", "false")),
+                PoolConfig.intProp(props, "db.accountCache.maxEntries", d.maxEntries));
+    }
+}
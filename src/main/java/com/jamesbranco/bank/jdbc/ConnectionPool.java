@@ -0,0 +1,413 @@
+package com.jamesbranco.bank.jdbc;
+
+import com.jamesbranco.bank.metrics.BankMetrics;
+import com.jamesbranco.bank.metrics.JdbcPhaseEvent;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small bounded JDBC connection pool.
+ *
+ * Callers get a proxy {@link Connection}; closing it hands the physical
+ * connection back to the pool (rolled back and in auto-commit mode again).
+ * prepareStatement(String) is served from a per-connection LRU cache, and
+ * closing such a statement only clears its parameters. A statement evicted
+ * from the cache while checked out is closed when its caller closes it. Acquisition, cached
+ * statement execution and commit are timed in {@link BankMetrics}.
+ */
+public final class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final PoolConfig config;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // guarded by itself, most recently used first
+    private final AtomicInteger active = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, PoolConfig config) throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize(), true);
+        for (int i = 0; i < config.minSize(); i++) {
+            idle.addLast(open());
+        }
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jdbc-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, config.idleTimeoutMs() / 2);
+        housekeeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+        JdbcPhaseEvent event = BankMetrics.beginDatabase();
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.acquireTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+        BankMetrics.endDatabase(BankMetrics.DbPhase.ACQUIRE, event, start, null);
+        if (!acquired) {
+            acquireTimeouts.increment();
+            throw new SQLTransientConnectionException(
+                    "Timed out after " + config.acquireTimeoutMs() + " ms waiting for a database connection");
+        }
+        try {
+            PooledConnection pc = takeIdleOrOpen();
+            active.incrementAndGet();
+            return pc.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public PoolStats stats() {
+        int idleNow;
+        synchronized (idle) {
+            idleNow = idle.size();
+        }
+        return new PoolStats(active.get(), idleNow, config.maxSize(),
+                acquireCount.sum(), acquireTimeouts.sum(), totalWaitNanos.sum(), maxWaitNanos.get(),
+                created.sum(), evicted.sum());
+    }
+
+    public PoolConfig config() {
+        return config;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledConnection pc : idle) pc.closePhysical();
+            idle.clear();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        acquireCount.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private PooledConnection takeIdleOrOpen() throws SQLException {
+        while (true) {
+            PooledConnection pc;
+            synchronized (idle) {
+                pc = idle.pollFirst();
+            }
+            if (pc == null) return open();
+            if (pc.isUsable()) return pc;
+            discard(pc);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+        created.increment();
+        return pc;
+    }
+
+    private void discard(PooledConnection pc) {
+        evicted.increment();
+        pc.closePhysical();
+    }
+
+    private void release(PooledConnection pc) {
+        active.decrementAndGet();
+        try {
+            if (closed || !pc.reset()) {
+                discard(pc);
+            } else {
+                synchronized (idle) {
+                    idle.addFirst(pc);
+                }
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Closes connections idle past idleTimeoutMs (keeping minSize) and tops the pool back up to minSize.
+    private void evictIdle() {
+        long now = System.nanoTime();
+        long limit = TimeUnit.MILLISECONDS.toNanos(config.idleTimeoutMs());
+        while (true) {
+            PooledConnection victim = null;
+            synchronized (idle) {
+                PooledConnection oldest = idle.peekLast();
+                if (oldest != null && idle.size() + active.get() > config.minSize()
+                        && now - oldest.lastReleasedNanos > limit) {
+                    victim = idle.pollLast();
+                }
+            }
+            if (victim == null) break;
+            discard(victim);
+        }
+        try {
+            while (!closed) {
+                synchronized (idle) {
+                    if (idle.size() + active.get() >= config.minSize()) break;
+                }
+                PooledConnection pc = open();
+                synchronized (idle) {
+                    idle.addLast(pc);
+                }
+            }
+        } catch (SQLException ignored) {
+            // database unavailable; the next acquire will surface the error
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private final Map<String, PreparedStatement> statements;
+        private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+        // evicted from the cache while in use; closed when handed back
+        private final Set<PreparedStatement> retired = Collections.newSetFromMap(new IdentityHashMap<>());
+        private volatile long lastReleasedNanos = System.nanoTime();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            int cacheSize = config.statementCacheSize();
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= cacheSize) return false;
+                    if (inUse.contains(eldest.getValue())) retired.add(eldest.getValue());
+                    else closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+
+        boolean isUsable() {
+            try {
+                if (physical.isClosed()) return false;
+                long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastReleasedNanos);
+                return idleMs < config.validationIntervalMs() || physical.isValid(config.validationTimeoutSeconds());
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        boolean reset() {
+            try {
+                if (physical.isClosed()) return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                inUse.clear();
+                closeRetired();
+                lastReleasedNanos = System.nanoTime();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        PreparedStatement cachedStatement(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps != null && inUse.contains(ps)) {
+                // same SQL opened twice at once (nested use): don't share the cached one
+                return physical.prepareStatement(sql);
+            }
+            if (ps == null || ps.isClosed()) {
+                ps = physical.prepareStatement(sql);
+                statements.put(sql, ps);
+            }
+            inUse.add(ps);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new CachedStatement(this, ps, sql));
+        }
+
+        // A statement handed back by its caller: kept for reuse unless the cache has already dropped it.
+        void returned(PreparedStatement ps) throws SQLException {
+            inUse.remove(ps);
+            if (retired.remove(ps)) {
+                ps.close();
+            } else {
+                ps.clearParameters();
+                ps.clearBatch();
+            }
+        }
+
+        private void closeRetired() {
+            for (PreparedStatement ps : retired) closeQuietly(ps);
+            retired.clear();
+        }
+
+        void closePhysical() {
+            for (PreparedStatement ps : statements.values()) closeQuietly(ps);
+            statements.clear();
+            closeRetired();
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // already broken
+            }
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean closed;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "PooledConnection[" + pc.physical + "]";
+                };
+            }
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(pc);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                default -> {
+                    if (closed) throw new SQLException("Connection is closed");
+                }
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1
+                    && config.statementCacheSize() > 0) {
+                return pc.cachedStatement((String) args[0]);
+            }
+            if (method.getName().equals("commit")) {
+                return timed(BankMetrics.DbPhase.COMMIT, null, pc.physical, method, args);
+            }
+            return delegate(pc.physical, method, args);
+        }
+    }
+
+    private static final class CachedStatement implements InvocationHandler {
+        private final PooledConnection owner;
+        private final PreparedStatement ps;
+        private final String sql;
+        private boolean closed;
+
+        CachedStatement(PooledConnection owner, PreparedStatement ps, String sql) {
+            this.owner = owner;
+            this.ps = ps;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "CachedStatement[" + ps + "]";
+                };
+            }
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        owner.returned(ps);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                default -> {
+                    if (closed) throw new SQLException("Statement is closed");
+                }
+            }
+            if (method.getName().startsWith("execute")) {
+                return timed(BankMetrics.DbPhase.STATEMENT, sql, ps, method, args);
+            }
+            return delegate(ps, method, args);
+        }
+    }
+
+    private static Object timed(BankMetrics.DbPhase phase, String sql, Object target, Method method, Object[] args)
+            throws Throwable {
+        JdbcPhaseEvent event = BankMetrics.beginDatabase();
+        long start = System.nanoTime();
+        try {
+            return delegate(target, method, args);
+        } finally {
+            BankMetrics.endDatabase(phase, event, start, sql);
+        }
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+            // nothing useful to do
+        }
+    }
+}
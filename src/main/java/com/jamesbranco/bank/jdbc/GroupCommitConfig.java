@@ -0,0 +1,26 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.util.Properties;
+
+/**
+ * Settings for {@link GroupCommitter}, read from the db.groupCommit.* keys.
+ */
+public record GroupCommitConfig(boolean enabled, int maxBatchSize, long lingerMicros) {
+
+    public GroupCommitConfig {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("db.groupCommit.maxBatchSize must be positive");
+        if (lingerMicros < 0) throw new IllegalArgumentException("db.groupCommit.lingerMicros must not be negative");
+    }
+
+    public static GroupCommitConfig disabled() {
+        return new GroupCommitConfig(false, 64, 500);
+    }
+
+    public static GroupCommitConfig from(Properties props) {
+        GroupCommitConfig d = disabled();
+        return new GroupCommitConfig(
+                Boolean.parseBoolean(props.getProperty("db.groupCommit.enabled", "false")),
+                PoolConfig.intProp(props, "db.groupCommit.maxBatchSize", d.maxBatchSize),
+                PoolConfig.longProp(props, "db.groupCommit.lingerMicros", d.lingerMicros));
+    }
+}
@@ -0,0 +1,144 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces money movements from many threads into shared database commits.
+ *
+ * A single writer thread takes up to maxBatchSize queued units (waiting at
+ * most lingerMicros for the batch to fill), applies each one under its own
+ * savepoint, writes all of their journal rows as one batch and commits once.
+ * Every caller's future completes on its own: a unit that fails with a
+ * business error is rolled back to its savepoint without affecting the rest.
+ * A SQL error rolls back the whole transaction (InnoDB may already have done
+ * so), fails that unit and re-runs the remaining ones.
+ */
+public final class GroupCommitter implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Unit {
+        void apply(Connection c, TransactionRows journal) throws SQLException;
+    }
+
+    private record Pending(Unit unit, CompletableFuture<Void> result) {}
+
+    private final GroupCommitConfig config;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final Object submitLock = new Object(); // orders submit's check-and-add against close
+    private volatile boolean running = true;
+
+    public GroupCommitter(GroupCommitConfig config) {
+        this.config = config;
+        this.writer = new Thread(this::run, "jdbc-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public CompletableFuture<Void> submit(Unit unit) {
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        synchronized (submitLock) {
+            if (!running) {
+                f.completeExceptionally(new IllegalStateException("Group committer is closed"));
+                return f;
+            }
+            queue.add(new Pending(unit, f));
+        }
+        return f;
+    }
+
+    /**
+     * Stops taking work. The writer commits what is already queued and exits
+     * on its next empty poll; anything still queued after waiting for it fails.
+     * The writer is not interrupted, so no JDBC call is cut off midway.
+     */
+    @Override
+    public void close() {
+        synchronized (submitLock) {
+            running = false;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.result.completeExceptionally(new IllegalStateException("Group committer is closed"));
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(config.maxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(config.lingerMicros());
+                while (batch.size() < config.maxBatchSize()) {
+                    queue.drainTo(batch, config.maxBatchSize() - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= config.maxBatchSize() || left <= 0) break;
+                    Pending next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (batch.isEmpty()) continue;
+            }
+            commitBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void commitBatch(List<Pending> batch) {
+        List<Pending> remaining = new ArrayList<>(batch);
+        while (!remaining.isEmpty()) {
+            try (Connection c = Jdbc.getConnection()) {
+                c.setAutoCommit(false);
+                TransactionRows journal = new TransactionRows();
+                List<Pending> applied = new ArrayList<>(remaining.size());
+                Pending broken = null;
+                for (Pending p : remaining) {
+                    Savepoint sp = c.setSavepoint();
+                    int mark = journal.size();
+                    try {
+                        p.unit.apply(c, journal);
+                        applied.add(p);
+                    } catch (SQLException e) {
+                        broken = p;
+                        p.result.completeExceptionally(new RuntimeException(e));
+                        break;
+                    } catch (RuntimeException e) {
+                        c.rollback(sp);
+                        journal.truncate(mark);
+                        p.result.completeExceptionally(e);
+                    }
+                }
+                if (broken != null) {
+                    c.rollback();
+                    remaining.removeIf(p -> p.result.isDone());
+                    continue;
+                }
+                journal.flush(c);
+                c.commit();
+                applied.forEach(p -> p.result.complete(null));
+                return;
+            } catch (SQLException | RuntimeException e) {
+                // connection, journal flush or commit failed: nobody in this round is durable
+                RuntimeException failure = e instanceof RuntimeException re ? re : new RuntimeException(e);
+                remaining.forEach(p -> p.result.completeExceptionally(failure));
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Binds and reads id columns. With db.binaryIds=true they are BINARY(16)
+ * (see database/simple_banking_schema_mysql_binary_ids.sql), which makes the
+ * primary and foreign keys less than half as wide as CHAR(36); the Java side
+ * keeps using the canonical UUID strings either way.
+ */
+public final class IdColumns {
+    private static volatile boolean binary =
+            Boolean.parseBoolean(Jdbc.properties().getProperty("db.binaryIds", "false").trim());
+
+    private IdColumns() {}
+
+    public static boolean binary() {
+        return binary;
+    }
+
+    // For tools and tests that pick the schema at runtime.
+    public static void useBinary(boolean on) {
+        binary = on;
+    }
+
+    public static void set(PreparedStatement ps, int index, String id) throws SQLException {
+        if (binary) ps.setBytes(index, toBytes(id));
+        else ps.setString(index, id);
+    }
+
+    public static String get(ResultSet rs, String column) throws SQLException {
+        return binary ? fromBytes(rs.getBytes(column)) : rs.getString(column);
+    }
+
+    public static String get(ResultSet rs, int column) throws SQLException {
+        return binary ? fromBytes(rs.getBytes(column)) : rs.getString(column);
+    }
+
+    // Big-endian, so byte order matches both creation order and the string order.
+    static byte[] toBytes(String id) {
+        if (id == null) return null;
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    static String fromBytes(byte[] b) {
+        if (b == null) return null;
+        ByteBuffer buf = ByteBuffer.wrap(b);
+        return new UUID(buf.getLong(), buf.getLong()).toString();
+    }
+}
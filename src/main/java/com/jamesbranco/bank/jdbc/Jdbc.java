@@ -16,13 +16,49 @@ public final class Jdbc {
             throw new RuntimeException("Failed to load application.properties", e);
         }
     }
+    private static volatile ConnectionPool pool;
+
     private Jdbc() {}
 
     public static Connection getConnection() throws SQLException {
+        if (!Boolean.parseBoolean(PROPS.getProperty("db.pool.enabled", "true"))) {
+            return DriverManager.getConnection(url(), PROPS.getProperty("db.user"), PROPS.getProperty("db.password"));
+        }
+        return pool().getConnection();
+    }
+
+    public static Properties properties() {
+        return PROPS;
+    }
+
+    // Null when pooling is disabled or no connection has been requested yet.
+    public static PoolStats poolStats() {
+        ConnectionPool p = pool;
+        return p == null ? null : p.stats();
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    private static ConnectionPool pool() throws SQLException {
+        ConnectionPool p = pool;
+        if (p != null) return p;
+        synchronized (Jdbc.class) {
+            if (pool == null) {
+                pool = new ConnectionPool(url(), PROPS.getProperty("db.user"), PROPS.getProperty("db.password"),
+                        PoolConfig.from(PROPS));
+            }
+            return pool;
+        }
+    }
+
+    private static String url() {
         String url = PROPS.getProperty("db.url");
-        String user = PROPS.getProperty("db.user");
-        String pass = PROPS.getProperty("db.password");
         if (url == null) throw new IllegalStateException("db.url not set");
-        return DriverManager.getConnection(url, user, pass);
+        return url;
     }
 }
@@ -0,0 +1,49 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.util.Properties;
+
+/**
+ * Connection pool settings, read from the db.pool.* keys of application.properties.
+ */
+public record PoolConfig(int minSize,
+                         int maxSize,
+                         long acquireTimeoutMs,
+                         long idleTimeoutMs,
+                         long validationIntervalMs,
+                         int validationTimeoutSeconds,
+                         int statementCacheSize) {
+
+    public PoolConfig {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize)
+            throw new IllegalArgumentException("Need 0 <= db.pool.minSize <= db.pool.maxSize and maxSize > 0");
+        if (acquireTimeoutMs < 0 || idleTimeoutMs <= 0 || validationIntervalMs < 0
+                || validationTimeoutSeconds < 0 || statementCacheSize < 0)
+            throw new IllegalArgumentException("Pool timeouts and sizes must not be negative");
+    }
+
+    public static PoolConfig defaults() {
+        return new PoolConfig(2, 10, 5_000, 300_000, 5_000, 2, 64);
+    }
+
+    public static PoolConfig from(Properties props) {
+        PoolConfig d = defaults();
+        return new PoolConfig(
+                intProp(props, "db.pool.minSize", d.minSize),
+                intProp(props, "db.pool.maxSize", d.maxSize),
+                longProp(props, "db.pool.acquireTimeoutMs", d.acquireTimeoutMs),
+                longProp(props, "db.pool.idleTimeoutMs", d.idleTimeoutMs),
+                longProp(props, "db.pool.validationIntervalMs", d.validationIntervalMs),
+                intProp(props, "db.pool.validationTimeoutSeconds", d.validationTimeoutSeconds),
+                intProp(props, "db.pool.statementCacheSize", d.statementCacheSize));
+    }
+
+    static int intProp(Properties props, String key, int def) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? def : Integer.parseInt(v.trim());
+    }
+
+    static long longProp(Properties props, String key, long def) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? def : Long.parseLong(v.trim());
+    }
+}
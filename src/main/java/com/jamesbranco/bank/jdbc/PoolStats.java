@@ -0,0 +1,19 @@
+package com.jamesbranco.bank.jdbc;
+
+/**
+ * Point-in-time pool metrics. Wait figures cover every acquire since the pool started.
+ */
+public record PoolStats(int active,
+                        int idle,
+                        int maxSize,
+                        long acquireCount,
+                        long acquireTimeouts,
+                        long totalWaitNanos,
+                        long maxWaitNanos,
+                        long connectionsCreated,
+                        long connectionsEvicted) {
+
+    public double averageWaitMillis() {
+        return acquireCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / acquireCount;
+    }
+}
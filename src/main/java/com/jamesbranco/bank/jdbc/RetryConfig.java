@@ -0,0 +1,34 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.util.Properties;
+
+/**
+ * Settings for {@link TransactionExecutor}, read from the db.retry.* keys.
+ * A unit of work runs at most maxAttempts times, and is not retried once
+ * budgetMillis have passed since its first attempt started.
+ */
+public record RetryConfig(int maxAttempts, long baseDelayMicros, long maxDelayMicros, long budgetMillis) {
+
+    public RetryConfig {
+        if (maxAttempts <= 0) throw new IllegalArgumentException("db.retry.maxAttempts must be positive");
+        if (baseDelayMicros < 0 || maxDelayMicros < baseDelayMicros || budgetMillis < 0)
+            throw new IllegalArgumentException("Need 0 <= db.retry.baseDelayMicros <= db.retry.maxDelayMicros and budgetMillis >= 0");
+    }
+
+    public static RetryConfig defaults() {
+        return new RetryConfig(8, 1_000, 100_000, 2_000);
+    }
+
+    public static RetryConfig noRetry() {
+        return new RetryConfig(1, 0, 0, 0);
+    }
+
+    public static RetryConfig from(Properties props) {
+        RetryConfig d = defaults();
+        return new RetryConfig(
+                PoolConfig.intProp(props, "db.retry.maxAttempts", d.maxAttempts),
+                PoolConfig.longProp(props, "db.retry.baseDelayMicros", d.baseDelayMicros),
+                PoolConfig.longProp(props, "db.retry.maxDelayMicros", d.maxDelayMicros),
+                PoolConfig.longProp(props, "db.retry.budgetMillis", d.budgetMillis));
+    }
+}
@@ -0,0 +1,7 @@
+package com.jamesbranco.bank.jdbc;
+
+/**
+ * Counts since the executor was created. retries counts re-runs (not units);
+ * aborted counts units that still failed retryably when attempts or budget ran out.
+ */
+public record RetryStats(long units, long retries, long aborted, long deadlocks, long lockTimeouts, long conflicts) {}
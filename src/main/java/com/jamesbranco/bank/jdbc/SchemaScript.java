@@ -0,0 +1,49 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a schema script from database/ against whatever db.url points at, skipping the MySQL-only statements (CREATE DATABASE, USE, the view) so
+ * it also works on an H2 stand-in.
+ */
+public final class SchemaScript {
+    public static final Path DEFAULT = Path.of("database/simple_banking_schema_mysql.sql");
+    public static final Path BINARY_IDS = Path.of("database/simple_banking_schema_mysql_binary_ids.sql");
+
+    /** The script matching {@link IdColumns#binary()}. */
+    public static Path forConfiguredIds() {
+        return IdColumns.binary() ? BINARY_IDS : DEFAULT;
+    }
+
+    private SchemaScript() {}
+
+    public static void apply(Connection c, Path script) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            for (String sql : statements(script)) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    static String[] statements(Path script) {
+        String text;
+        try {
+            text = Files.readString(script);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Arrays.stream(text.split(";\\s*\\n"))
+                .map(s -> s.lines().filter(l -> !l.trim().startsWith("--")).collect(Collectors.joining("\n")).trim())
+                .filter(s -> !s.isEmpty())
+                .filter(s -> !s.startsWith("CREATE DATABASE") && !s.startsWith("USE ") && !s.contains(" VIEW "))
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,149 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs units of JDBC work in their own transaction and re-runs the whole
+ * unit when the database gave up on it for contention reasons: a deadlock
+ * victim, a lock wait timeout or a serialization failure, or a
+ * {@link Conflict} raised by an optimistic check. Anything else, business
+ * rule violations included, fails at once.
+ *
+ * Between attempts the thread sleeps a random time up to a delay that
+ * doubles from baseDelayMicros to maxDelayMicros ("full jitter"), so
+ * colliding callers spread out instead of colliding again.
+ */
+public final class TransactionExecutor {
+
+    public interface Work<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    /**
+     * Thrown by a unit whose optimistic check failed; the unit is rolled back and re-run.
+     * If it still conflicts when the retries run out, callers see an IllegalStateException.
+     */
+    public static final class Conflict extends IllegalStateException {
+        public Conflict(String message) {
+            super(message);
+        }
+    }
+
+    private enum Reason { DEADLOCK, LOCK_TIMEOUT, CONFLICT }
+
+    // MySQL error codes; H2 uses SQL states 40001 (deadlock) and HYT00 (lock timeout) instead.
+    private static final int MYSQL_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int MYSQL_DEADLOCK = 1213;
+
+    private final RetryConfig config;
+    private final LongAdder units = new LongAdder(), retries = new LongAdder(), aborted = new LongAdder(),
+            deadlocks = new LongAdder(), lockTimeouts = new LongAdder(), conflicts = new LongAdder();
+
+    public TransactionExecutor(RetryConfig config) {
+        this.config = config;
+    }
+
+    /** Runs work in a transaction on a pooled connection, retrying as described above. */
+    public <T> T inTransaction(Work<T> work) {
+        return retry(() -> once(work));
+    }
+
+    /** Retries an attempt that manages its own transaction (e.g. one handed to the group committer). */
+    public <T> T retry(Supplier<T> attempt) {
+        units.increment();
+        long started = System.nanoTime();
+        for (int n = 1; ; n++) {
+            try {
+                return attempt.get();
+            } catch (RuntimeException e) {
+                Reason reason = reason(e);
+                if (reason == null) throw e;
+                count(reason);
+                long delayNanos = backoffNanos(n);
+                long elapsed = System.nanoTime() - started;
+                if (n >= config.maxAttempts() || elapsed + delayNanos > TimeUnit.MILLISECONDS.toNanos(config.budgetMillis())) {
+                    aborted.increment();
+                    throw e;
+                }
+                retries.increment();
+                sleep(delayNanos, e);
+            }
+        }
+    }
+
+    public RetryStats stats() {
+        return new RetryStats(units.sum(), retries.sum(), aborted.sum(), deadlocks.sum(), lockTimeouts.sum(), conflicts.sum());
+    }
+
+    /** True for failures that another attempt of the same unit may get past. */
+    public static boolean isRetryable(Throwable t) {
+        return reason(t) != null;
+    }
+
+    private static <T> T once(Work<T> work) {
+        try (Connection c = Jdbc.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                T result = work.run(c);
+                c.commit();
+                return result;
+            } catch (SQLException | RuntimeException ex) {
+                rollbackQuietly(c, ex);
+                throw ex;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // A failed rollback must not hide the failure that caused it; the pool drops the broken connection.
+    private static void rollbackQuietly(Connection c, Exception cause) {
+        try {
+            c.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static Reason reason(Throwable t) {
+        for (Throwable x = t; x != null; x = x.getCause()) {
+            if (x instanceof Conflict) return Reason.CONFLICT;
+            if (x instanceof SQLException e) {
+                String state = e.getSQLState() == null ? "" : e.getSQLState();
+                if (e.getErrorCode() == MYSQL_DEADLOCK || state.equals("40001")) return Reason.DEADLOCK;
+                if (e.getErrorCode() == MYSQL_LOCK_WAIT_TIMEOUT || state.equals("HYT00")) return Reason.LOCK_TIMEOUT;
+            }
+        }
+        return null;
+    }
+
+    private void count(Reason reason) {
+        switch (reason) {
+            case DEADLOCK -> deadlocks.increment();
+            case LOCK_TIMEOUT -> lockTimeouts.increment();
+            case CONFLICT -> conflicts.increment();
+        }
+    }
+
+    private long backoffNanos(int attempt) {
+        long cap = Math.min(config.maxDelayMicros(), config.baseDelayMicros() << Math.min(attempt - 1, 30));
+        return cap <= 0 ? 0 : TimeUnit.MICROSECONDS.toNanos(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private static void sleep(long nanos, RuntimeException failure) {
+        if (nanos == 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+}
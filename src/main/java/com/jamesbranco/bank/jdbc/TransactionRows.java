@@ -0,0 +1,54 @@
+package com.jamesbranco.bank.jdbc;
+
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.util.IdGenerator;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal rows collected during a database transaction and written with one
+ * batched INSERT just before commit. With MySQL's rewriteBatchedStatements=true
+ * the batch goes over the wire as a single multi-row INSERT.
+ */
+public final class TransactionRows {
+    private static final String INSERT =
+            "INSERT INTO transactions (id, account_id, type, amount, note) VALUES (?,?,?,?,?)";
+
+    private record Row(String id, String accountId, TransactionType type, BigDecimal amount, String note) {}
+
+    private final List<Row> rows = new ArrayList<>();
+
+    public void add(String accountId, TransactionType type, BigDecimal amount, String note) {
+        rows.add(new Row(IdGenerator.newId(), accountId, type, amount, note));
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    // Drops rows added after the given size (used when one unit of a group is rolled back).
+    public void truncate(int size) {
+        rows.subList(size, rows.size()).clear();
+    }
+
+    public void flush(Connection c) throws SQLException {
+        if (rows.isEmpty()) return;
+        try (PreparedStatement ps = c.prepareStatement(INSERT)) {
+            for (Row r : rows) {
+                IdColumns.set(ps, 1, r.id());
+                IdColumns.set(ps, 2, r.accountId());
+                ps.setString(3, r.type().name());
+                ps.setBigDecimal(4, r.amount());
+                ps.setString(5, r.note());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        rows.clear();
+    }
+}
@@ -0,0 +1,21 @@
+package com.jamesbranco.bank.jdbc;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * How the JDBC service debits an account (db.writeMode).
+ */
+public enum WriteMode {
+    // SELECT ... FOR UPDATE, check in Java, then UPDATE: three round trips per withdrawal.
+    LOCKING,
+    // One UPDATE guarded by balance and status; the affected row count decides. Transfers update in id order.
+    GUARDED,
+    // Unlocked read, then UPDATE ... WHERE version = ?; a lost race retries the whole unit.
+    // Needs the accounts.version column.
+    VERSIONED;
+
+    public static WriteMode from(Properties props) {
+        return valueOf(props.getProperty("db.writeMode", GUARDED.name()).trim().toUpperCase(Locale.ROOT));
+    }
+}
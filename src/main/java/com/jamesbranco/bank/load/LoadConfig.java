@@ -0,0 +1,83 @@
+package com.jamesbranco.bank.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Load driver settings, read from load.* keys (usually -D system properties).
+ *
+ * Open loop sends requests on a fixed schedule of ratePerSecond spread over
+ * the threads, whether or not earlier ones have finished; closed loop has
+ * each thread send its next request as soon as the previous one returns
+ * (plus thinkMicros). mix holds the relative weight of each operation and
+ * zipfExponent skews which accounts are used (0 = uniform).
+ */
+public record LoadConfig(int users,
+                         int accounts,
+                         Map<Operation, Integer> mix,
+                         double zipfExponent,
+                         boolean openLoop,
+                         int ratePerSecond,
+                         int threads,
+                         long thinkMicros,
+                         int warmupSeconds,
+                         int durationSeconds,
+                         long seed) {
+
+    public LoadConfig {
+        if (users <= 0 || accounts <= 0) throw new IllegalArgumentException("load.users and load.accounts must be positive");
+        if (accounts < 2 && mix.getOrDefault(Operation.TRANSFER, 0) > 0)
+            throw new IllegalArgumentException("Transfers need at least two accounts");
+        if (zipfExponent < 0) throw new IllegalArgumentException("load.zipf must not be negative");
+        if (threads <= 0) throw new IllegalArgumentException("load.threads must be positive");
+        if (openLoop && ratePerSecond <= 0) throw new IllegalArgumentException("load.rate must be positive in open-loop mode");
+        if (thinkMicros < 0 || warmupSeconds < 0 || durationSeconds <= 0)
+            throw new IllegalArgumentException("load.thinkMicros, load.warmupSeconds and load.durationSeconds must not be negative");
+        mix = new EnumMap<>(mix);
+        if (mix.values().stream().anyMatch(w -> w < 0) || mix.values().stream().mapToInt(Integer::intValue).sum() == 0)
+            throw new IllegalArgumentException("load.mix weights must be non-negative and not all zero");
+        mix = Map.copyOf(mix);
+    }
+
+    public static LoadConfig defaults() {
+        return new LoadConfig(1_000, 10_000, parseMix("authenticate=5,balance=30,deposit=20,withdraw=15,transfer=20,history=10"),
+                1.0, false, 10_000, 4, 0, 5, 30, 42);
+    }
+
+    public static LoadConfig from(Properties props) {
+        LoadConfig d = defaults();
+        String mode = props.getProperty("load.mode", d.openLoop ? "open" : "closed").trim();
+        if (!mode.equals("open") && !mode.equals("closed"))
+            throw new IllegalArgumentException("load.mode must be open or closed");
+        String mix = props.getProperty("load.mix");
+        return new LoadConfig(
+                (int) longProp(props, "load.users", d.users),
+                (int) longProp(props, "load.accounts", d.accounts),
+                mix == null || mix.isBlank() ? d.mix : parseMix(mix),
+                Double.parseDouble(props.getProperty("load.zipf", String.valueOf(d.zipfExponent)).trim()),
+                mode.equals("open"),
+                (int) longProp(props, "load.rate", d.ratePerSecond),
+                (int) longProp(props, "load.threads", d.threads),
+                longProp(props, "load.thinkMicros", d.thinkMicros),
+                (int) longProp(props, "load.warmupSeconds", d.warmupSeconds),
+                (int) longProp(props, "load.durationSeconds", d.durationSeconds),
+                longProp(props, "load.seed", d.seed));
+    }
+
+    // "balance=30,transfer=20,..."; operations left out get weight 0.
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> out = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Bad load.mix entry: " + part);
+            out.put(Operation.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+        }
+        return out;
+    }
+
+    private static long longProp(Properties props, String key, long def) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? def : Long.parseLong(v.trim());
+    }
+}
@@ -0,0 +1,213 @@
+package com.jamesbranco.bank.load;
+
+import com.jamesbranco.bank.metrics.LatencyHistogram;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.service.Banking;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Production-shaped load against any {@link Banking} backend: seeds users and
+ * accounts, then has a fixed set of threads replay the configured operation
+ * mix for warmup plus duration, with Zipf-skewed account popularity.
+ *
+ * In open loop each thread owns every threads-th slot of the global schedule;
+ * a thread that falls behind sends late and the delay counts against the
+ * request, so latencies include queueing the way real clients see it.
+ */
+public final class LoadDriver {
+    private static final String PASSWORD = "Load123!";
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+    private static final int HISTORY_PAGE_SIZE = 20;
+
+    private final Banking bank;
+    private final LoadConfig config;
+    private final Operation[] ops = Operation.values();
+    private final int[] cumulativeWeights = new int[ops.length];
+    private final ZipfSampler popularity;
+    private String[] emails;
+    private String[] accountIds; // most popular first
+
+    public LoadDriver(Banking bank, LoadConfig config) {
+        this.bank = bank;
+        this.config = config;
+        int sum = 0;
+        for (int i = 0; i < ops.length; i++) {
+            sum += config.mix().getOrDefault(ops[i], 0);
+            cumulativeWeights[i] = sum;
+        }
+        this.popularity = new ZipfSampler(config.accounts(), config.zipfExponent());
+    }
+
+    /** Registers the users and opens and funds the accounts, round-robin over users. */
+    public void seed() {
+        emails = new String[config.users()];
+        String[] userIds = new String[config.users()];
+        IntStream.range(0, config.users()).parallel().forEach(i -> {
+            emails[i] = "load-" + config.seed() + "-" + i + "@example.com";
+            userIds[i] = bank.registerUser("Load User " + i, emails[i], PASSWORD, Role.CUSTOMER);
+        });
+        List<String> accounts = Arrays.asList(new String[config.accounts()]);
+        IntStream.range(0, config.accounts()).parallel().forEach(i -> {
+            String id = bank.openCheckingAccount(userIds[i % userIds.length]);
+            bank.deposit(id, OPENING_BALANCE, "Opening balance");
+            accounts.set(i, id);
+        });
+        Collections.shuffle(accounts, new Random(config.seed())); // hot accounts spread over users
+        accountIds = accounts.toArray(String[]::new);
+    }
+
+    public LoadReport run() throws InterruptedException {
+        if (accountIds == null) throw new IllegalStateException("Call seed() first");
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmupSeconds() * 1_000_000_000L;
+        long end = measureFrom + config.durationSeconds() * 1_000_000_000L;
+
+        Worker[] workers = new Worker[config.threads()];
+        Thread[] threads = new Thread[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i, start, measureFrom, end);
+            threads[i] = new Thread(workers[i], "load-" + i);
+            threads[i].start();
+        }
+        for (Thread t : threads) t.join();
+
+        Map<Operation, LoadReport.OperationStats> stats = new EnumMap<>(Operation.class);
+        long completed = 0;
+        for (Operation op : ops) {
+            LatencyHistogram latency = new LatencyHistogram(), service = new LatencyHistogram();
+            long rejected = 0;
+            for (Worker w : workers) {
+                if (w.failure != null) throw new IllegalStateException("Load worker failed", w.failure);
+                latency.add(w.latency.get(op));
+                service.add(w.service.get(op));
+                rejected += w.rejected[op.ordinal()];
+            }
+            completed += service.count();
+            stats.put(op, new LoadReport.OperationStats(latency, service, rejected));
+        }
+        return new LoadReport(stats, completed, config.durationSeconds());
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        private final long start, measureFrom, end;
+        private final SplittableRandom random;
+        private final Map<Operation, LatencyHistogram> latency = new EnumMap<>(Operation.class);
+        private final Map<Operation, LatencyHistogram> service = new EnumMap<>(Operation.class);
+        private final long[] rejected = new long[ops.length];
+        private volatile Throwable failure;
+
+        Worker(int index, long start, long measureFrom, long end) {
+            this.index = index;
+            this.start = start;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.random = new SplittableRandom(config.seed() * 31 + index);
+            for (Operation op : ops) {
+                latency.put(op, new LatencyHistogram());
+                service.put(op, new LatencyHistogram());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (config.openLoop()) openLoop();
+                else closedLoop();
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+
+        private void openLoop() {
+            double interval = 1e9 * config.threads() / config.ratePerSecond();
+            for (long k = 0; ; k++) {
+                long intended = start + (long) ((k + (double) index / config.threads()) * interval);
+                if (intended >= end) return;
+                waitUntil(intended);
+                Operation op = pick();
+                long t0 = System.nanoTime();
+                boolean accepted = call(op);
+                long t1 = System.nanoTime();
+                if (intended < measureFrom) continue;
+                latency.get(op).record(t1 - intended);
+                service.get(op).record(t1 - t0);
+                if (!accepted) rejected[op.ordinal()]++;
+            }
+        }
+
+        // Without a schedule, a stall hides the requests that would have been
+        // sent during it; the expected interval is think time plus the mean
+        // service time seen so far.
+        private void closedLoop() {
+            long think = config.thinkMicros() * 1_000;
+            long serviceSum = 0, serviceCount = 0;
+            while (true) {
+                long t0 = System.nanoTime();
+                if (t0 >= end) return;
+                Operation op = pick();
+                boolean accepted = call(op);
+                long t1 = System.nanoTime();
+                long took = t1 - t0;
+                serviceSum += took;
+                serviceCount++;
+                if (t0 >= measureFrom) {
+                    latency.get(op).recordCorrected(took, think + serviceSum / serviceCount);
+                    service.get(op).record(took);
+                    if (!accepted) rejected[op.ordinal()]++;
+                }
+                if (think > 0) LockSupport.parkNanos(think);
+            }
+        }
+
+        private Operation pick() {
+            int r = random.nextInt(cumulativeWeights[ops.length - 1]);
+            int i = 0;
+            while (cumulativeWeights[i] <= r) i++;
+            return ops[i];
+        }
+
+        // false when the bank refused the call, e.g. insufficient funds
+        private boolean call(Operation op) {
+            try {
+                switch (op) {
+                    case AUTHENTICATE -> bank.authenticate(emails[random.nextInt(emails.length)], PASSWORD);
+                    case BALANCE -> bank.getBalance(account());
+                    case DEPOSIT -> bank.deposit(account(), amount(100), "load");
+                    case WITHDRAW -> bank.withdraw(account(), amount(50), "load");
+                    case TRANSFER -> {
+                        String from = account(), to = account();
+                        while (to.equals(from)) to = account();
+                        bank.transfer(from, to, amount(50), "load");
+                    }
+                    case HISTORY -> bank.getTransactionPage(account(), TransactionQuery.firstPage(HISTORY_PAGE_SIZE));
+                }
+                return true;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                return false;
+            }
+        }
+
+        private String account() {
+            return accountIds[popularity.next(random)];
+        }
+
+        // 1.00 up to maxUnits.99
+        private BigDecimal amount(int maxUnits) {
+            return BigDecimal.valueOf(100 + random.nextInt(maxUnits * 100), 2);
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long gap;
+        while ((gap = deadline - System.nanoTime()) > 0) {
+            if (gap > 100_000) LockSupport.parkNanos(gap - 50_000);
+            else Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.jamesbranco.bank.load;
+
+import com.jamesbranco.bank.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Per-operation results of a measured run. latency is measured from when a
+ * request should have been sent (its open-loop schedule slot, or corrected
+ * for coordinated omission in closed loop); service is the time the call
+ * itself took. Calls rejected by the bank (insufficient funds and the like)
+ * are timed too and also counted under rejected.
+ */
+public final class LoadReport {
+    public record OperationStats(LatencyHistogram latency, LatencyHistogram service, long rejected) {}
+
+    private final Map<Operation, OperationStats> stats;
+    private final long completed;
+    private final double seconds;
+
+    LoadReport(Map<Operation, OperationStats> stats, long completed, double seconds) {
+        this.stats = new EnumMap<>(stats);
+        this.completed = completed;
+        this.seconds = seconds;
+    }
+
+    public OperationStats stats(Operation op) {
+        return stats.get(op);
+    }
+
+    /** Calls completed per second over the measured interval. */
+    public double throughput() {
+        return completed / seconds;
+    }
+
+    public long completed() {
+        return completed;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%d calls in %.1f s = %.0f ops/s%n", completed, seconds, throughput());
+        out.printf("%-13s %9s %8s %10s %10s %10s %10s %12s%n",
+                "operation", "calls", "rejected", "p50 us", "p99 us", "p99.9 us", "max us", "svc p99 us");
+        for (Operation op : Operation.values()) {
+            OperationStats s = stats.get(op);
+            if (s == null || s.service.count() == 0) continue;
+            LatencyHistogram l = s.latency;
+            out.printf("%-13s %9d %8d %10.1f %10.1f %10.1f %10.1f %12.1f%n",
+                    op.name().toLowerCase(), s.service.count(), s.rejected,
+                    micros(l.percentile(50)), micros(l.percentile(99)), micros(l.percentile(99.9)),
+                    micros(l.max()), micros(s.service.percentile(99)));
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+}
@@ -0,0 +1,6 @@
+package com.jamesbranco.bank.load;
+
+/** Calls the load driver mixes, in the order reports list them. */
+public enum Operation {
+    AUTHENTICATE, BALANCE, DEPOSIT, WITHDRAW, TRANSFER, HISTORY
+}
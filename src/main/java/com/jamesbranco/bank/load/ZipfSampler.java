@@ -0,0 +1,24 @@
+package com.jamesbranco.bank.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/** Draws ranks 0..n-1 with P(k) proportional to 1/(k+1)^s, by binary search over the CDF. */
+final class ZipfSampler {
+    private final double[] cdf;
+
+    ZipfSampler(int n, double s) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, s);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) cdf[k] /= sum;
+    }
+
+    int next(SplittableRandom random) {
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+    }
+}
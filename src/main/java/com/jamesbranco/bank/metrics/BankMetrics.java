@@ -0,0 +1,181 @@
+package com.jamesbranco.bank.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide counters and latency histograms for banking operations and
+ * the JDBC work under them, plus JFR events for both.
+ *
+ * Recording is lock-free. -Dbank.metrics=false (or {@link #setEnabled})
+ * turns the counters off, leaving one volatile read per call; the JFR
+ * events cost nothing unless a recording has them enabled.
+ */
+public final class BankMetrics {
+
+    public enum Op {
+        REGISTER, AUTHENTICATE, OPEN_ACCOUNT, BALANCE, LIST_ACCOUNTS,
+        DEPOSIT, WITHDRAW, TRANSFER, BATCH, HISTORY, FREEZE, UNFREEZE
+    }
+
+    public enum Failure {
+        INSUFFICIENT_FUNDS, ACCOUNT_FROZEN, BAD_CREDENTIALS, NOT_FOUND, INVALID_REQUEST, REJECTED, ERROR
+    }
+
+    public enum DbPhase { ACQUIRE, STATEMENT, COMMIT }
+
+    /** Latencies in nanoseconds; failures only has the reasons that occurred. */
+    public record Stats(String name, long count, Map<Failure, Long> failures,
+                        long p50, long p99, long p999, long max) {}
+
+    public record Snapshot(List<Stats> operations, List<Stats> database) {
+        public void print(PrintStream out) {
+            out.printf("%-14s %9s %8s %10s %10s %10s %10s%n",
+                    "operation", "calls", "failed", "p50 us", "p99 us", "p99.9 us", "max us");
+            for (Stats s : operations) row(out, s);
+            for (Stats s : database) row(out, s);
+        }
+
+        private static void row(PrintStream out, Stats s) {
+            if (s.count == 0) return;
+            long failed = s.failures.values().stream().mapToLong(Long::longValue).sum();
+            out.printf("%-14s %9d %8d %10.1f %10.1f %10.1f %10.1f%s%n", s.name.toLowerCase(), s.count, failed,
+                    s.p50 / 1e3, s.p99 / 1e3, s.p999 / 1e3, s.max / 1e3, s.failures.isEmpty() ? "" : "  " + s.failures);
+        }
+    }
+
+    private static final Op[] OPS = Op.values();
+    private static final Failure[] FAILURES = Failure.values();
+    private static final ConcurrentLatencyHistogram[] opLatency = histograms(OPS.length);
+    private static final LongAdder[][] opFailures = new LongAdder[OPS.length][FAILURES.length];
+    private static final ConcurrentLatencyHistogram[] dbLatency = histograms(DbPhase.values().length);
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("bank.metrics"));
+
+    static {
+        for (LongAdder[] row : opFailures) {
+            for (int i = 0; i < row.length; i++) row[i] = new LongAdder();
+        }
+    }
+
+    private BankMetrics() {}
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /** Runs one service call, timing it and classifying any exception it throws. */
+    public static <T> T call(Op op, Supplier<T> body) {
+        BankOperationEvent event = new BankOperationEvent();
+        boolean on = enabled;
+        if (!on && !event.isEnabled()) return body.get();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            T result = body.get();
+            finish(op, start, null, event, on);
+            return result;
+        } catch (RuntimeException e) {
+            finish(op, start, e, event, on);
+            throw e;
+        }
+    }
+
+    public static void run(Op op, Runnable body) {
+        call(op, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    private static void finish(Op op, long start, RuntimeException failure, BankOperationEvent event, boolean on) {
+        Failure reason = failure == null ? null : classify(failure);
+        if (on) {
+            opLatency[op.ordinal()].record(System.nanoTime() - start);
+            if (reason != null) opFailures[op.ordinal()][reason.ordinal()].increment();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = op.name();
+            event.outcome = reason == null ? "OK" : reason.name();
+            event.commit();
+        }
+    }
+
+    /** Starts the JFR event for a JDBC phase; pair with {@link #endDatabase}. */
+    public static JdbcPhaseEvent beginDatabase() {
+        JdbcPhaseEvent event = new JdbcPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endDatabase(DbPhase phase, JdbcPhaseEvent event, long startNanos, String sql) {
+        if (enabled) dbLatency[phase.ordinal()].record(System.nanoTime() - startNanos);
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.name();
+            event.sql = sql == null ? "" : sql;
+            event.commit();
+        }
+    }
+
+    /**
+     * Maps the exceptions the services throw to a reason. Business failures
+     * are IllegalArgumentException / IllegalStateException with fixed
+     * messages; anything else (SQL errors and the like) is ERROR.
+     */
+    public static Failure classify(Throwable t) {
+        if (!(t instanceof IllegalArgumentException) && !(t instanceof IllegalStateException)) return Failure.ERROR;
+        String m = t.getMessage() == null ? "" : t.getMessage();
+        if (m.equals("Insufficient funds")) return Failure.INSUFFICIENT_FUNDS;
+        if (m.endsWith("frozen")) return Failure.ACCOUNT_FROZEN;
+        if (m.equals("Invalid credentials")) return Failure.BAD_CREDENTIALS;
+        if (m.endsWith("not found")) return Failure.NOT_FOUND;
+        return t instanceof IllegalArgumentException ? Failure.INVALID_REQUEST : Failure.REJECTED;
+    }
+
+    public static Snapshot snapshot() {
+        List<Stats> ops = new ArrayList<>(OPS.length);
+        for (Op op : OPS) {
+            Map<Failure, Long> failures = new EnumMap<>(Failure.class);
+            for (Failure f : FAILURES) {
+                long n = opFailures[op.ordinal()][f.ordinal()].sum();
+                if (n > 0) failures.put(f, n);
+            }
+            ops.add(stats(op.name(), opLatency[op.ordinal()].snapshot(), failures));
+        }
+        List<Stats> db = new ArrayList<>();
+        for (DbPhase phase : DbPhase.values()) {
+            db.add(stats("DB_" + phase.name(), dbLatency[phase.ordinal()].snapshot(), Map.of()));
+        }
+        return new Snapshot(Collections.unmodifiableList(ops), Collections.unmodifiableList(db));
+    }
+
+    public static void reset() {
+        for (ConcurrentLatencyHistogram h : opLatency) h.reset();
+        for (ConcurrentLatencyHistogram h : dbLatency) h.reset();
+        for (LongAdder[] row : opFailures) {
+            for (LongAdder a : row) a.reset();
+        }
+    }
+
+    private static Stats stats(String name, LatencyHistogram h, Map<Failure, Long> failures) {
+        return new Stats(name, h.count(), Collections.unmodifiableMap(failures),
+                h.percentile(50), h.percentile(99), h.percentile(99.9), h.max());
+    }
+
+    private static ConcurrentLatencyHistogram[] histograms(int n) {
+        ConcurrentLatencyHistogram[] out = new ConcurrentLatencyHistogram[n];
+        for (int i = 0; i < n; i++) out[i] = new ConcurrentLatencyHistogram();
+        return out;
+    }
+}
@@ -0,0 +1,22 @@
+package com.jamesbranco.bank.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.jamesbranco.bank.Operation")
+@Label("Banking Operation")
+@Category("Banking")
+@Description("One call into BankService or BankServiceJdbc")
+@StackTrace(false)
+final class BankOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Outcome")
+    @Description("OK or the failure reason")
+    String outcome;
+}
@@ -0,0 +1,32 @@
+package com.jamesbranco.bank.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Lock-free {@link LatencyHistogram} for many recording threads; read it through {@link #snapshot}. */
+final class ConcurrentLatencyHistogram {
+    private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    private final LongAdder sum = new LongAdder();
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.getAndIncrement(LatencyHistogram.index(nanos));
+        max.accumulate(nanos);
+        sum.add(nanos);
+    }
+
+    // Not atomic as a whole: a concurrent record may be half counted.
+    LatencyHistogram snapshot() {
+        long[] copy = new long[LatencyHistogram.BUCKETS];
+        for (int i = 0; i < copy.length; i++) copy[i] = counts.get(i);
+        return new LatencyHistogram(copy, max.get(), sum.sum());
+    }
+
+    void reset() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) counts.set(i, 0);
+        max.reset();
+        sum.reset();
+    }
+}
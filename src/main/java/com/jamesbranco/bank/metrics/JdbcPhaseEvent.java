@@ -0,0 +1,25 @@
+package com.jamesbranco.bank.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Connection acquisition, statement execution or commit on a pooled
+ * connection. Begun by the caller so the recording shows when it started.
+ */
+@Name("com.jamesbranco.bank.JdbcPhase")
+@Label("JDBC Phase")
+@Category({"Banking", "JDBC"})
+@StackTrace(false)
+public final class JdbcPhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("SQL")
+    @Description("Statement text; empty for acquire and commit")
+    String sql;
+}
@@ -0,0 +1,106 @@
+package com.jamesbranco.bank.metrics;
+
+/**
+ * Log-linear histogram of nanosecond latencies. Values below 128 are exact;
+ * above that each power of two is split into 64 buckets, so any reported
+ * value is within about 1.6% of what was recorded. Not thread-safe: give
+ * each recording thread its own and {@link #add} them afterwards.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF = SUB_COUNT >> 1;
+    static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF;
+
+    private final long[] counts;
+    private long total;
+    private long max;
+    private double sum;
+
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+    }
+
+    // Snapshot of a ConcurrentLatencyHistogram.
+    LatencyHistogram(long[] counts, long max, double sum) {
+        this.counts = counts;
+        for (long c : counts) total += c;
+        this.max = max;
+        this.sum = sum;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[index(nanos)]++;
+        total++;
+        sum += nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    /**
+     * Records a latency measured by a caller that issues requests back to
+     * back. A stall of N expected intervals also delayed the N requests that
+     * would have been sent meanwhile, so those are backfilled with linearly
+     * decreasing latencies (coordinated-omission correction).
+     */
+    public void recordCorrected(long nanos, long expectedIntervalNanos) {
+        record(nanos);
+        if (expectedIntervalNanos <= 0) return;
+        for (long missed = nanos - expectedIntervalNanos; missed >= expectedIntervalNanos;
+             missed -= expectedIntervalNanos) {
+            record(missed);
+        }
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return total == 0 ? 0 : sum / total;
+    }
+
+    /** Highest value in the bucket holding the given percentile (0-100); 0 when empty. */
+    public long percentile(double p) {
+        if (p < 0 || p > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(highestInBucket(i), max);
+        }
+        return max;
+    }
+
+    static int index(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+        return SUB_COUNT + (shift - 1) * HALF + (int) ((v >>> shift) - HALF);
+    }
+
+    static long highestInBucket(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index - SUB_COUNT) / HALF + 1;
+        long sub = (index - SUB_COUNT) % HALF + HALF;
+        return (sub << shift) + (1L << shift) - 1;
+    }
+}
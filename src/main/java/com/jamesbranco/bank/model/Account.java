@@ -7,20 +7,28 @@ public class Account {
     private final String id;
     private final String ownerUserId;
     private final String accountNumber;
-    private BigDecimal balance;
-    private boolean frozen = false;   // ⭐ NEW
+    // Minor units (cents). Written under the store's account lock; volatile so balance reads need no lock.
+    private volatile long balanceMinor;
+    private volatile boolean frozen = false;   // ⭐ NEW
 
     public Account(String id, String ownerUserId, String accountNumber) {
         this.id = Objects.requireNonNull(id);
         this.ownerUserId = Objects.requireNonNull(ownerUserId);
         this.accountNumber = Objects.requireNonNull(accountNumber);
-        this.balance = BigDecimal.ZERO.setScale(2);
+    }
+
+    // Rebuilds an account from a snapshot or log.
+    public Account(String id, String ownerUserId, String accountNumber, long balanceMinor, boolean frozen) {
+        this(id, ownerUserId, accountNumber);
+        this.balanceMinor = balanceMinor;
+        this.frozen = frozen;
     }
 
     public String getId() { return id; }
     public String getOwnerUserId() { return ownerUserId; }
     public String getAccountNumber() { return accountNumber; }
-    public BigDecimal getBalance() { return balance; }
+    public BigDecimal getBalance() { return Money.toBigDecimal(balanceMinor); }
+    public long getBalanceMinor() { return balanceMinor; }
 
 
     public boolean isFrozen() {
@@ -38,21 +46,36 @@ public class Account {
     }
 
     public void deposit(BigDecimal amount) {
-        requirePositive(amount);
-        balance = balance.add(amount).setScale(2);
+        depositMinor(Money.toMinor(requirePositive(amount)));
     }
 
     public void withdraw(BigDecimal amount) {
-        requirePositive(amount);
-        if (balance.compareTo(amount) < 0) {
+        withdrawMinor(Money.toMinor(requirePositive(amount)));
+    }
+
+    public void depositMinor(long amountMinor) {
+        requirePositive(amountMinor);
+        balanceMinor = Money.add(balanceMinor, amountMinor);
+    }
+
+    public void withdrawMinor(long amountMinor) {
+        requirePositive(amountMinor);
+        if (balanceMinor < amountMinor) {
             throw new IllegalStateException("Insufficient funds");
         }
-        balance = balance.subtract(amount).setScale(2);
+        balanceMinor -= amountMinor;
     }
 
-    private static void requirePositive(BigDecimal amount) {
+    private static BigDecimal requirePositive(BigDecimal amount) {
         if (amount == null || amount.signum() <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
+        return amount;
+    }
+
+    private static void requirePositive(long amountMinor) {
+        if (amountMinor <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
     }
 }
@@ -0,0 +1,7 @@
+package com.jamesbranco.bank.model;
+
+/**
+ * ALL_OR_NOTHING applies a batch only if every item succeeds; BEST_EFFORT
+ * applies every item that can be applied and reports the rest.
+ */
+public enum BatchMode { ALL_OR_NOTHING, BEST_EFFORT }
@@ -0,0 +1,69 @@
+package com.jamesbranco.bank.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One line item of a batch: a deposit, withdrawal or transfer in minor units.
+ * Malformed items (missing ids, non-positive amounts, self-transfers) are
+ * rejected when they are built, so a batch only fails on account state.
+ */
+public sealed interface Command {
+
+    // Accounts this command locks.
+    List<String> accountIds();
+
+    long amountMinor();
+
+    String note();
+
+    record Deposit(String accountId, long amountMinor, String note) implements Command {
+        public Deposit {
+            Objects.requireNonNull(accountId, "accountId");
+            requirePositive(amountMinor);
+        }
+
+        @Override
+        public List<String> accountIds() { return List.of(accountId); }
+    }
+
+    record Withdraw(String accountId, long amountMinor, String note) implements Command {
+        public Withdraw {
+            Objects.requireNonNull(accountId, "accountId");
+            requirePositive(amountMinor);
+        }
+
+        @Override
+        public List<String> accountIds() { return List.of(accountId); }
+    }
+
+    record Transfer(String fromAccountId, String toAccountId, long amountMinor, String note) implements Command {
+        public Transfer {
+            Objects.requireNonNull(fromAccountId, "fromAccountId");
+            Objects.requireNonNull(toAccountId, "toAccountId");
+            if (fromAccountId.equals(toAccountId))
+                throw new IllegalArgumentException("Cannot transfer to same account");
+            requirePositive(amountMinor);
+        }
+
+        @Override
+        public List<String> accountIds() { return List.of(fromAccountId, toAccountId); }
+    }
+
+    static Deposit deposit(String accountId, BigDecimal amount, String note) {
+        return new Deposit(accountId, Money.toMinor(amount), note);
+    }
+
+    static Withdraw withdraw(String accountId, BigDecimal amount, String note) {
+        return new Withdraw(accountId, Money.toMinor(amount), note);
+    }
+
+    static Transfer transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
+        return new Transfer(fromAccountId, toAccountId, Money.toMinor(amount), note);
+    }
+
+    private static void requirePositive(long amountMinor) {
+        if (amountMinor <= 0) throw new IllegalArgumentException("Amount must be positive");
+    }
+}
@@ -0,0 +1,20 @@
+package com.jamesbranco.bank.model;
+
+/**
+ * Outcome of one batch item. error is null when the command was applied.
+ */
+public record CommandResult(Command command, String error) {
+    public static final String ROLLED_BACK = "Not applied: another item in the batch failed";
+
+    public static CommandResult applied(Command command) {
+        return new CommandResult(command, null);
+    }
+
+    public static CommandResult failed(Command command, String error) {
+        return new CommandResult(command, error);
+    }
+
+    public boolean ok() {
+        return error == null;
+    }
+}
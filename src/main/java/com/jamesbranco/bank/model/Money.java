@@ -0,0 +1,70 @@
+package com.jamesbranco.bank.model;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Fixed-point money as a long count of minor units (cents).
+ * The ledger keeps amounts this way and only builds BigDecimals at the
+ * API and database edges; conversions are exact or they throw.
+ */
+public final class Money {
+    // Minor-unit digits of the ledger currency; matches DECIMAL(12,2) in the schema.
+    public static final int SCALE = 2;
+
+    private Money() {}
+
+    public static long toMinor(BigDecimal amount) {
+        return toMinor(amount, SCALE);
+    }
+
+    // Throws ArithmeticException if the amount has more fractional digits than the scale or doesn't fit a long.
+    public static long toMinor(BigDecimal amount, int scale) {
+        if (amount == null) throw new IllegalArgumentException("Amount is required");
+        return amount.movePointRight(scale).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static BigDecimal toBigDecimal(long minor, int scale) {
+        return BigDecimal.valueOf(minor, scale);
+    }
+
+    // Appends the plain decimal form ("-12.05") without building a BigDecimal.
+    public static StringBuilder appendPlain(StringBuilder sb, long minor) {
+        if (minor == Long.MIN_VALUE) return sb.append(toBigDecimal(minor).toPlainString());
+        if (minor < 0) {
+            sb.append('-');
+            minor = -minor;
+        }
+        long unit = 1;
+        for (int i = 0; i < SCALE; i++) unit *= 10;
+        sb.append(minor / unit);
+        if (SCALE > 0) {
+            sb.append('.');
+            long frac = minor % unit;
+            for (long p = unit / 10; p > 1 && frac < p; p /= 10) sb.append('0');
+            sb.append(frac);
+        }
+        return sb;
+    }
+
+    public static int scaleOf(Currency currency) {
+        int digits = currency.getDefaultFractionDigits();
+        return digits < 0 ? 0 : digits;
+    }
+
+    public static long add(long a, long b) {
+        long r = a + b;
+        if (((a ^ r) & (b ^ r)) < 0) throw new ArithmeticException("Money overflow");
+        return r;
+    }
+
+    public static long subtract(long a, long b) {
+        long r = a - b;
+        if (((a ^ b) & (a ^ r)) < 0) throw new ArithmeticException("Money overflow");
+        return r;
+    }
+}
@@ -0,0 +1,7 @@
+package com.jamesbranco.bank.model;
+
+/**
+ * CACHED may answer from the JDBC service's account cache (never older than
+ * the caller's own last commit); LATEST always reads the database.
+ */
+public enum ReadConsistency { CACHED, LATEST }
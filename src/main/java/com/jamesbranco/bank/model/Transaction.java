@@ -8,26 +8,38 @@ public class Transaction {
     private final String id;
     private final String accountId;
     private final TransactionType type;
-    private final BigDecimal amount;
+    private final long amountMinor;
     private final Instant timestamp;
     private final String note;
 
     public Transaction(String id, String accountId, TransactionType type,
                        BigDecimal amount, Instant timestamp, String note) {
-        if (amount == null || amount.signum() <= 0)
+        this(id, accountId, type, toPositiveMinor(amount), timestamp, note);
+    }
+
+    public Transaction(String id, String accountId, TransactionType type,
+                       long amountMinor, Instant timestamp, String note) {
+        if (amountMinor <= 0)
             throw new IllegalArgumentException("Amount must be positive");
         this.id = Objects.requireNonNull(id);
         this.accountId = Objects.requireNonNull(accountId);
         this.type = Objects.requireNonNull(type);
-        this.amount = amount.setScale(2);
+        this.amountMinor = amountMinor;
         this.timestamp = Objects.requireNonNull(timestamp);
         this.note = note == null ? "" : note;
     }
 
+    private static long toPositiveMinor(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0)
+            throw new IllegalArgumentException("Amount must be positive");
+        return Money.toMinor(amount);
+    }
+
     public String getId() { return id; }
     public String getAccountId() { return accountId; }
     public TransactionType getType() { return type; }
-    public BigDecimal getAmount() { return amount; }
+    public BigDecimal getAmount() { return Money.toBigDecimal(amountMinor); }
+    public long getAmountMinor() { return amountMinor; }
     public Instant getTimestamp() { return timestamp; }
     public String getNote() { return note; }
 }
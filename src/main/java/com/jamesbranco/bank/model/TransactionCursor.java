@@ -0,0 +1,20 @@
+package com.jamesbranco.bank.model;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Position in an account's history: the (created_at, id) of the last entry a page returned.
+ * The next page starts strictly after it.
+ */
+public record TransactionCursor(Instant createdAt, String id) {
+
+    public TransactionCursor {
+        Objects.requireNonNull(createdAt);
+        Objects.requireNonNull(id);
+    }
+
+    public static TransactionCursor of(Transaction t) {
+        return new TransactionCursor(t.getTimestamp(), t.getId());
+    }
+}
@@ -0,0 +1,13 @@
+package com.jamesbranco.bank.model;
+
+import java.util.List;
+
+/**
+ * A page of history, newest first. next is null on the last page.
+ */
+public record TransactionPage(List<Transaction> items, TransactionCursor next) {
+
+    public boolean hasMore() {
+        return next != null;
+    }
+}
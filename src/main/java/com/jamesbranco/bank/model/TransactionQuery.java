@@ -0,0 +1,30 @@
+package com.jamesbranco.bank.model;
+
+import java.time.Instant;
+
+/**
+ * One page of history, newest first. from is inclusive, to is exclusive; either may be null.
+ */
+public record TransactionQuery(TransactionCursor after, int pageSize, Instant from, Instant to) {
+    public static final int MAX_PAGE_SIZE = 1_000;
+
+    public TransactionQuery {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        if (from != null && to != null && !from.isBefore(to))
+            throw new IllegalArgumentException("from must be before to");
+    }
+
+    public static TransactionQuery firstPage(int pageSize) {
+        return new TransactionQuery(null, pageSize, null, null);
+    }
+
+    public TransactionQuery between(Instant from, Instant to) {
+        return new TransactionQuery(after, pageSize, from, to);
+    }
+
+    public TransactionQuery next(TransactionPage page) {
+        if (!page.hasMore()) throw new IllegalStateException("No more pages");
+        return new TransactionQuery(page.next(), pageSize, from, to);
+    }
+}
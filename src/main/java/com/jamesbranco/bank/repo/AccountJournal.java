@@ -0,0 +1,91 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionCursor;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Heap-backed {@link TransactionJournal}. Appends are serialized; the backing
+ * array is published before the size, so every index below a size a reader
+ * sees is filled in.
+ */
+final class AccountJournal implements TransactionJournal {
+    private volatile Transaction[] items;
+    private volatile int size;
+
+    AccountJournal() {
+        this(4);
+    }
+
+    AccountJournal(int capacity) {
+        items = new Transaction[Math.max(4, capacity)];
+    }
+
+    @Override
+    public synchronized Transaction append(Transaction t) {
+        int n = size;
+        Transaction[] arr = items;
+        if (n > 0 && t.getTimestamp().isBefore(arr[n - 1].getTimestamp())) {
+            // wall clock stepped back; keep the journal ordered
+            t = new Transaction(t.getId(), t.getAccountId(), t.getType(), t.getAmountMinor(),
+                    arr[n - 1].getTimestamp(), t.getNote());
+        }
+        if (n == arr.length) {
+            arr = Arrays.copyOf(arr, n * 2);
+            items = arr;
+        }
+        arr[n] = t;
+        size = n + 1;
+        return t;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public List<Transaction> snapshot() {
+        int n = size;
+        return Collections.unmodifiableList(Arrays.asList(items).subList(0, n));
+    }
+
+    // O(log n + pageSize) no matter how deep the cursor is.
+    @Override
+    public TransactionPage page(TransactionQuery q) {
+        int n = size;
+        Transaction[] arr = items;
+        int lo = q.from() == null ? 0 : firstAtOrAfter(arr, n, q.from());
+        int hi = q.to() == null ? n : firstAtOrAfter(arr, n, q.to());
+        if (q.after() != null) hi = Math.min(hi, positionOf(arr, n, q.after()));
+        int start = Math.max(lo, hi - q.pageSize());
+        List<Transaction> out = new ArrayList<>(Math.max(0, hi - start));
+        for (int i = hi - 1; i >= start; i--) out.add(arr[i]);
+        TransactionCursor next = start > lo ? TransactionCursor.of(arr[start]) : null;
+        return new TransactionPage(Collections.unmodifiableList(out), next);
+    }
+
+    private static int firstAtOrAfter(Transaction[] arr, int n, Instant ts) {
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (arr[mid].getTimestamp().isBefore(ts)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Index of the cursor's entry; everything before it is older. Unknown ids fall back to the timestamp.
+    private static int positionOf(Transaction[] arr, int n, TransactionCursor c) {
+        int i = firstAtOrAfter(arr, n, c.createdAt());
+        for (int j = i; j < n && arr[j].getTimestamp().equals(c.createdAt()); j++) {
+            if (arr[j].getId().equals(c.id())) return j;
+        }
+        return i;
+    }
+}
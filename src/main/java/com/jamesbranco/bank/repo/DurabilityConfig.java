@@ -0,0 +1,33 @@
+package com.jamesbranco.bank.repo;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Where and how {@link DurableStore} persists the in-memory store.
+ * A snapshot is taken once snapshotEveryBytes of log have been written since
+ * the last one (0 disables size-triggered snapshots), and at least every
+ * snapshotIntervalMs (0 disables timed snapshots).
+ */
+public record DurabilityConfig(Path directory,
+                               FsyncPolicy fsyncPolicy,
+                               long fsyncIntervalMs,
+                               long snapshotEveryBytes,
+                               long snapshotIntervalMs) {
+
+    public DurabilityConfig {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(fsyncPolicy);
+        if (fsyncIntervalMs <= 0) throw new IllegalArgumentException("fsyncIntervalMs must be positive");
+        if (snapshotEveryBytes < 0 || snapshotIntervalMs < 0)
+            throw new IllegalArgumentException("Snapshot thresholds must not be negative");
+    }
+
+    public static DurabilityConfig defaults(Path directory) {
+        return new DurabilityConfig(directory, FsyncPolicy.GROUP, 50, 256L * 1024 * 1024, 0);
+    }
+
+    public DurabilityConfig withFsyncPolicy(FsyncPolicy policy) {
+        return new DurabilityConfig(directory, policy, fsyncIntervalMs, snapshotEveryBytes, snapshotIntervalMs);
+    }
+}
@@ -0,0 +1,165 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.util.IdGenerator;
+import com.jamesbranco.bank.util.StripedLocks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * An {@link InMemoryStore} that survives restarts.
+ *
+ * Every mutation is appended to a write-ahead log; a snapshot of the whole
+ * store is taken periodically so recovery only has to replay the log written
+ * since. Opening a directory loads the newest snapshot, replays the log
+ * segments after it (truncating a torn record at the very end, which is what
+ * a crash mid-append leaves behind) and starts a fresh segment.
+ */
+public final class DurableStore implements AutoCloseable {
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{16})\\.log");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d{16})\\.snap");
+
+    private final DurabilityConfig config;
+    private final InMemoryStore store;
+    private final WriteAheadLog wal;
+    private final ScheduledExecutorService snapshotter;
+    private long lastSnapshotNanos = System.nanoTime(); // guarded by this
+
+    private DurableStore(DurabilityConfig config, InMemoryStore store, WriteAheadLog wal) {
+        this.config = config;
+        this.store = store;
+        this.wal = wal;
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "store-snapshotter");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(this::snapshotIfDue, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public static DurableStore open(DurabilityConfig config) {
+        return open(config, InMemoryStore::new);
+    }
+
+    // emptyStore chooses the store flavour, e.g. one backed by a MappedJournal.
+    public static DurableStore open(DurabilityConfig config, Supplier<InMemoryStore> emptyStore) {
+        Path dir = config.directory();
+        try {
+            Files.createDirectories(dir);
+            InMemoryStore store = emptyStore.get();
+            long first = 1;
+            List<Long> snapshots = numbered(dir, SNAPSHOT);
+            if (!snapshots.isEmpty()) {
+                first = snapshots.get(snapshots.size() - 1);
+                SnapshotFile.load(SnapshotFile.path(dir, first), store);
+            }
+            List<Long> segments = new ArrayList<>();
+            for (long s : numbered(dir, SEGMENT)) {
+                if (s >= first) segments.add(s);
+            }
+            for (int i = 0; i < segments.size(); i++) {
+                long s = segments.get(i);
+                long expected = i == 0 ? first : segments.get(i - 1) + 1;
+                if (s != expected) {
+                    throw new IOException("Write-ahead log segment " + expected + " is missing in " + dir);
+                }
+                WriteAheadLog.replay(WriteAheadLog.segmentPath(dir, s), store, i == segments.size() - 1);
+            }
+            for (var account : store.findAllAccounts()) {
+                IdGenerator.reserveAccountNumbersThrough(account.getAccountNumber());
+            }
+            long next = segments.isEmpty() ? first : segments.get(segments.size() - 1) + 1;
+            WriteAheadLog wal = new WriteAheadLog(dir, next, config.fsyncPolicy(), config.fsyncIntervalMs());
+            store.setMutationListener(wal);
+            return new DurableStore(config, store, wal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open durable store in " + dir, e);
+        }
+    }
+
+    public InMemoryStore store() {
+        return store;
+    }
+
+    /**
+     * Writes a snapshot and deletes the log segments and older snapshots it
+     * replaces. Writers are paused only for the log rotation and for capturing
+     * the (copy-free) image; the file itself is written without locks.
+     */
+    public synchronized void snapshot() {
+        StripedLocks locks = store.accountLocks();
+        long segment;
+        InMemoryStore.Image image;
+        try {
+            locks.lockEverything();
+            try {
+                segment = wal.rotate();
+                image = store.captureImage();
+            } finally {
+                locks.unlockEverything();
+            }
+            SnapshotFile.write(config.directory(), segment, image);
+            for (long s : numbered(config.directory(), SEGMENT)) {
+                if (s < segment) Files.deleteIfExists(WriteAheadLog.segmentPath(config.directory(), s));
+            }
+            for (long s : numbered(config.directory(), SNAPSHOT)) {
+                if (s < segment) Files.deleteIfExists(SnapshotFile.path(config.directory(), s));
+            }
+            lastSnapshotNanos = System.nanoTime();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        snapshotter.shutdownNow();
+        try {
+            snapshotter.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                wal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to close write-ahead log", e);
+            }
+        }
+    }
+
+    private synchronized void snapshotIfDue() {
+        boolean bySize = config.snapshotEveryBytes() > 0 && wal.bytesInSegment() >= config.snapshotEveryBytes();
+        boolean byTime = config.snapshotIntervalMs() > 0
+                && System.nanoTime() - lastSnapshotNanos >= TimeUnit.MILLISECONDS.toNanos(config.snapshotIntervalMs());
+        if (!bySize && !byTime) return;
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            System.err.println("Background snapshot failed: " + e.getMessage());
+        }
+    }
+
+    private static List<Long> numbered(Path dir, Pattern pattern) throws IOException {
+        List<Long> out = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(p -> {
+                Matcher m = pattern.matcher(p.getFileName().toString());
+                if (m.matches()) out.add(Long.parseLong(m.group(1)));
+            });
+        }
+        out.sort(null);
+        return out;
+    }
+}
@@ -0,0 +1,13 @@
+package com.jamesbranco.bank.repo;
+
+/**
+ * When the write-ahead log forces appended records to disk.
+ */
+public enum FsyncPolicy {
+    // Before the mutation's lock is released. Slowest, nothing acknowledged is ever lost.
+    EVERY_WRITE,
+    // Before the service call returns; concurrent callers share one fsync.
+    GROUP,
+    // Every fsyncIntervalMs in the background; a crash can lose the last interval.
+    INTERVAL
+}
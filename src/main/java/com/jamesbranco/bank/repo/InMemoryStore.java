@@ -2,8 +2,14 @@ package com.jamesbranco.bank.repo;
 
 import com.jamesbranco.bank.model.Account;
 import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.util.StripedLocks;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
 
 public class InMemoryStore {
 
@@ -19,10 +25,57 @@ public class InMemoryStore {
         }
     }
 
-    private final Map<String, UserRecord> usersById = new HashMap<>();
-    private final Map<String, UserRecord> usersByEmail = new HashMap<>();
-    private final Map<String, Account> accountsById = new HashMap<>();
-    private final Map<String, List<Transaction>> txByAccountId = new HashMap<>();
+    private final Map<String, UserRecord> usersById = new ConcurrentHashMap<>();
+    private final Map<String, UserRecord> usersByEmail = new ConcurrentHashMap<>();
+    private final Map<String, Account> accountsById = new ConcurrentHashMap<>();
+    // owner user id -> that user's accounts (immutable lists, replaced on change)
+    private final Map<String, List<Account>> accountsByOwner = new ConcurrentHashMap<>();
+    private final Map<String, TransactionJournal> txByAccountId = new ConcurrentHashMap<>();
+    private final BiFunction<String, Integer, TransactionJournal> newJournal; // (account id, initial capacity)
+    private final StripedLocks accountLocks = new StripedLocks();
+    private volatile MutationListener listener = MutationListener.NONE;
+
+    public InMemoryStore() {
+        this((id, capacity) -> new AccountJournal(capacity));
+    }
+
+    // Keeps transaction history off-heap in the given journal instead of as Transaction objects.
+    public InMemoryStore(MappedJournal mapped) {
+        this((id, capacity) -> mapped.forAccount(id));
+    }
+
+    // Keeps transaction history on the heap in packed primitive arrays instead of as Transaction objects.
+    public InMemoryStore(PackedJournal packed) {
+        this(packed::forAccount);
+    }
+
+    // Keeps recent history on the heap and seals older transactions into compressed files.
+    public InMemoryStore(TieredJournal tiered) {
+        this(tiered::forAccount);
+    }
+
+    private InMemoryStore(BiFunction<String, Integer, TransactionJournal> newJournal) {
+        this.newJournal = newJournal;
+    }
+
+    // Balance changes and their journal entries must happen under the account's stripe.
+    // Users and accounts are saved under the stripe of their own id, so holding every
+    // stripe freezes the whole store (see DurableStore snapshots).
+    public StripedLocks accountLocks() {
+        return accountLocks;
+    }
+
+    public void setMutationListener(MutationListener listener) {
+        this.listener = listener == null ? MutationListener.NONE : listener;
+    }
+
+    public MutationListener mutationListener() {
+        return listener;
+    }
+
+    public void awaitDurable() {
+        listener.awaitDurable();
+    }
 
     public Optional<UserRecord> findUserByEmail(String email) {
         return Optional.ofNullable(usersByEmail.get(email));
@@ -33,12 +86,42 @@ public class InMemoryStore {
     }
 
     public void saveUser(UserRecord u) {
-        usersById.put(u.id, u);
-        usersByEmail.put(u.email, u);
+        accountLocks.lock(u.id);
+        try {
+            UserRecord existing = usersByEmail.putIfAbsent(u.email, u);
+            if (existing != null && !existing.id.equals(u.id)) {
+                throw new IllegalArgumentException("Email already registered");
+            }
+            usersById.put(u.id, u);
+            usersByEmail.put(u.email, u);
+            listener.userSaved(u);
+        } finally {
+            accountLocks.unlock(u.id);
+        }
     }
 
     public void saveAccount(Account a) {
-        accountsById.put(a.getId(), a);
+        accountLocks.lock(a.getId());
+        try {
+            accountsById.put(a.getId(), a);
+            accountsByOwner.compute(a.getOwnerUserId(), (owner, list) -> withAccount(list, a));
+            listener.accountSaved(a);
+        } finally {
+            accountLocks.unlock(a.getId());
+        }
+    }
+
+    private static List<Account> withAccount(List<Account> list, Account a) {
+        if (list == null) return List.of(a);
+        Account[] out = list.toArray(new Account[list.size() + 1]);
+        for (int i = 0; i < list.size(); i++) {
+            if (out[i].getId().equals(a.getId())) {
+                out[i] = a;
+                return List.of(Arrays.copyOf(out, list.size()));
+            }
+        }
+        out[list.size()] = a;
+        return List.of(out);
     }
 
     public Optional<Account> findAccountById(String id) {
@@ -46,21 +129,49 @@ public class InMemoryStore {
     }
 
     public List<Account> findAccountsByUserId(String userId) {
-        List<Account> out = new ArrayList<>();
-        for (Account a : accountsById.values()) {
-            if (a.getOwnerUserId().equals(userId)) {
-                out.add(a);
-            }
-        }
-        return out;
+        return accountsByOwner.getOrDefault(userId, List.of());
     }
 
+    // Caller holds the account's stripe (and has already applied the balance change).
     public void appendTransaction(Transaction t) {
-        txByAccountId.computeIfAbsent(t.getAccountId(), k -> new ArrayList<>()).add(t);
+        Transaction stored = journalFor(t.getAccountId()).append(t);
+        listener.transactionAppended(stored);
+    }
+
+    // Caller holds every affected account's stripe. The entries reach the listener as one unit,
+    // so the log never holds half of a transfer or batch.
+    public void appendTransactions(List<Transaction> ts) {
+        List<Transaction> stored = new ArrayList<>(ts.size());
+        for (Transaction t : ts) stored.add(journalFor(t.getAccountId()).append(t));
+        listener.transactionsAppended(stored);
+    }
+
+    // Caller holds the account's stripe.
+    public void setFrozen(String accountId, boolean frozen) {
+        Account acct = accountsById.get(accountId);
+        if (acct == null) throw new IllegalArgumentException("Account not found");
+        if (frozen) acct.freeze();
+        else acct.unfreeze();
+        listener.frozenChanged(accountId, frozen);
+    }
+
+    private TransactionJournal journalFor(String accountId) {
+        return txByAccountId.computeIfAbsent(accountId, k -> newJournal.apply(k, 4));
     }
 
     public List<Transaction> getTransactions(String accountId) {
-        return Collections.unmodifiableList(txByAccountId.getOrDefault(accountId, List.of()));
+        TransactionJournal journal = txByAccountId.get(accountId);
+        return journal == null ? List.of() : journal.snapshot();
+    }
+
+    // Lazily walks the journal as it was when called; no copy is made.
+    public Stream<Transaction> streamTransactions(String accountId) {
+        return getTransactions(accountId).stream();
+    }
+
+    public TransactionPage getTransactionPage(String accountId, TransactionQuery query) {
+        TransactionJournal journal = txByAccountId.get(accountId);
+        return journal == null ? new TransactionPage(List.of(), null) : journal.page(query);
     }
 
     // NEW – used by admin features
@@ -72,4 +183,43 @@ public class InMemoryStore {
     public Collection<Account> findAllAccounts() {
         return Collections.unmodifiableCollection(accountsById.values());
     }
+
+    // --- recovery and snapshots (DurableStore) ---
+
+    record AccountImage(String id, String ownerUserId, String accountNumber, long balanceMinor, boolean frozen) {}
+
+    record Image(List<UserRecord> users, List<AccountImage> accounts, Map<String, List<Transaction>> journals) {}
+
+    // Caller holds every stripe. Journals are captured as prefix views, so this is O(users + accounts).
+    Image captureImage() {
+        List<AccountImage> accounts = new ArrayList<>(accountsById.size());
+        for (Account a : accountsById.values()) {
+            accounts.add(new AccountImage(a.getId(), a.getOwnerUserId(), a.getAccountNumber(),
+                    a.getBalanceMinor(), a.isFrozen()));
+        }
+        Map<String, List<Transaction>> journals = new HashMap<>(txByAccountId.size() * 2);
+        txByAccountId.forEach((id, j) -> journals.put(id, j.snapshot()));
+        return new Image(new ArrayList<>(usersById.values()), accounts, journals);
+    }
+
+    // Snapshot load: journal entry only, the balance is already in the account image.
+    void restoreTransaction(Transaction t) {
+        journalFor(t.getAccountId()).append(t);
+    }
+
+    // Log replay: journal entry plus the balance change it implies.
+    void replayTransaction(Transaction t) {
+        Account acct = accountsById.get(t.getAccountId());
+        if (acct != null) {
+            switch (t.getType()) {
+                case DEPOSIT, TRANSFER_IN -> acct.depositMinor(t.getAmountMinor());
+                case WITHDRAWAL, TRANSFER_OUT -> acct.withdrawMinor(t.getAmountMinor());
+            }
+        }
+        journalFor(t.getAccountId()).append(t);
+    }
+
+    void presizeJournal(String accountId, int capacity) {
+        txByAccountId.computeIfAbsent(accountId, k -> newJournal.apply(k, capacity));
+    }
 }
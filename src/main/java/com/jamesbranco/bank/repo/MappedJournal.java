@@ -0,0 +1,416 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionCursor;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.model.TransactionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Transaction journals kept outside the Java heap, in memory-mapped segment files.
+ *
+ * Every transaction is one fixed-width record (see the offsets below); notes
+ * live in separate length-prefixed note segments. Each record points at the
+ * previous record of the same account, and every CHECKPOINT_EVERY-th position
+ * of an account is remembered on the heap, so any position is at most that
+ * many hops away. Reading materializes a {@link Transaction} only for the
+ * element asked for; nothing per transaction stays on the heap.
+ *
+ * The files are scratch space and are recreated on open: durability stays
+ * with {@link DurableStore}. Transaction ids must be UUIDs (they are stored
+ * as two longs) and timestamps are kept to the microsecond.
+ *
+ * Timestamps are stored as given, even when one is older than the entry
+ * before it. Time-range and cursor searches go by each record's ORDER key
+ * instead, the newest timestamp so far along the chain, which never goes
+ * back; an out-of-order entry therefore falls in a range by the time of
+ * the entry it followed.
+ */
+public final class MappedJournal implements AutoCloseable {
+    static final int RECORD_BYTES = 64;
+    private static final int ACCOUNT = 0;   // int, interned account index
+    private static final int TYPE = 4;      // byte, TransactionType ordinal (3 bytes padding)
+    private static final int AMOUNT = 8;    // long, minor units
+    private static final int MICROS = 16;   // long, epoch microseconds
+    private static final int ID_HI = 24;    // long, UUID most significant bits
+    private static final int ID_LO = 32;    // long, UUID least significant bits
+    private static final int NOTE = 40;     // long, offset into the note segments, -1 for ""
+    private static final int PREV = 48;     // long, previous record of the same account, -1 for none
+    private static final int ORDER = 56;    // long, max MICROS up to this record: the search key
+
+    private static final int CHECKPOINT_EVERY = 256;
+    private static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int recordsPerSegment;
+    private final AtomicLong nextRecord = new AtomicLong();
+    private final Map<String, Chain> chains = new ConcurrentHashMap<>();
+    private final AtomicLong nextAccountIndex = new AtomicLong();
+
+    private volatile MappedByteBuffer[] recordSegments = new MappedByteBuffer[0]; // grown under this
+    private volatile MappedByteBuffer[] noteSegments = new MappedByteBuffer[0];   // grown under notesLock
+    private final Object notesLock = new Object();
+    private long noteEnd; // guarded by notesLock
+    private volatile boolean closed;
+
+    private MappedJournal(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.recordsPerSegment = segmentBytes / RECORD_BYTES;
+    }
+
+    public static MappedJournal open(Path directory) {
+        return open(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public static MappedJournal open(Path directory, int segmentBytes) {
+        if (segmentBytes < 4096) throw new IllegalArgumentException("segmentBytes must be at least 4096");
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    String name = p.getFileName().toString();
+                    if (name.startsWith("journal-") || name.startsWith("notes-")) Files.delete(p);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare mapped journal in " + directory, e);
+        }
+        return new MappedJournal(directory, segmentBytes);
+    }
+
+    public long recordCount() {
+        return nextRecord.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        recordSegments = new MappedByteBuffer[0];
+        noteSegments = new MappedByteBuffer[0];
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.startsWith("journal-") || name.startsWith("notes-")) Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to remove mapped journal files", e);
+        }
+    }
+
+    TransactionJournal forAccount(String accountId) {
+        return chains.computeIfAbsent(accountId, id -> new Chain(id, (int) nextAccountIndex.getAndIncrement()));
+    }
+
+    // --- segments ---
+
+    private MappedByteBuffer map(String prefix, int n) {
+        if (closed) throw new IllegalStateException("Mapped journal is closed");
+        Path file = directory.resolve(String.format("%s%06d.dat", prefix, n));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            buf.order(ByteOrder.nativeOrder());
+            return buf;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map " + file, e);
+        }
+    }
+
+    private MappedByteBuffer recordSegment(long record) {
+        int seg = (int) (record / recordsPerSegment);
+        MappedByteBuffer[] segs = recordSegments;
+        if (seg < segs.length) return segs[seg];
+        synchronized (this) {
+            segs = recordSegments;
+            while (seg >= segs.length) {
+                segs = Arrays.copyOf(segs, segs.length + 1);
+                segs[segs.length - 1] = map("journal-", segs.length - 1);
+                recordSegments = segs;
+            }
+            return segs[seg];
+        }
+    }
+
+    private int slot(long record) {
+        return (int) (record % recordsPerSegment) * RECORD_BYTES;
+    }
+
+    private long writeNote(String note) {
+        if (note.isEmpty()) return -1;
+        byte[] bytes = note.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length + 4 > segmentBytes) throw new IllegalArgumentException("Note is too long");
+        synchronized (notesLock) {
+            int seg = (int) (noteEnd / segmentBytes);
+            int off = (int) (noteEnd % segmentBytes);
+            if (off + 4 + bytes.length > segmentBytes) {
+                seg++;
+                off = 0;
+            }
+            MappedByteBuffer[] segs = noteSegments;
+            if (seg >= segs.length) {
+                segs = Arrays.copyOf(segs, seg + 1);
+                segs[seg] = map("notes-", seg);
+                noteSegments = segs;
+            }
+            segs[seg].putInt(off, bytes.length);
+            segs[seg].put(off + 4, bytes);
+            long at = (long) seg * segmentBytes + off;
+            noteEnd = at + 4 + bytes.length;
+            return at;
+        }
+    }
+
+    private String readNote(long at) {
+        if (at < 0) return "";
+        MappedByteBuffer seg = noteSegments[(int) (at / segmentBytes)];
+        int off = (int) (at % segmentBytes);
+        byte[] bytes = new byte[seg.getInt(off)];
+        seg.get(off + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long order(long record) {
+        return recordSegment(record).getLong(slot(record) + ORDER);
+    }
+
+    private long prev(long record) {
+        return recordSegment(record).getLong(slot(record) + PREV);
+    }
+
+    private boolean hasId(long record, UUID id) {
+        MappedByteBuffer seg = recordSegment(record);
+        int at = slot(record);
+        return seg.getLong(at + ID_HI) == id.getMostSignificantBits()
+                && seg.getLong(at + ID_LO) == id.getLeastSignificantBits();
+    }
+
+    private Transaction read(long record, String accountId) {
+        MappedByteBuffer seg = recordSegment(record);
+        int at = slot(record);
+        return new Transaction(
+                new UUID(seg.getLong(at + ID_HI), seg.getLong(at + ID_LO)).toString(),
+                accountId,
+                TYPES[seg.get(at + TYPE)],
+                seg.getLong(at + AMOUNT),
+                toInstant(seg.getLong(at + MICROS)),
+                readNote(seg.getLong(at + NOTE)));
+    }
+
+    private static Instant toInstant(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    private static long toMicros(Instant ts) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, ts);
+    }
+
+    private static UUID parseId(String id) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // --- per-account chain ---
+
+    // Newest record and count, published together so readers never see one without the other.
+    private record Tip(long head, int size) {}
+
+    private final class Chain implements TransactionJournal {
+        private final String accountId;
+        private final int accountIndex;
+        private volatile Tip tip = new Tip(-1, 0);
+        private volatile long[] checkpoints = new long[4]; // record of position k * CHECKPOINT_EVERY
+
+        Chain(String accountId, int accountIndex) {
+            this.accountId = accountId;
+            this.accountIndex = accountIndex;
+        }
+
+        @Override
+        public synchronized Transaction append(Transaction t) {
+            UUID id = parseId(t.getId());
+            if (id == null) throw new IllegalArgumentException("Mapped journal needs UUID transaction ids");
+            Tip current = tip;
+            long micros = toMicros(t.getTimestamp());
+            long order = current.head >= 0 ? Math.max(micros, order(current.head)) : micros;
+            long note = writeNote(t.getNote());
+
+            long record = nextRecord.getAndIncrement();
+            MappedByteBuffer seg = recordSegment(record);
+            int at = slot(record);
+            seg.putInt(at + ACCOUNT, accountIndex);
+            seg.put(at + TYPE, (byte) t.getType().ordinal());
+            seg.putLong(at + AMOUNT, t.getAmountMinor());
+            seg.putLong(at + MICROS, micros);
+            seg.putLong(at + ID_HI, id.getMostSignificantBits());
+            seg.putLong(at + ID_LO, id.getLeastSignificantBits());
+            seg.putLong(at + NOTE, note);
+            seg.putLong(at + PREV, current.head);
+            seg.putLong(at + ORDER, order);
+
+            int position = current.size;
+            if (position % CHECKPOINT_EVERY == 0) {
+                int k = position / CHECKPOINT_EVERY;
+                long[] cps = checkpoints;
+                if (k == cps.length) cps = Arrays.copyOf(cps, k * 2);
+                cps[k] = record;
+                checkpoints = cps;
+            }
+            tip = new Tip(record, position + 1);
+            return read(record, accountId);
+        }
+
+        @Override
+        public int size() {
+            return tip.size;
+        }
+
+        @Override
+        public List<Transaction> snapshot() {
+            return new View(tip, checkpoints);
+        }
+
+        @Override
+        public TransactionPage page(TransactionQuery q) {
+            View v = new View(tip, checkpoints);
+            int n = v.size();
+            int lo = q.from() == null ? 0 : v.firstAtOrAfter(toMicros(q.from()));
+            int hi = q.to() == null ? n : v.firstAtOrAfter(toMicros(q.to()));
+            if (q.after() != null) hi = Math.min(hi, v.positionOf(q.after()));
+            int start = Math.max(lo, hi - q.pageSize());
+            List<Transaction> out = new ArrayList<>(Math.max(0, hi - start));
+            if (hi > start) {
+                long record = v.recordAt(hi - 1);
+                for (int i = hi - 1; i >= start; i--) {
+                    out.add(read(record, accountId));
+                    record = prev(record);
+                }
+            }
+            TransactionCursor next = start > lo ? v.cursorAt(start) : null;
+            return new TransactionPage(Collections.unmodifiableList(out), next);
+        }
+
+        /** A fixed prefix of the chain; elements are read from the mapped records on access. */
+        private final class View extends AbstractList<Transaction> {
+            private final Tip tip;
+            private final long[] checkpoints;
+
+            View(Tip tip, long[] checkpoints) {
+                this.tip = tip;
+                this.checkpoints = checkpoints;
+            }
+
+            @Override
+            public int size() {
+                return tip.size;
+            }
+
+            @Override
+            public Transaction get(int index) {
+                Objects.checkIndex(index, tip.size);
+                return read(recordAt(index), accountId);
+            }
+
+            @Override
+            public Iterator<Transaction> iterator() {
+                return new Iterator<>() {
+                    private long[] block = new long[0];
+                    private int position;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < tip.size;
+                    }
+
+                    @Override
+                    public Transaction next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        int k = position / CHECKPOINT_EVERY;
+                        if (position % CHECKPOINT_EVERY == 0) block = block(k);
+                        return read(block[position++ - k * CHECKPOINT_EVERY], accountId);
+                    }
+                };
+            }
+
+            // Records of positions [k * CHECKPOINT_EVERY, next checkpoint or size), oldest first.
+            long[] block(int k) {
+                int first = k * CHECKPOINT_EVERY;
+                int end = Math.min(first + CHECKPOINT_EVERY, tip.size);
+                long[] out = new long[end - first];
+                long record = end < tip.size ? prev(checkpoints[k + 1]) : tip.head;
+                for (int i = out.length - 1; i >= 0; i--) {
+                    out[i] = record;
+                    record = prev(record);
+                }
+                return out;
+            }
+
+            long recordAt(int position) {
+                int k = position / CHECKPOINT_EVERY;
+                int end = Math.min((k + 1) * CHECKPOINT_EVERY, tip.size);
+                long record = end < tip.size ? prev(checkpoints[k + 1]) : tip.head;
+                for (int i = end - 1; i > position; i--) record = prev(record);
+                return record;
+            }
+
+            // Cursors carry the ORDER key rather than the timestamp, so positionOf finds the entry exactly.
+            TransactionCursor cursorAt(int position) {
+                long record = recordAt(position);
+                return new TransactionCursor(toInstant(order(record)), read(record, accountId).getId());
+            }
+
+            int firstAtOrAfter(long micros) {
+                int n = tip.size;
+                int blocks = (n + CHECKPOINT_EVERY - 1) / CHECKPOINT_EVERY;
+                int lo = 0, hi = blocks;
+                while (lo < hi) { // first block whose first entry is >= micros
+                    int mid = (lo + hi) >>> 1;
+                    if (order(checkpoints[mid]) < micros) lo = mid + 1;
+                    else hi = mid;
+                }
+                if (lo == 0) return 0;
+                long[] records = block(lo - 1);
+                int base = (lo - 1) * CHECKPOINT_EVERY;
+                for (int i = 0; i < records.length; i++) {
+                    if (order(records[i]) >= micros) return base + i;
+                }
+                return base + records.length;
+            }
+
+            // Index of the cursor's entry; everything before it is older. Unknown ids fall back to the timestamp.
+            int positionOf(TransactionCursor c) {
+                long micros = toMicros(c.createdAt());
+                int i = firstAtOrAfter(micros);
+                UUID id = parseId(c.id());
+                if (id == null) return i;
+                for (int j = i; j < tip.size; j++) {
+                    long record = recordAt(j);
+                    if (order(record) != micros) break;
+                    if (hasId(record, id)) return j;
+                }
+                return i;
+            }
+        }
+    }
+}
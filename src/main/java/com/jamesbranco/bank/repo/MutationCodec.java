@@ -0,0 +1,129 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Binary encoding of store mutations. A framed record is
+ * [int payload length][int CRC32C of payload][payload], and a payload is
+ * one type byte followed by that type's fields. A GROUP payload holds
+ * several TRANSACTION payloads that are replayed together or not at all.
+ */
+final class MutationCodec {
+    static final byte USER = 1;
+    static final byte ACCOUNT = 2;
+    static final byte TRANSACTION = 3;
+    static final byte FREEZE = 4;
+    static final byte GROUP = 5;
+
+    static final int HEADER_BYTES = 8;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private MutationCodec() {}
+
+    static void encodeUser(ByteBuffer b, InMemoryStore.UserRecord u) {
+        b.put(USER);
+        putString(b, u.id);
+        putString(b, u.name);
+        putString(b, u.email);
+        putString(b, u.passwordHash);
+        putString(b, u.role);
+    }
+
+    static void encodeAccount(ByteBuffer b, Account a) {
+        b.put(ACCOUNT);
+        putString(b, a.getId());
+        putString(b, a.getOwnerUserId());
+        putString(b, a.getAccountNumber());
+        b.putLong(a.getBalanceMinor());
+        b.put((byte) (a.isFrozen() ? 1 : 0));
+    }
+
+    static void encodeTransaction(ByteBuffer b, Transaction t) {
+        b.put(TRANSACTION);
+        putString(b, t.getId());
+        putString(b, t.getAccountId());
+        b.put((byte) t.getType().ordinal());
+        b.putLong(t.getAmountMinor());
+        b.putLong(t.getTimestamp().getEpochSecond());
+        b.putInt(t.getTimestamp().getNano());
+        putString(b, t.getNote());
+    }
+
+    static void encodeTransactions(ByteBuffer b, List<Transaction> ts) {
+        b.put(GROUP);
+        b.putInt(ts.size());
+        for (Transaction t : ts) encodeTransaction(b, t);
+    }
+
+    static void encodeFreeze(ByteBuffer b, String accountId, boolean frozen) {
+        b.put(FREEZE);
+        putString(b, accountId);
+        b.put((byte) (frozen ? 1 : 0));
+    }
+
+    // Applies one payload (positioned at its type byte) to a store that has no listener attached.
+    static void replay(ByteBuffer p, InMemoryStore store) {
+        byte type = p.get();
+        switch (type) {
+            case USER -> store.saveUser(new InMemoryStore.UserRecord(
+                    getString(p), getString(p), getString(p), getString(p), getString(p)));
+            case ACCOUNT -> store.saveAccount(new Account(
+                    getString(p), getString(p), getString(p), p.getLong(), p.get() != 0));
+            case TRANSACTION -> store.replayTransaction(decodeTransaction(p));
+            case FREEZE -> store.setFrozen(getString(p), p.get() != 0);
+            case GROUP -> {
+                for (int n = p.getInt(); n > 0; n--) replay(p, store);
+            }
+            default -> throw new IllegalStateException("Unknown log record type " + type);
+        }
+    }
+
+    static Transaction decodeTransaction(ByteBuffer p) {
+        String id = getString(p);
+        String accountId = getString(p);
+        TransactionType type = TYPES[p.get()];
+        long amount = p.getLong();
+        Instant ts = Instant.ofEpochSecond(p.getLong(), p.getInt());
+        return new Transaction(id, accountId, type, amount, ts, getString(p));
+    }
+
+    // Upper bound on the encoded size, so callers can make room before encoding.
+    static int maxSize(String... strings) {
+        int n = HEADER_BYTES + 64;
+        for (String s : strings) n += 4 + (s == null ? 0 : s.length() * 3);
+        return n;
+    }
+
+    static int maxSize(List<Transaction> ts) {
+        int n = HEADER_BYTES + 5;
+        for (Transaction t : ts) n += maxSize(t.getId(), t.getAccountId(), t.getNote());
+        return n;
+    }
+
+    // Length-prefixed UTF-8; length -1 means null.
+    private static void putString(ByteBuffer b, String s) {
+        if (s == null) {
+            b.putInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        b.putInt(bytes.length);
+        b.put(bytes);
+    }
+
+    private static String getString(ByteBuffer b) {
+        int n = b.getInt();
+        if (n < 0) return null;
+        String s = new String(b.array(), b.arrayOffset() + b.position(), n, StandardCharsets.UTF_8);
+        b.position(b.position() + n);
+        return s;
+    }
+}
@@ -0,0 +1,72 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Sees every change to an {@link InMemoryStore} in the order it was applied.
+ * Callbacks run inside the store's lock for the affected key, so a listener
+ * that records them (the write-ahead log) records a consistent history.
+ */
+public interface MutationListener {
+    MutationListener NONE = new MutationListener() {
+        @Override public void userSaved(InMemoryStore.UserRecord u) {}
+        @Override public void accountSaved(Account a) {}
+        @Override public void transactionAppended(Transaction t) {}
+        @Override public void frozenChanged(String accountId, boolean frozen) {}
+    };
+
+    void userSaved(InMemoryStore.UserRecord u);
+
+    void accountSaved(Account a);
+
+    // Balances are not logged separately: each transaction implies its balance change.
+    void transactionAppended(Transaction t);
+
+    // Entries that only make sense together (both legs of a transfer, a batch); recorded as one unit.
+    default void transactionsAppended(List<Transaction> ts) {
+        for (Transaction t : ts) transactionAppended(t);
+    }
+
+    void frozenChanged(String accountId, boolean frozen);
+
+    // Called by the service outside any lock; blocks until this thread's changes are durable.
+    default void awaitDurable() {}
+
+    // Calls first, then second (e.g. the write-ahead log, then replication).
+    static MutationListener both(MutationListener first, MutationListener second) {
+        return new MutationListener() {
+            @Override public void userSaved(InMemoryStore.UserRecord u) {
+                first.userSaved(u);
+                second.userSaved(u);
+            }
+
+            @Override public void accountSaved(Account a) {
+                first.accountSaved(a);
+                second.accountSaved(a);
+            }
+
+            @Override public void transactionAppended(Transaction t) {
+                first.transactionAppended(t);
+                second.transactionAppended(t);
+            }
+
+            @Override public void transactionsAppended(List<Transaction> ts) {
+                first.transactionsAppended(ts);
+                second.transactionsAppended(ts);
+            }
+
+            @Override public void frozenChanged(String accountId, boolean frozen) {
+                first.frozenChanged(accountId, frozen);
+                second.frozenChanged(accountId, frozen);
+            }
+
+            @Override public void awaitDurable() {
+                first.awaitDurable();
+                second.awaitDurable();
+            }
+        };
+    }
+}
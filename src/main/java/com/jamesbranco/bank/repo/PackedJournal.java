@@ -0,0 +1,229 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionCursor;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.model.TransactionType;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact heap journals: each account keeps its history as parallel
+ * primitive arrays instead of one {@link Transaction} object per entry.
+ *
+ * An entry is the id as two longs, the amount, the timestamp in epoch
+ * microseconds, the type ordinal and a note reference: 37 bytes, against
+ * roughly 250-300 for a Transaction with its own id, account id, Instant and
+ * note strings. Notes go through an intern table shared by all accounts and
+ * bounded at maxNotes distinct texts; notes that don't fit (or are long) are
+ * kept per account. Transactions are built only when a reader asks for one.
+ *
+ * Like {@link MappedJournal}, transaction ids must be UUIDs and timestamps
+ * are kept to the microsecond.
+ */
+public final class PackedJournal {
+    private static final int DEFAULT_MAX_NOTES = 65_536;
+    private static final int MAX_INTERNED_LENGTH = 64;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final int maxNotes;
+    private final Map<String, Integer> noteIndex = new ConcurrentHashMap<>();
+    private volatile String[] noteTexts = new String[64]; // grown under noteIndex
+    private int noteCount; // guarded by noteIndex
+
+    public PackedJournal() {
+        this(DEFAULT_MAX_NOTES);
+    }
+
+    public PackedJournal(int maxNotes) {
+        if (maxNotes <= 0) throw new IllegalArgumentException("maxNotes must be positive");
+        this.maxNotes = maxNotes;
+        intern("");
+    }
+
+    /** Distinct notes in the intern table. */
+    public int internedNotes() {
+        return noteIndex.size();
+    }
+
+    TransactionJournal forAccount(String accountId, int capacity) {
+        return new Journal(accountId, capacity);
+    }
+
+    // Index in the table, or -1 if the note isn't (and won't be) interned.
+    private int intern(String note) {
+        Integer i = noteIndex.get(note);
+        if (i != null) return i;
+        if (note.length() > MAX_INTERNED_LENGTH) return -1;
+        synchronized (noteIndex) {
+            i = noteIndex.get(note);
+            if (i != null) return i;
+            if (noteCount == maxNotes) return -1;
+            String[] texts = noteTexts;
+            if (noteCount == texts.length) texts = Arrays.copyOf(texts, Math.min(maxNotes, texts.length * 2));
+            texts[noteCount] = note;
+            noteTexts = texts;
+            noteIndex.put(note, noteCount); // readers reach the index only through a published entry
+            return noteCount++;
+        }
+    }
+
+    private static long toMicros(Instant ts) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, ts);
+    }
+
+    private static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    private static UUID parseId(String id) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // One account's arrays; replaced, never resized in place, so a reader's copy stays consistent.
+    private record Columns(long[] idHi, long[] idLo, long[] amounts, long[] micros, byte[] types, int[] notes,
+                           String[] ownNotes) {
+
+        static Columns ofCapacity(int n) {
+            return new Columns(new long[n], new long[n], new long[n], new long[n], new byte[n], new int[n], new String[0]);
+        }
+
+        int capacity() {
+            return types.length;
+        }
+
+        // Grows by half, not double: slack is most of the overhead for small histories.
+        Columns grown() {
+            int n = capacity() + Math.max(4, capacity() >> 1);
+            return new Columns(Arrays.copyOf(idHi, n), Arrays.copyOf(idLo, n), Arrays.copyOf(amounts, n),
+                    Arrays.copyOf(micros, n), Arrays.copyOf(types, n), Arrays.copyOf(notes, n), ownNotes);
+        }
+
+        Columns withOwnNotes(int n) {
+            return new Columns(idHi, idLo, amounts, micros, types, notes, Arrays.copyOf(ownNotes, n));
+        }
+    }
+
+    private final class Journal implements TransactionJournal {
+        private final String accountId;
+        // The columns are published before the size, so every index below a size a reader sees is filled in.
+        private volatile Columns columns;
+        private volatile int size;
+        private int ownNoteCount; // guarded by this
+
+        Journal(String accountId, int capacity) {
+            this.accountId = accountId;
+            this.columns = Columns.ofCapacity(Math.max(4, capacity));
+        }
+
+        @Override
+        public synchronized Transaction append(Transaction t) {
+            UUID id = parseId(t.getId());
+            if (id == null) throw new IllegalArgumentException("Packed journal needs UUID transaction ids");
+            int n = size;
+            Columns c = columns;
+            long micros = toMicros(t.getTimestamp());
+            if (n > 0) micros = Math.max(micros, c.micros[n - 1]); // wall clock stepped back; keep the journal ordered
+            if (n == c.capacity()) c = c.grown();
+            int note = intern(t.getNote());
+            if (note < 0) {
+                if (ownNoteCount == c.ownNotes.length) c = c.withOwnNotes(Math.max(4, ownNoteCount * 2));
+                c.ownNotes[ownNoteCount++] = t.getNote();
+                note = -ownNoteCount;
+            }
+            c.idHi[n] = id.getMostSignificantBits();
+            c.idLo[n] = id.getLeastSignificantBits();
+            c.amounts[n] = t.getAmountMinor();
+            c.micros[n] = micros;
+            c.types[n] = (byte) t.getType().ordinal();
+            c.notes[n] = note;
+            columns = c;
+            size = n + 1;
+            return read(c, n);
+        }
+
+        private Transaction read(Columns c, int i) {
+            int note = c.notes[i];
+            return new Transaction(new UUID(c.idHi[i], c.idLo[i]).toString(), accountId, TYPES[c.types[i]],
+                    c.amounts[i], fromMicros(c.micros[i]), note >= 0 ? noteTexts[note] : c.ownNotes[-note - 1]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public List<Transaction> snapshot() {
+            int n = size;
+            return new View(columns, n);
+        }
+
+        // O(log n + pageSize) no matter how deep the cursor is.
+        @Override
+        public TransactionPage page(TransactionQuery q) {
+            int n = size;
+            Columns c = columns;
+            int lo = q.from() == null ? 0 : firstAtOrAfter(c, n, toMicros(q.from()));
+            int hi = q.to() == null ? n : firstAtOrAfter(c, n, toMicros(q.to()));
+            if (q.after() != null) hi = Math.min(hi, positionOf(c, n, q.after()));
+            int start = Math.max(lo, hi - q.pageSize());
+            List<Transaction> out = new ArrayList<>(Math.max(0, hi - start));
+            for (int i = hi - 1; i >= start; i--) out.add(read(c, i));
+            TransactionCursor next = start > lo ? TransactionCursor.of(read(c, start)) : null;
+            return new TransactionPage(Collections.unmodifiableList(out), next);
+        }
+
+        private static int firstAtOrAfter(Columns c, int n, long micros) {
+            int lo = 0, hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (c.micros[mid] < micros) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // Index of the cursor's entry; everything before it is older. Unknown ids fall back to the timestamp.
+        private static int positionOf(Columns c, int n, TransactionCursor cursor) {
+            long micros = toMicros(cursor.createdAt());
+            int i = firstAtOrAfter(c, n, micros);
+            UUID id = parseId(cursor.id());
+            if (id == null) return i;
+            for (int j = i; j < n && c.micros[j] == micros; j++) {
+                if (c.idHi[j] == id.getMostSignificantBits() && c.idLo[j] == id.getLeastSignificantBits()) return j;
+            }
+            return i;
+        }
+
+        /** A fixed prefix of the journal; elements are built on access. */
+        private final class View extends AbstractList<Transaction> implements RandomAccess {
+            private final Columns columns;
+            private final int size;
+
+            View(Columns columns, int size) {
+                this.columns = columns;
+                this.size = size;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Transaction get(int index) {
+                Objects.checkIndex(index, size);
+                return read(columns, index);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.jamesbranco.bank.repo;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * How a {@link ReplicationPrimary} serves followers. socket is a Unix domain
+ * socket path. The primary keeps the last backlogRecords mutations in memory;
+ * a follower that asks for anything older gets a full snapshot first. Idle
+ * connections carry a heartbeat every heartbeatMillis so followers can tell
+ * how far behind they are.
+ */
+public record ReplicationConfig(Path socket, int backlogRecords, long heartbeatMillis) {
+
+    public ReplicationConfig {
+        Objects.requireNonNull(socket);
+        if (backlogRecords <= 0) throw new IllegalArgumentException("backlogRecords must be positive");
+        if (heartbeatMillis <= 0) throw new IllegalArgumentException("heartbeatMillis must be positive");
+    }
+
+    public static ReplicationConfig defaults(Path socket) {
+        return new ReplicationConfig(socket, 1 << 20, 100);
+    }
+
+    public ReplicationConfig withBacklogRecords(int records) {
+        return new ReplicationConfig(socket, records, heartbeatMillis);
+    }
+}
@@ -0,0 +1,163 @@
+package com.jamesbranco.bank.repo;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * A read replica of an {@link InMemoryStore} fed by a
+ * {@link ReplicationPrimary}. One thread reads the primary's stream and
+ * applies it to a local store; readers use {@link #store()} and never block
+ * it. A snapshot from the primary is loaded into a fresh store which then
+ * replaces the current one, so readers see either the old or the new state,
+ * never a half-loaded one. If the connection drops the follower reconnects
+ * and resumes from the last sequence it applied.
+ *
+ * Nothing may write to the replica's store except this class.
+ */
+public final class ReplicationFollower implements AutoCloseable {
+    private static final long RECONNECT_DELAY_MS = 200;
+
+    private final Path socket;
+    private final Thread reader;
+    private volatile InMemoryStore store = new InMemoryStore();
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+    private volatile boolean connected;
+    // written by the reader thread only
+    private volatile long epoch;
+    private volatile long applied;
+    private volatile long primaryHead;
+    private volatile long caughtUpAtMillis = System.currentTimeMillis();
+    private volatile long heardAtMillis = System.currentTimeMillis();
+    private volatile long snapshots;
+
+    private ReplicationFollower(Path socket) {
+        this.socket = socket;
+        this.reader = Thread.ofPlatform().name("replication-follower").daemon().unstarted(this::run);
+    }
+
+    public static ReplicationFollower start(Path socket) {
+        ReplicationFollower f = new ReplicationFollower(socket);
+        f.reader.start();
+        return f;
+    }
+
+    /** The replica's current state; replaced (not modified) when a snapshot is loaded. */
+    public InMemoryStore store() {
+        return store;
+    }
+
+    public ReplicationLag lag() {
+        long now = System.currentTimeMillis();
+        long behind = Math.max(0, primaryHead - applied);
+        return new ReplicationLag(connected, applied, behind,
+                behind == 0 ? 0 : now - caughtUpAtMillis, now - heardAtMillis, snapshots);
+    }
+
+    /**
+     * Waits until mutation {@code sequence} of the given primary run
+     * ({@link ReplicationPrimary#epoch()}) has been applied; false on timeout.
+     */
+    public synchronized boolean awaitApplied(long epoch, long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (this.epoch != epoch || applied < sequence) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return false;
+            wait(left);
+        }
+        return true;
+    }
+
+    private void run() {
+        while (!closed) {
+            try (SocketChannel ch = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                ch.connect(UnixDomainSocketAddress.of(socket));
+                channel = ch;
+                DataOutputStream out = new DataOutputStream(Channels.newOutputStream(ch));
+                out.writeLong(epoch);
+                out.writeLong(applied);
+                out.flush();
+                connected = true;
+                follow(new DataInputStream(new BufferedInputStream(Channels.newInputStream(ch), 1 << 16)));
+            } catch (IOException e) {
+                // primary not up yet, restarted or gone; retry below
+            } finally {
+                connected = false;
+            }
+            if (closed) break;
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow(DataInputStream in) throws IOException {
+        while (!closed) {
+            byte type = in.readByte();
+            heardAtMillis = System.currentTimeMillis();
+            switch (type) {
+                case ReplicationPrimary.RECORDS -> {
+                    long head = in.readLong();
+                    int n = in.readInt();
+                    InMemoryStore s = store;
+                    for (int i = 0; i < n; i++) {
+                        long seq = in.readLong();
+                        int len = in.readInt();
+                        if (len <= 0) {
+                            throw new IOException("Bad replication record length " + len);
+                        }
+                        byte[] payload = new byte[len];
+                        in.readFully(payload);
+                        if (seq != applied + 1) throw new IOException("Replication gap at " + seq + " after " + applied);
+                        MutationCodec.replay(ByteBuffer.wrap(payload), s);
+                        applied = seq;
+                    }
+                    advanced(head);
+                }
+                case ReplicationPrimary.SNAPSHOT -> {
+                    long newEpoch = in.readLong();
+                    long seq = in.readLong();
+                    InMemoryStore fresh = new InMemoryStore();
+                    SnapshotFile.load(in, fresh);
+                    store = fresh;
+                    epoch = newEpoch;
+                    applied = seq;
+                    snapshots++;
+                    advanced(seq);
+                }
+                case ReplicationPrimary.HEARTBEAT -> advanced(in.readLong());
+                default -> throw new IOException("Unknown replication message " + type);
+            }
+        }
+    }
+
+    private void advanced(long head) {
+        primaryHead = Math.max(head, applied);
+        if (applied >= primaryHead) caughtUpAtMillis = System.currentTimeMillis();
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        SocketChannel ch = channel;
+        try {
+            if (ch != null) ch.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+        reader.interrupt();
+    }
+}
@@ -0,0 +1,14 @@
+package com.jamesbranco.bank.repo;
+
+/**
+ * How far a {@link ReplicationFollower} is behind its primary: records it
+ * knows of but has not applied, how long since it last had everything
+ * (staleMillis), and how long since it last heard from the primary at all
+ * (silentMillis, which keeps growing if the primary is gone).
+ */
+public record ReplicationLag(boolean connected,
+                             long appliedSequence,
+                             long records,
+                             long staleMillis,
+                             long silentMillis,
+                             long snapshotsLoaded) {}
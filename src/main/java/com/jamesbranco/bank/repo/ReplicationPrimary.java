@@ -0,0 +1,263 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.util.StripedLocks;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ships an {@link InMemoryStore}'s mutations to read replicas
+ * ({@link ReplicationFollower}) in other processes on the same host.
+ *
+ * Attached as a second mutation listener, it numbers every change in the
+ * order the store applied it and keeps the most recent ones, encoded with
+ * {@link MutationCodec}, in a ring. Each follower connects over a Unix domain
+ * socket, says which primary run (epoch) and sequence number it has applied
+ * up to, and is streamed everything after that. A follower that is new,
+ * comes from another run, or has fallen out of the ring first gets a snapshot
+ * of the whole store, taken the way {@link DurableStore} takes one.
+ *
+ * Wire format, primary to follower: a type byte, then
+ * RECORDS [long head][int n] n * [long seq][int len][payload],
+ * SNAPSHOT [long epoch][long seq][image as in {@link SnapshotFile}], or
+ * HEARTBEAT [long head]. The follower opens with
+ * [long epoch][long applied seq].
+ */
+public final class ReplicationPrimary implements MutationListener, AutoCloseable {
+    static final byte RECORDS = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte HEARTBEAT = 3;
+
+    private static final int MAX_BATCH = 256;
+
+    private record Entry(long seq, byte[] payload) {}
+
+    private final InMemoryStore store;
+    private final ReplicationConfig config;
+    private final MutationListener previous;
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final Entry[] ring;
+    private final ServerSocketChannel server;
+    private final Set<SocketChannel> followers = ConcurrentHashMap.newKeySet();
+    private long head; // guarded by this
+    private volatile boolean closed;
+
+    private ReplicationPrimary(InMemoryStore store, ReplicationConfig config, ServerSocketChannel server) {
+        this.store = store;
+        this.config = config;
+        this.server = server;
+        this.ring = new Entry[config.backlogRecords()];
+        this.previous = store.mutationListener();
+    }
+
+    /** Starts listening on config.socket() and attaches to the store next to its current listener. */
+    public static ReplicationPrimary start(InMemoryStore store, ReplicationConfig config) {
+        ReplicationPrimary primary;
+        try {
+            Files.deleteIfExists(config.socket());
+            ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(config.socket()));
+            primary = new ReplicationPrimary(store, config, server);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen on " + config.socket(), e);
+        }
+        StripedLocks locks = store.accountLocks();
+        locks.lockEverything();
+        try {
+            store.setMutationListener(primary.previous == MutationListener.NONE
+                    ? primary : MutationListener.both(primary.previous, primary));
+        } finally {
+            locks.unlockEverything();
+        }
+        Thread.ofPlatform().name("replication-acceptor").daemon().start(primary::acceptLoop);
+        return primary;
+    }
+
+    /** Identifies this run; sequence numbers restart with every primary. */
+    public long epoch() {
+        return epoch;
+    }
+
+    /** Sequence number of the newest mutation. */
+    public synchronized long head() {
+        return head;
+    }
+
+    public int followerCount() {
+        return followers.size();
+    }
+
+    // --- MutationListener: runs under the store's stripe for the key, so per-key order is kept ---
+
+    @Override
+    public void userSaved(InMemoryStore.UserRecord u) {
+        ByteBuffer b = ByteBuffer.allocate(MutationCodec.maxSize(u.id, u.name, u.email, u.passwordHash, u.role));
+        MutationCodec.encodeUser(b, u);
+        append(b);
+    }
+
+    @Override
+    public void accountSaved(Account a) {
+        ByteBuffer b = ByteBuffer.allocate(MutationCodec.maxSize(a.getId(), a.getOwnerUserId(), a.getAccountNumber()));
+        MutationCodec.encodeAccount(b, a);
+        append(b);
+    }
+
+    @Override
+    public void transactionAppended(Transaction t) {
+        ByteBuffer b = ByteBuffer.allocate(MutationCodec.maxSize(t.getId(), t.getAccountId(), t.getNote()));
+        MutationCodec.encodeTransaction(b, t);
+        append(b);
+    }
+
+    @Override
+    public void transactionsAppended(List<Transaction> ts) {
+        ByteBuffer b = ByteBuffer.allocate(MutationCodec.maxSize(ts));
+        MutationCodec.encodeTransactions(b, ts);
+        append(b);
+    }
+
+    @Override
+    public void frozenChanged(String accountId, boolean frozen) {
+        ByteBuffer b = ByteBuffer.allocate(MutationCodec.maxSize(accountId));
+        MutationCodec.encodeFreeze(b, accountId, frozen);
+        append(b);
+    }
+
+    private void append(ByteBuffer b) {
+        byte[] payload = Arrays.copyOf(b.array(), b.position());
+        synchronized (this) {
+            long seq = ++head;
+            ring[(int) (seq % ring.length)] = new Entry(seq, payload);
+            notifyAll();
+        }
+    }
+
+    // Oldest sequence number still in the ring. Caller holds this.
+    private long oldestRetained() {
+        return Math.max(1, head - ring.length + 1);
+    }
+
+    // --- serving followers ---
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                SocketChannel ch = server.accept();
+                followers.add(ch);
+                Thread.ofPlatform().name("replication-sender").daemon().start(() -> serve(ch));
+            } catch (IOException e) {
+                if (!closed) System.err.println("Replication accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(SocketChannel ch) {
+        try (ch) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(ch));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16));
+            long followerEpoch = in.readLong();
+            long next = in.readLong() + 1;
+            boolean needSnapshot = followerEpoch != epoch;
+            List<Entry> batch = new ArrayList<>(MAX_BATCH);
+            while (!closed) {
+                long headNow;
+                synchronized (this) {
+                    if (!needSnapshot && next > head) wait(config.heartbeatMillis());
+                    if (!needSnapshot && next <= head) needSnapshot = next < oldestRetained();
+                    headNow = head;
+                    if (!needSnapshot) {
+                        for (long s = next; s <= head && batch.size() < MAX_BATCH; s++) {
+                            batch.add(ring[(int) (s % ring.length)]);
+                        }
+                    }
+                }
+                if (needSnapshot) {
+                    next = sendSnapshot(out) + 1;
+                    needSnapshot = false;
+                } else if (batch.isEmpty()) {
+                    out.writeByte(HEARTBEAT);
+                    out.writeLong(headNow);
+                } else {
+                    out.writeByte(RECORDS);
+                    out.writeLong(headNow);
+                    out.writeInt(batch.size());
+                    for (Entry e : batch) {
+                        out.writeLong(e.seq());
+                        out.writeInt(e.payload().length);
+                        out.write(e.payload());
+                    }
+                    next += batch.size();
+                    batch.clear();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // follower went away; it reconnects with its position
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(ch);
+        }
+    }
+
+    // Captures the store with writers paused (copy-free, as for DurableStore) and streams it unlocked.
+    private long sendSnapshot(DataOutputStream out) throws IOException {
+        StripedLocks locks = store.accountLocks();
+        long seq;
+        InMemoryStore.Image image;
+        locks.lockEverything();
+        try {
+            seq = head();
+            image = store.captureImage();
+        } finally {
+            locks.unlockEverything();
+        }
+        out.writeByte(SNAPSHOT);
+        out.writeLong(epoch);
+        out.writeLong(seq);
+        SnapshotFile.write(out, image);
+        return seq;
+    }
+
+    /** Stops serving and detaches from the store; followers keep what they have. */
+    @Override
+    public void close() {
+        closed = true;
+        StripedLocks locks = store.accountLocks();
+        locks.lockEverything();
+        try {
+            store.setMutationListener(previous);
+        } finally {
+            locks.unlockEverything();
+        }
+        try {
+            server.close();
+            for (SocketChannel ch : followers) ch.close();
+            Files.deleteIfExists(config.socket());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close replication socket", e);
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+}
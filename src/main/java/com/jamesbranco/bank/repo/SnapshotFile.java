@@ -0,0 +1,155 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionType;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A full image of the store. The file name carries the number of the first
+ * log segment that is not already reflected in it; the body ends with a
+ * CRC32C of everything before it. Files are written to a temporary name and
+ * renamed into place, so a snapshot either exists completely or not at all;
+ * the directory is synced after the rename.
+ * Strings are int-length-prefixed UTF-8, as in the log.
+ */
+final class SnapshotFile {
+    private static final long MAGIC = 0x424E4B534E415031L; // "BNKSNAP1"
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private SnapshotFile() {}
+
+    static Path path(Path directory, long segment) {
+        return directory.resolve(String.format("snapshot-%016d.snap", segment));
+    }
+
+    static void write(Path directory, long segment, InMemoryStore.Image image) throws IOException {
+        Path target = path(directory, segment);
+        Path tmp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(fos, 1 << 16);
+            write(buffered, image);
+            buffered.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // the rename must be durable before the caller deletes what the snapshot replaces
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    // Writes the image and its checksum; the caller buffers and flushes (replication streams it to a follower).
+    static void write(OutputStream os, InMemoryStore.Image image) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(os, new CRC32C());
+        DataOutputStream out = new DataOutputStream(checked);
+        out.writeLong(MAGIC);
+        out.writeInt(image.users().size());
+        for (InMemoryStore.UserRecord u : image.users()) {
+            writeString(out, u.id);
+            writeString(out, u.name);
+            writeString(out, u.email);
+            writeString(out, u.passwordHash);
+            writeString(out, u.role);
+        }
+        out.writeInt(image.accounts().size());
+        for (InMemoryStore.AccountImage a : image.accounts()) {
+            writeString(out, a.id());
+            writeString(out, a.ownerUserId());
+            writeString(out, a.accountNumber());
+            out.writeLong(a.balanceMinor());
+            out.writeBoolean(a.frozen());
+        }
+        out.writeInt(image.journals().size());
+        for (Map.Entry<String, List<Transaction>> e : image.journals().entrySet()) {
+            writeString(out, e.getKey());
+            out.writeInt(e.getValue().size());
+            for (Transaction t : e.getValue()) {
+                writeString(out, t.getId());
+                out.writeByte(t.getType().ordinal());
+                out.writeLong(t.getAmountMinor());
+                out.writeLong(t.getTimestamp().getEpochSecond());
+                out.writeInt(t.getTimestamp().getNano());
+                writeString(out, t.getNote());
+            }
+        }
+        out.flush();
+        new DataOutputStream(os).writeInt((int) checked.getChecksum().getValue());
+    }
+
+    // Loads into an empty store with no listener attached.
+    static void load(Path file, InMemoryStore store) throws IOException {
+        try (InputStream fis = Files.newInputStream(file)) {
+            load(new BufferedInputStream(fis, 1 << 16), store);
+        } catch (IOException e) {
+            throw new IOException("Failed to load snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Reads exactly one image and its checksum, so the stream can carry more after it.
+    static void load(InputStream is, InMemoryStore store) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(is, new CRC32C());
+        DataInputStream in = new DataInputStream(checked);
+        long magic = in.readLong();
+        if (magic != MAGIC) throw new IOException("Not a snapshot");
+        int users = in.readInt();
+        for (int i = 0; i < users; i++) {
+            store.saveUser(new InMemoryStore.UserRecord(
+                    readString(in), readString(in), readString(in), readString(in), readString(in)));
+        }
+        int accounts = in.readInt();
+        for (int i = 0; i < accounts; i++) {
+            store.saveAccount(new Account(
+                    readString(in), readString(in), readString(in), in.readLong(), in.readBoolean()));
+        }
+        int journals = in.readInt();
+        for (int i = 0; i < journals; i++) {
+            String accountId = readString(in);
+            int n = in.readInt();
+            store.presizeJournal(accountId, n);
+            for (int j = 0; j < n; j++) {
+                String id = readString(in);
+                TransactionType type = TYPES[in.readByte()];
+                long amount = in.readLong();
+                Instant ts = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                store.restoreTransaction(new Transaction(id, accountId, type, amount, ts, readString(in)));
+            }
+        }
+        int expected = (int) checked.getChecksum().getValue();
+        if (new DataInputStream(is).readInt() != expected) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+    }
+
+    // Length-prefixed UTF-8; length -1 means null.
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) return null;
+        byte[] bytes = new byte[n];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
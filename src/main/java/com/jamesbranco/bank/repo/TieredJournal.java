@@ -0,0 +1,433 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionCursor;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.model.TransactionType;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Transaction journals with a hot tier in memory and a cold tier on disk.
+ *
+ * Recent transactions (younger than the configured hot window) stay on the
+ * heap. A background job seals older ones, per account, into immutable
+ * deflate-compressed blocks appended to segment files; the block index
+ * (position, file offset and time range of every block) stays in memory,
+ * a few dozen bytes per block. Reads merge the tiers: positions before the
+ * account's first hot entry are served from cold blocks through a small LRU
+ * cache of decoded blocks, so paging through recent history never touches
+ * the disk and paging back through old history reads each block once.
+ *
+ * The job seals an account once it has a full block of old entries, or once
+ * its oldest entry is twice the window old, so quiet accounts don't produce
+ * tiny blocks. Like {@link MappedJournal}, the files are scratch space and
+ * are recreated on open: durability stays with {@link DurableStore}.
+ */
+public final class TieredJournal implements AutoCloseable {
+    private static final String PREFIX = "cold-";
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    public record Stats(long hotEntries, long coldEntries, long coldBlocks, int segments,
+                        long cacheHits, long cacheMisses) {}
+
+    // An immutable run of one account's transactions in a segment file.
+    private record ColdBlock(int segment, long offset, int length, int count, Instant first, Instant last) {}
+
+    private final TieringConfig config;
+    private final Map<String, Tiered> journals = new ConcurrentHashMap<>();
+    private final BlockCache cache;
+    private final ScheduledExecutorService sealer;
+    private volatile FileChannel[] segments = new FileChannel[0]; // grown under this
+    private long segmentEnd; // guarded by this
+    private volatile boolean closed;
+
+    private TieredJournal(TieringConfig config) {
+        this.config = config;
+        this.cache = new BlockCache(config.cacheBlocks());
+        this.sealer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-sealer");
+            t.setDaemon(true);
+            return t;
+        });
+        sealer.scheduleWithFixedDelay(this::sealIfDue, config.sealIntervalMs(), config.sealIntervalMs(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public static TieredJournal open(TieringConfig config) {
+        try {
+            Files.createDirectories(config.directory());
+            deleteSegments(config.directory());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare tiered journal in " + config.directory(), e);
+        }
+        return new TieredJournal(config);
+    }
+
+    TransactionJournal forAccount(String accountId, int capacity) {
+        return journals.computeIfAbsent(accountId, id -> new Tiered(id, capacity));
+    }
+
+    public Stats stats() {
+        long hot = 0, cold = 0, blocks = 0;
+        for (Tiered j : journals.values()) {
+            int n = j.size;
+            State s = j.state;
+            hot += Math.max(0, n - s.coldCount);
+            cold += s.coldCount;
+            blocks += s.blocks.length;
+        }
+        return new Stats(hot, cold, blocks, segments.length, cache.hits(), cache.misses());
+    }
+
+    /** Seals everything older than the hot window now, full block or not. Returns the entries sealed. */
+    public long sealNow() {
+        return seal(true);
+    }
+
+    private void sealIfDue() {
+        try {
+            seal(false);
+        } catch (RuntimeException e) {
+            System.err.println("Sealing cold transactions failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized long seal(boolean force) {
+        if (closed) return 0;
+        Instant cutoff = Instant.now().minus(config.hotWindow());
+        Instant overdue = cutoff.minus(config.hotWindow());
+        long sealed = 0;
+        IOException failure = null;
+        for (Tiered j : journals.values()) { // one account failing doesn't hold back the rest
+            try {
+                sealed += j.seal(cutoff, force ? null : overdue);
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw new UncheckedIOException("Failed to write cold segment", failure);
+        return sealed;
+    }
+
+    // Appends one compressed block to the current segment, rolling to a new file when it is full. Caller holds this.
+    private ColdBlock writeBlock(Transaction[] hot, int from, int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(count * 32);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            for (int i = from; i < from + count; i++) {
+                Transaction t = hot[i];
+                writeString(out, t.getId());
+                out.writeByte(t.getType().ordinal());
+                out.writeLong(t.getAmountMinor());
+                out.writeLong(t.getTimestamp().getEpochSecond());
+                out.writeInt(t.getTimestamp().getNano());
+                writeString(out, t.getNote());
+            }
+        }
+        FileChannel[] segs = segments;
+        if (segs.length == 0 || segmentEnd >= config.segmentBytes()) {
+            Path file = config.directory().resolve(String.format("%s%06d.seg", PREFIX, segs.length));
+            segs = Arrays.copyOf(segs, segs.length + 1);
+            segs[segs.length - 1] = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments = segs;
+            segmentEnd = 0;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+        long offset = segmentEnd;
+        while (buf.hasRemaining()) segs[segs.length - 1].write(buf, offset + buf.position());
+        segmentEnd += buf.limit();
+        return new ColdBlock(segs.length - 1, offset, buf.limit(), count,
+                hot[from].getTimestamp(), hot[from + count - 1].getTimestamp());
+    }
+
+    private Transaction[] load(ColdBlock block, String accountId) {
+        Transaction[] cached = cache.get(block);
+        if (cached != null) return cached;
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(block.length());
+            FileChannel ch = segments[block.segment()];
+            while (buf.hasRemaining()) {
+                if (ch.read(buf, block.offset() + buf.position()) < 0) throw new EOFException("Truncated cold block");
+            }
+            Transaction[] out = new Transaction[block.count()];
+            try (DataInputStream in = new DataInputStream(
+                    new InflaterInputStream(new ByteArrayInputStream(buf.array())))) {
+                for (int i = 0; i < out.length; i++) {
+                    String id = readString(in);
+                    TransactionType type = TYPES[in.readByte()];
+                    long amount = in.readLong();
+                    Instant ts = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                    out[i] = new Transaction(id, accountId, type, amount, ts, readString(in));
+                }
+            }
+            cache.put(block, out);
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read cold transactions of " + accountId, e);
+        }
+    }
+
+    // Length-prefixed UTF-8, as in the log and snapshots.
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        sealer.shutdownNow();
+        synchronized (this) {
+            try {
+                for (FileChannel ch : segments) ch.close();
+                segments = new FileChannel[0];
+                deleteSegments(config.directory());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to remove cold segments", e);
+            }
+        }
+    }
+
+    private static void deleteSegments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                if (p.getFileName().toString().startsWith(PREFIX)) Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    // Decoded cold blocks, least recently used evicted first.
+    private static final class BlockCache {
+        private final LinkedHashMap<ColdBlock, Transaction[]> blocks;
+        private long hits, misses; // guarded by this
+
+        BlockCache(int capacity) {
+            blocks = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ColdBlock, Transaction[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized Transaction[] get(ColdBlock b) {
+            Transaction[] t = blocks.get(b);
+            if (t == null) misses++;
+            else hits++;
+            return t;
+        }
+
+        synchronized void put(ColdBlock b, Transaction[] t) {
+            blocks.put(b, t);
+        }
+
+        synchronized long hits() {
+            return hits;
+        }
+
+        synchronized long misses() {
+            return misses;
+        }
+    }
+
+    // Positions [0, coldCount) are in blocks (blockStarts[i] is the first position of blocks[i]);
+    // position p >= coldCount is hot[hotStart + p - coldCount].
+    private record State(ColdBlock[] blocks, int[] blockStarts, int coldCount, Transaction[] hot, int hotStart) {}
+
+    private final class Tiered implements TransactionJournal {
+        private final String accountId;
+        // The state is published before the size, so every position below a size a reader sees is filled in.
+        private volatile State state;
+        private volatile int size;
+        private Instant last; // guarded by this
+
+        Tiered(String accountId, int capacity) {
+            this.accountId = accountId;
+            this.state = new State(new ColdBlock[0], new int[0], 0, new Transaction[Math.max(4, capacity)], 0);
+        }
+
+        @Override
+        public synchronized Transaction append(Transaction t) {
+            if (last != null && t.getTimestamp().isBefore(last)) {
+                // wall clock stepped back; keep the journal ordered
+                t = new Transaction(t.getId(), t.getAccountId(), t.getType(), t.getAmountMinor(), last, t.getNote());
+            }
+            int n = size;
+            State s = state;
+            int live = n - s.coldCount;
+            if (s.hotStart + live == s.hot.length) {
+                Transaction[] arr = new Transaction[Math.max(4, live * 2)];
+                System.arraycopy(s.hot, s.hotStart, arr, 0, live);
+                s = new State(s.blocks, s.blockStarts, s.coldCount, arr, 0);
+                state = s;
+            }
+            s.hot[s.hotStart + live] = t;
+            last = t.getTimestamp();
+            size = n + 1;
+            return t;
+        }
+
+        // Called with the TieredJournal's lock held, so only one seal runs at a time; appends carry on meanwhile.
+        int seal(Instant cutoff, Instant overdue) throws IOException {
+            int n = size;
+            State s = state;
+            int live = n - s.coldCount;
+            int k = hotBefore(s, live, cutoff);
+            if (k == 0) return 0;
+            if (overdue != null && k < config.blockEntries() && !s.hot[s.hotStart].getTimestamp().isBefore(overdue)) {
+                return 0;
+            }
+            List<ColdBlock> written = new ArrayList<>();
+            for (int i = 0; i < k; i += config.blockEntries()) {
+                written.add(writeBlock(s.hot, s.hotStart + i, Math.min(config.blockEntries(), k - i)));
+            }
+            synchronized (this) {
+                State cur = state;
+                int remaining = size - cur.coldCount - k;
+                Transaction[] arr = new Transaction[Math.max(4, remaining + remaining / 2)];
+                System.arraycopy(cur.hot, cur.hotStart + k, arr, 0, remaining);
+                ColdBlock[] blocks = Arrays.copyOf(cur.blocks, cur.blocks.length + written.size());
+                int[] starts = Arrays.copyOf(cur.blockStarts, blocks.length);
+                int position = cur.coldCount;
+                for (int i = 0; i < written.size(); i++) {
+                    blocks[cur.blocks.length + i] = written.get(i);
+                    starts[cur.blocks.length + i] = position;
+                    position += written.get(i).count();
+                }
+                state = new State(blocks, starts, position, arr, 0);
+            }
+            return k;
+        }
+
+        // Number of hot entries older than the cutoff.
+        private int hotBefore(State s, int live, Instant cutoff) {
+            int lo = 0, hi = live;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (s.hot[s.hotStart + mid].getTimestamp().isBefore(cutoff)) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        private Transaction entry(State s, int position) {
+            if (position >= s.coldCount) return s.hot[s.hotStart + position - s.coldCount];
+            int b = blockAt(s, position);
+            return load(s.blocks[b], accountId)[position - s.blockStarts[b]];
+        }
+
+        private static int blockAt(State s, int position) {
+            int i = Arrays.binarySearch(s.blockStarts, position);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public List<Transaction> snapshot() {
+            int n = size;
+            return new View(state, n);
+        }
+
+        // Recent pages come from the hot tier; older ones load one cold block per page or so.
+        @Override
+        public TransactionPage page(TransactionQuery q) {
+            int n = size;
+            State s = state;
+            int lo = q.from() == null ? 0 : firstAtOrAfter(s, n, q.from());
+            int hi = q.to() == null ? n : firstAtOrAfter(s, n, q.to());
+            if (q.after() != null) hi = Math.min(hi, positionOf(s, n, q.after()));
+            int start = Math.max(lo, hi - q.pageSize());
+            List<Transaction> out = new ArrayList<>(Math.max(0, hi - start));
+            for (int i = hi - 1; i >= start; i--) out.add(entry(s, i));
+            TransactionCursor next = start > lo ? TransactionCursor.of(entry(s, start)) : null;
+            return new TransactionPage(Collections.unmodifiableList(out), next);
+        }
+
+        private int firstAtOrAfter(State s, int n, Instant ts) {
+            int cold = Math.min(n, s.coldCount);
+            if (n > cold && s.hot[s.hotStart].getTimestamp().isBefore(ts)) {
+                int lo = cold + 1, hi = n;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (entry(s, mid).getTimestamp().isBefore(ts)) lo = mid + 1;
+                    else hi = mid;
+                }
+                return lo;
+            }
+            // In the cold tier: the first block ending at or after ts holds the answer.
+            int lo = 0, hi = s.blocks.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (s.blocks[mid].last().isBefore(ts)) lo = mid + 1;
+                else hi = mid;
+            }
+            if (lo == s.blocks.length) return cold;
+            Transaction[] block = load(s.blocks[lo], accountId);
+            int i = 0;
+            while (block[i].getTimestamp().isBefore(ts)) i++;
+            return Math.min(cold, s.blockStarts[lo] + i);
+        }
+
+        // Index of the cursor's entry; everything before it is older. Unknown ids fall back to the timestamp.
+        private int positionOf(State s, int n, TransactionCursor c) {
+            int i = firstAtOrAfter(s, n, c.createdAt());
+            for (int j = i; j < n; j++) {
+                Transaction t = entry(s, j);
+                if (!t.getTimestamp().equals(c.createdAt())) break;
+                if (t.getId().equals(c.id())) return j;
+            }
+            return i;
+        }
+
+        /** A fixed prefix of the journal across both tiers. */
+        private final class View extends AbstractList<Transaction> implements RandomAccess {
+            private final State state;
+            private final int size;
+
+            View(State state, int size) {
+                this.state = state;
+                this.size = size;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Transaction get(int index) {
+                Objects.checkIndex(index, size);
+                return entry(state, index);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.jamesbranco.bank.repo;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * How a {@link TieredJournal} splits history between memory and disk.
+ * Transactions older than hotWindow are sealed into compressed blocks of up
+ * to blockEntries in segment files under directory, checked every
+ * sealIntervalMs; a segment file is closed once it passes segmentBytes.
+ * Up to cacheBlocks decoded cold blocks are kept for reads.
+ */
+public record TieringConfig(Path directory,
+                            Duration hotWindow,
+                            long sealIntervalMs,
+                            int blockEntries,
+                            long segmentBytes,
+                            int cacheBlocks) {
+
+    public TieringConfig {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(hotWindow);
+        if (hotWindow.isNegative()) throw new IllegalArgumentException("hotWindow must not be negative");
+        if (sealIntervalMs <= 0) throw new IllegalArgumentException("sealIntervalMs must be positive");
+        if (blockEntries <= 0) throw new IllegalArgumentException("blockEntries must be positive");
+        if (segmentBytes <= 0) throw new IllegalArgumentException("segmentBytes must be positive");
+        if (cacheBlocks <= 0) throw new IllegalArgumentException("cacheBlocks must be positive");
+    }
+
+    public static TieringConfig defaults(Path directory) {
+        return new TieringConfig(directory, Duration.ofDays(30), 60_000, 256, 64L << 20, 1_024);
+    }
+
+    public TieringConfig withHotWindow(Duration window) {
+        return new TieringConfig(directory, window, sealIntervalMs, blockEntries, segmentBytes, cacheBlocks);
+    }
+
+    public TieringConfig withBlockEntries(int entries) {
+        return new TieringConfig(directory, hotWindow, sealIntervalMs, entries, segmentBytes, cacheBlocks);
+    }
+}
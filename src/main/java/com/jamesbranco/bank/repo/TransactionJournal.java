@@ -0,0 +1,26 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+
+import java.util.List;
+
+/**
+ * One account's append-only history. Appends happen under the account's
+ * stripe; reads never lock and see a stable prefix. Timestamps never go
+ * backwards, so pages can be found by binary search.
+ */
+interface TransactionJournal {
+
+    // Returns the entry as stored (its timestamp may have been clamped or truncated).
+    Transaction append(Transaction t);
+
+    int size();
+
+    // Everything appended so far, oldest first, as an unmodifiable view.
+    List<Transaction> snapshot();
+
+    // Newest first.
+    TransactionPage page(TransactionQuery q);
+}
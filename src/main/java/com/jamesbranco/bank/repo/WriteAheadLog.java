@@ -0,0 +1,313 @@
+package com.jamesbranco.bank.repo;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, checksummed log of store mutations in numbered segment files.
+ *
+ * Records are encoded into an in-memory buffer under the log's monitor.
+ * Making them durable uses leader-based group commit: the first thread that
+ * needs a flush swaps buffers, writes and forces outside the monitor, and
+ * everyone whose records were in that buffer is released together.
+ */
+final class WriteAheadLog implements MutationListener, AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[1]);
+    private final CRC32C crc = new CRC32C();
+    private final ScheduledExecutorService intervalFlusher;
+
+    // guarded by this
+    private FileChannel channel;
+    private long segment;
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appendedPos;
+    private long durablePos;
+    private long bytesInSegment;
+    private boolean flushing;
+    private IOException failure;
+
+    WriteAheadLog(Path directory, long segment, FsyncPolicy policy, long fsyncIntervalMs) throws IOException {
+        this.directory = directory;
+        this.policy = policy;
+        this.segment = segment;
+        this.channel = openSegment(directory, segment);
+        if (policy == FsyncPolicy.INTERVAL) {
+            intervalFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "wal-fsync");
+                t.setDaemon(true);
+                return t;
+            });
+            intervalFlusher.scheduleWithFixedDelay(this::flushQuietly, fsyncIntervalMs, fsyncIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            intervalFlusher = null;
+        }
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("wal-%016d.log", segment));
+    }
+
+    private static FileChannel openSegment(Path directory, long segment) throws IOException {
+        return FileChannel.open(segmentPath(directory, segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    // --- MutationListener ---
+
+    @Override
+    public void userSaved(InMemoryStore.UserRecord u) {
+        append(MutationCodec.maxSize(u.id, u.name, u.email, u.passwordHash, u.role),
+                b -> MutationCodec.encodeUser(b, u));
+    }
+
+    @Override
+    public void accountSaved(Account a) {
+        append(MutationCodec.maxSize(a.getId(), a.getOwnerUserId(), a.getAccountNumber()),
+                b -> MutationCodec.encodeAccount(b, a));
+    }
+
+    @Override
+    public void transactionAppended(Transaction t) {
+        append(MutationCodec.maxSize(t.getId(), t.getAccountId(), t.getNote()),
+                b -> MutationCodec.encodeTransaction(b, t));
+    }
+
+    @Override
+    public void transactionsAppended(List<Transaction> ts) {
+        append(MutationCodec.maxSize(ts), b -> MutationCodec.encodeTransactions(b, ts));
+    }
+
+    @Override
+    public void frozenChanged(String accountId, boolean frozen) {
+        append(MutationCodec.maxSize(accountId), b -> MutationCodec.encodeFreeze(b, accountId, frozen));
+    }
+
+    @Override
+    public void awaitDurable() {
+        if (policy == FsyncPolicy.GROUP) awaitPosition(lastAppended.get()[0]);
+    }
+
+    // --- log ---
+
+    synchronized long bytesInSegment() {
+        return bytesInSegment;
+    }
+
+    private void append(int maxSize, Consumer<ByteBuffer> encoder) {
+        long pos;
+        synchronized (this) {
+            if (failure != null) throw new UncheckedIOException("Write-ahead log is unusable", failure);
+            try {
+                makeRoom(maxSize);
+            } catch (IOException e) {
+                failure = e;
+                throw new UncheckedIOException("Write-ahead log write failed", e);
+            }
+            int start = active.position();
+            active.position(start + MutationCodec.HEADER_BYTES);
+            encoder.accept(active);
+            int end = active.position();
+            int len = end - start - MutationCodec.HEADER_BYTES;
+            crc.reset();
+            crc.update(active.array(), start + MutationCodec.HEADER_BYTES, len);
+            active.putInt(start, len);
+            active.putInt(start + 4, (int) crc.getValue());
+            appendedPos += end - start;
+            bytesInSegment += end - start;
+            pos = appendedPos;
+        }
+        lastAppended.get()[0] = pos;
+        if (policy == FsyncPolicy.EVERY_WRITE) awaitPosition(pos);
+    }
+
+    // Holding the monitor. Writes the buffer out early if nobody is flushing, else grows it.
+    private void makeRoom(int maxSize) throws IOException {
+        if (active.remaining() >= maxSize) return;
+        if (!flushing) {
+            active.flip();
+            while (active.hasRemaining()) channel.write(active);
+            active.clear();
+        }
+        if (active.remaining() < maxSize) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(active.capacity() * 2, active.position() + maxSize));
+            active.flip();
+            bigger.put(active);
+            active = bigger;
+        }
+    }
+
+    private void awaitPosition(long pos) {
+        ByteBuffer toWrite;
+        FileChannel ch;
+        long target;
+        synchronized (this) {
+            while (true) {
+                if (durablePos >= pos) return;
+                if (failure != null) throw new UncheckedIOException("Write-ahead log is unusable", failure);
+                if (!flushing) break;
+                waitQuietly();
+            }
+            flushing = true;
+            toWrite = active;
+            active = spare != null ? spare : ByteBuffer.allocate(BUFFER_SIZE);
+            spare = null;
+            target = appendedPos;
+            ch = channel;
+        }
+        IOException error = null;
+        try {
+            toWrite.flip();
+            while (toWrite.hasRemaining()) ch.write(toWrite);
+            ch.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            toWrite.clear();
+            spare = toWrite;
+            flushing = false;
+            if (error == null) durablePos = Math.max(durablePos, target);
+            else failure = error;
+            notifyAll();
+        }
+        if (error != null) throw new UncheckedIOException("Write-ahead log fsync failed", error);
+    }
+
+    private void flushQuietly() {
+        long pos;
+        synchronized (this) {
+            pos = appendedPos;
+        }
+        try {
+            awaitPosition(pos);
+        } catch (UncheckedIOException e) {
+            System.err.println("WAL background fsync failed: " + e.getMessage());
+        }
+    }
+
+    // Seals the current segment (everything in it forced to disk) and starts the next one.
+    synchronized long rotate() throws IOException {
+        while (flushing) waitQuietly();
+        if (failure != null) throw failure;
+        active.flip();
+        while (active.hasRemaining()) channel.write(active);
+        active.clear();
+        channel.force(false);
+        durablePos = appendedPos;
+        channel.close();
+        segment++;
+        channel = openSegment(directory, segment);
+        bytesInSegment = 0;
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (intervalFlusher != null) intervalFlusher.shutdownNow();
+        synchronized (this) {
+            while (flushing) waitQuietly();
+            try {
+                if (failure == null) {
+                    active.flip();
+                    while (active.hasRemaining()) channel.write(active);
+                    active.clear();
+                    channel.force(false);
+                    durablePos = appendedPos;
+                }
+            } finally {
+                channel.close();
+                failure = new IOException("Write-ahead log is closed");
+            }
+        }
+    }
+
+    private void waitQuietly() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the write-ahead log", e);
+        }
+    }
+
+    // --- recovery ---
+
+    /**
+     * Replays one segment into the store and returns the number of records applied.
+     * A torn or corrupt record ends the replay; in the newest segment the file is
+     * truncated there (a crash mid-append), anywhere else it is an error.
+     */
+    static long replay(Path file, InMemoryStore store, boolean newestSegment) throws IOException {
+        long records = 0;
+        long good = 0;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(8 << 20);
+            buf.flip();
+            CRC32C crc = new CRC32C();
+            while (true) {
+                if (buf.remaining() < MutationCodec.HEADER_BYTES && !fill(ch, buf)) break;
+                if (buf.remaining() < MutationCodec.HEADER_BYTES) break;
+                int start = buf.position();
+                int len = buf.getInt(start);
+                int sum = buf.getInt(start + 4);
+                // Records have no size cap, so only a length running past the end of the file marks a torn tail.
+                if (len <= 0 || len > ch.size() - good - MutationCodec.HEADER_BYTES) break;
+                if (MutationCodec.HEADER_BYTES + len > buf.capacity()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(MutationCodec.HEADER_BYTES + len);
+                    bigger.put(buf);
+                    buf = bigger.flip();
+                }
+                boolean torn = false;
+                while (buf.remaining() < MutationCodec.HEADER_BYTES + len) {
+                    if (!fill(ch, buf)) {
+                        torn = true;
+                        break;
+                    }
+                }
+                if (torn) break;
+                start = buf.position();
+                crc.reset();
+                crc.update(buf.array(), buf.arrayOffset() + start + MutationCodec.HEADER_BYTES, len);
+                if ((int) crc.getValue() != sum) break;
+                MutationCodec.replay(buf.slice(start + MutationCodec.HEADER_BYTES, len), store);
+                buf.position(start + MutationCodec.HEADER_BYTES + len);
+                good += MutationCodec.HEADER_BYTES + len;
+                records++;
+            }
+            if (good < ch.size()) {
+                if (!newestSegment) {
+                    throw new IOException("Corrupt write-ahead log " + file + " at offset " + good);
+                }
+                ch.truncate(good);
+                ch.force(true);
+            }
+        }
+        return records;
+    }
+
+    private static boolean fill(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.compact();
+        int n = ch.read(buf);
+        buf.flip();
+        return n > 0;
+    }
+}
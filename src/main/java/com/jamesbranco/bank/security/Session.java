@@ -0,0 +1,8 @@
+package com.jamesbranco.bank.security;
+
+import com.jamesbranco.bank.model.Role;
+
+import java.time.Instant;
+
+/** A logged-in user; token is what the client presents on later requests. */
+public record Session(String token, String userId, Role role, Instant expiresAt) {}
@@ -0,0 +1,32 @@
+package com.jamesbranco.bank.security;
+
+import java.util.Properties;
+
+/**
+ * Session settings, read from the session.* keys of application.properties.
+ * Sessions last ttlSeconds from login; beyond maxSessions the oldest are
+ * evicted first.
+ */
+public record SessionConfig(long ttlSeconds, int maxSessions) {
+
+    public SessionConfig {
+        if (ttlSeconds <= 0) throw new IllegalArgumentException("session.ttlSeconds must be positive");
+        if (maxSessions <= 0) throw new IllegalArgumentException("session.maxSessions must be positive");
+    }
+
+    public static SessionConfig defaults() {
+        return new SessionConfig(1_800, 100_000);
+    }
+
+    public static SessionConfig from(Properties props) {
+        SessionConfig d = defaults();
+        return new SessionConfig(
+                longProp(props, "session.ttlSeconds", d.ttlSeconds),
+                (int) longProp(props, "session.maxSessions", d.maxSessions));
+    }
+
+    private static long longProp(Properties props, String key, long def) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? def : Long.parseLong(v.trim());
+    }
+}
@@ -0,0 +1,146 @@
+package com.jamesbranco.bank.security;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.service.Banking;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Opaque session tokens over any {@link Banking} backend.
+ *
+ * The password is checked and the role looked up once, at login; after that
+ * {@link #resolve} answers from memory. Tokens are 256 random bits. Every
+ * session gets the same TTL, so issue order is also expiry order: one queue
+ * gives both the oldest session to evict when the cache is full and the
+ * expired ones to sweep, which happens a few entries at a time on login.
+ */
+public final class SessionManager {
+    private static final int SWEEP_PER_LOGIN = 8;
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final Banking bank;
+    private final SessionConfig config;
+    private final LongSupplier clockMillis;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> tokensByUser = new ConcurrentHashMap<>(); // sets guarded by compute
+    private final ConcurrentLinkedQueue<Session> byExpiry = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder issued = new LongAdder(), hits = new LongAdder(), misses = new LongAdder(),
+            expired = new LongAdder(), evicted = new LongAdder(), revoked = new LongAdder();
+
+    public SessionManager(Banking bank, SessionConfig config) {
+        this(bank, config, System::currentTimeMillis);
+    }
+
+    /** clockMillis replaces System.currentTimeMillis, e.g. in tests. */
+    public SessionManager(Banking bank, SessionConfig config, LongSupplier clockMillis) {
+        this.bank = bank;
+        this.config = config;
+        this.clockMillis = clockMillis;
+    }
+
+    /** Checks the credentials and starts a session; throws IllegalArgumentException("Invalid credentials"). */
+    public Session login(String email, String plaintextPassword) {
+        String userId = bank.authenticate(email, plaintextPassword);
+        Role role = bank.getUserRole(userId);
+        long now = clockMillis.getAsLong();
+        sweep(now, SWEEP_PER_LOGIN);
+        Session s = new Session(newToken(), userId, role, Instant.ofEpochMilli(now + config.ttlSeconds() * 1_000));
+        sessions.put(s.token(), s);
+        tokensByUser.compute(userId, (k, tokens) -> {
+            if (tokens == null) tokens = new HashSet<>();
+            tokens.add(s.token());
+            return tokens;
+        });
+        byExpiry.add(s);
+        issued.increment();
+        if (active.incrementAndGet() > config.maxSessions()) evictOldest();
+        return s;
+    }
+
+    /** The live session for a token, or empty if it is unknown, expired or revoked. */
+    public Optional<Session> resolve(String token) {
+        Session s = token == null ? null : sessions.get(token);
+        if (s == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (s.expiresAt().toEpochMilli() <= clockMillis.getAsLong()) {
+            if (remove(s)) expired.increment();
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(s);
+    }
+
+    public void logout(String token) {
+        Session s = token == null ? null : sessions.get(token);
+        if (s != null && remove(s)) revoked.increment();
+    }
+
+    /** Ends every session of a user, e.g. after a password change or when an admin locks them out. */
+    public int revokeUser(String userId) {
+        Set<String> tokens = tokensByUser.remove(userId);
+        if (tokens == null) return 0;
+        int n = 0;
+        for (String token : tokens) {
+            Session s = sessions.get(token);
+            if (s != null && remove(s)) n++;
+        }
+        revoked.add(n);
+        return n;
+    }
+
+    public SessionStats stats() {
+        return new SessionStats(active.get(), issued.sum(), hits.sum(), misses.sum(), expired.sum(),
+                evicted.sum(), revoked.sum());
+    }
+
+    // Drops expired sessions from the head of the queue, and queue entries whose session is already gone.
+    private void sweep(long now, int limit) {
+        for (int i = 0; i < limit; i++) {
+            Session head = byExpiry.peek();
+            if (head == null) return;
+            boolean gone = sessions.get(head.token()) != head;
+            if (!gone && head.expiresAt().toEpochMilli() > now) return;
+            if (byExpiry.remove(head) && !gone && remove(head)) expired.increment();
+        }
+    }
+
+    private void evictOldest() {
+        while (active.get() > config.maxSessions()) {
+            Session head = byExpiry.poll();
+            if (head == null) return;
+            if (remove(head)) evicted.increment();
+        }
+    }
+
+    // True for the one caller that actually removed it.
+    private boolean remove(Session s) {
+        if (!sessions.remove(s.token(), s)) return false;
+        active.decrementAndGet();
+        // A user's token set only changes inside compute, so an emptied set can't be dropped under a concurrent login.
+        tokensByUser.computeIfPresent(s.userId(), (k, tokens) -> {
+            tokens.remove(s.token());
+            return tokens.isEmpty() ? null : tokens;
+        });
+        return true;
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.get().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,8 @@
+package com.jamesbranco.bank.security;
+
+/**
+ * Counters since the manager was created. A miss is a token that was never
+ * issued or is already gone; expired counts tokens found past their TTL.
+ */
+public record SessionStats(int active, long issued, long hits, long misses, long expired,
+                           long evicted, long revoked) {}
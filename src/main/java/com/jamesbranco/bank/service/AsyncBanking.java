@@ -0,0 +1,218 @@
+package com.jamesbranco.bank.service;
+
+import com.jamesbranco.bank.model.*;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.util.StripedLocks;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * CompletableFuture front end over a blocking {@link Banking} backend,
+ * meant for {@link BankServiceJdbc}.
+ *
+ * Calls run on config.threads workers (platform threads, or virtual threads
+ * capped at the same concurrency), so the backend never sees more callers
+ * than the connection pool can serve. At most maxInFlight calls are accepted
+ * at once; beyond that a call fails immediately with
+ * RejectedExecutionException instead of queueing. A caller's future fails
+ * with TimeoutException after timeoutMillis; a call that has not started by
+ * then is skipped.
+ *
+ * Calls touching the same account (or, for user-level calls, the same user)
+ * run one at a time in submission order: each waits for the previous one on
+ * every account it names. Registration takes the accounts' stripe locks in
+ * ascending order, so two transfers in opposite directions cannot wait on
+ * each other.
+ */
+public final class AsyncBanking implements AutoCloseable {
+
+    private final Banking bank;
+    private final AsyncConfig config;
+    private final ExecutorService executor;
+    private final Semaphore running;
+    private final Semaphore admitted;
+    private final StripedLocks submitLocks = new StripedLocks();
+    private final ConcurrentHashMap<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public AsyncBanking(Banking bank, AsyncConfig config) {
+        this.bank = bank;
+        this.config = config;
+        this.executor = config.virtualThreads() ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(config.threads(), Thread.ofPlatform().name("bank-async-", 0).daemon().factory());
+        this.running = config.virtualThreads() ? new Semaphore(config.threads()) : null;
+        this.admitted = new Semaphore(config.maxInFlight());
+    }
+
+    public CompletableFuture<String> registerUser(String name, String email, String plaintextPassword, Role role) {
+        return submit(() -> bank.registerUser(name, email, plaintextPassword, role));
+    }
+
+    public CompletableFuture<String> authenticate(String email, String plaintextPassword) {
+        return submit(() -> bank.authenticate(email, plaintextPassword));
+    }
+
+    public CompletableFuture<Role> getUserRole(String userId) {
+        return submit(() -> bank.getUserRole(userId));
+    }
+
+    public CompletableFuture<String> openCheckingAccount(String userId) {
+        return submit(() -> bank.openCheckingAccount(userId), userId);
+    }
+
+    public CompletableFuture<BigDecimal> getBalance(String accountId) {
+        return submit(() -> bank.getBalance(accountId), accountId);
+    }
+
+    public CompletableFuture<List<Account>> getAccountsForUser(String userId) {
+        return submit(() -> bank.getAccountsForUser(userId), userId);
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, BigDecimal amount, String note) {
+        return submit(() -> {
+            bank.deposit(accountId, amount, note);
+            return null;
+        }, accountId);
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, BigDecimal amount, String note) {
+        return submit(() -> {
+            bank.withdraw(accountId, amount, note);
+            return null;
+        }, accountId);
+    }
+
+    public CompletableFuture<Void> transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
+        return submit(() -> {
+            bank.transfer(fromAccountId, toAccountId, amount, note);
+            return null;
+        }, fromAccountId, toAccountId);
+    }
+
+    public CompletableFuture<List<CommandResult>> applyBatch(List<Command> commands, BatchMode mode) {
+        return submit(() -> bank.applyBatch(commands, mode), BatchPlan.accountIds(commands).toArray(String[]::new));
+    }
+
+    public CompletableFuture<TransactionPage> getTransactionPage(String accountId, TransactionQuery query) {
+        return submit(() -> bank.getTransactionPage(accountId, query), accountId);
+    }
+
+    public CompletableFuture<Collection<InMemoryStore.UserRecord>> getAllUsers() {
+        return submit(bank::getAllUsers);
+    }
+
+    public CompletableFuture<Collection<Account>> getAllAccounts() {
+        return submit(bank::getAllAccounts);
+    }
+
+    public CompletableFuture<Void> freezeAccount(String accountId) {
+        return submit(() -> {
+            bank.freezeAccount(accountId);
+            return null;
+        }, accountId);
+    }
+
+    public CompletableFuture<Void> unfreezeAccount(String accountId) {
+        return submit(() -> {
+            bank.unfreezeAccount(accountId);
+            return null;
+        }, accountId);
+    }
+
+    /** Calls accepted and not yet finished (or skipped). */
+    public int inFlight() {
+        return config.maxInFlight() - admitted.availablePermits();
+    }
+
+    /** Calls turned away because maxInFlight were already in flight. */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /** Stops accepting calls and waits for the accepted ones. */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    // done completes when the call has run or been skipped; it is what later calls on the
+    // same keys wait for and what releases the admission permit. The caller gets a copy,
+    // so its timeout cannot let the next call on the account overtake a running one.
+    private <T> CompletableFuture<T> submit(Supplier<T> call, String... keys) {
+        for (String key : keys) { // checked before taking a permit, which only a completed call gives back
+            if (key == null) return CompletableFuture.failedFuture(new IllegalArgumentException("Missing account or user id"));
+        }
+        if (!admitted.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Too many requests in flight"));
+        }
+        CompletableFuture<T> done = new CompletableFuture<>();
+        CompletableFuture<T> caller = done.copy();
+        if (config.timeoutMillis() > 0) caller.orTimeout(config.timeoutMillis(), TimeUnit.MILLISECONDS);
+
+        CompletableFuture<?> after;
+        try {
+            after = enqueue(done, keys);
+        } catch (RuntimeException e) {
+            admitted.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        done.whenComplete((r, e) -> {
+            for (String key : keys) tails.remove(key, done);
+            admitted.release();
+        });
+        after.whenComplete((r, e) -> {
+            try {
+                executor.execute(() -> run(call, done, caller));
+            } catch (RejectedExecutionException closed) {
+                done.completeExceptionally(closed);
+            }
+        });
+        return caller;
+    }
+
+    private CompletableFuture<?> enqueue(CompletableFuture<?> done, String[] keys) {
+        if (keys.length == 0) return CompletableFuture.completedFuture(null);
+        if (keys.length > 1) keys = Arrays.stream(keys).distinct().toArray(String[]::new); // a -> a must not wait on itself
+        int[] stripes = submitLocks.lockAll(List.of(keys));
+        try {
+            CompletableFuture<?>[] previous = new CompletableFuture<?>[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                CompletableFuture<?> p = tails.put(keys[i], done);
+                previous[i] = p == null ? CompletableFuture.completedFuture(null) : p;
+            }
+            return previous.length == 1 ? previous[0] : CompletableFuture.allOf(previous);
+        } finally {
+            submitLocks.unlockAll(stripes);
+        }
+    }
+
+    private <T> void run(Supplier<T> call, CompletableFuture<T> done, CompletableFuture<T> caller) {
+        if (caller.isDone()) {
+            // timed out while queued
+            done.cancel(false);
+            return;
+        }
+        boolean permit = false;
+        try {
+            if (running != null) {
+                running.acquire();
+                permit = true;
+            }
+            done.complete(call.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            done.completeExceptionally(e);
+        } finally {
+            if (permit) running.release();
+        }
+    }
+}
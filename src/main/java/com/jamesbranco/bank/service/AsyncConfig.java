@@ -0,0 +1,36 @@
+package com.jamesbranco.bank.service;
+
+import java.util.Properties;
+
+/**
+ * Settings for {@link AsyncBanking}, read from the async.* keys. threads
+ * defaults to db.pool.maxSize: more workers than connections would only
+ * queue inside the pool. timeoutMillis = 0 means callers wait indefinitely.
+ */
+public record AsyncConfig(int threads, boolean virtualThreads, int maxInFlight, long timeoutMillis) {
+
+    public AsyncConfig {
+        if (threads <= 0) throw new IllegalArgumentException("async.threads must be positive");
+        if (maxInFlight <= 0) throw new IllegalArgumentException("async.maxInFlight must be positive");
+        if (timeoutMillis < 0) throw new IllegalArgumentException("async.timeoutMillis must not be negative");
+    }
+
+    public static AsyncConfig defaults() {
+        return new AsyncConfig(10, false, 10_000, 5_000);
+    }
+
+    public static AsyncConfig from(Properties props) {
+        AsyncConfig d = defaults();
+        long poolSize = longProp(props, "db.pool.maxSize", d.threads);
+        return new AsyncConfig(
+                (int) longProp(props, "async.threads", poolSize),
+                Boolean.parseBoolean(props.getProperty("async.virtualThreads", "false")),
+                (int) longProp(props, "async.maxInFlight", d.maxInFlight),
+                longProp(props, "async.timeoutMillis", d.timeoutMillis));
+    }
+
+    private static long longProp(Properties props, String key, long def) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? def : Long.parseLong(v.trim());
+    }
+}
@@ -1,41 +1,66 @@
 package com.jamesbranco.bank.service;
 
+import com.jamesbranco.bank.metrics.BankMetrics;
+import com.jamesbranco.bank.metrics.BankMetrics.Op;
 import com.jamesbranco.bank.model.*;
 import com.jamesbranco.bank.repo.InMemoryStore;
 import com.jamesbranco.bank.security.PasswordUtil;
 import com.jamesbranco.bank.util.IdGenerator;
+import com.jamesbranco.bank.util.StripedLocks;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
-public class BankService {
+public class BankService implements Banking {
     private final InMemoryStore store;
+    private final StripedLocks locks;
+    private final LedgerEngine engine; // null: lock-based mode
 
     public BankService(InMemoryStore store) {
+        this(store, null);
+    }
+
+    // Ledger-engine mode: money movements and freezes are sequenced through the engine.
+    public BankService(InMemoryStore store, LedgerEngine engine) {
         this.store = store;
+        this.locks = store.accountLocks();
+        this.engine = engine;
     }
 
     // Users
 
     public String registerUser(String name, String email, String plaintextPassword, Role role) {
-        store.findUserByEmail(email)
-                .ifPresent(u -> { throw new IllegalArgumentException("Email already registered"); });
+        return BankMetrics.call(Op.REGISTER, () -> {
+            store.findUserByEmail(email)
+                    .ifPresent(u -> { throw new IllegalArgumentException("Email already registered"); });
 
-        String id = IdGenerator.newId();
-        String hash = PasswordUtil.hash(plaintextPassword);
-        store.saveUser(new InMemoryStore.UserRecord(id, name, email, hash, role.name()));
-        return id;
+            String id = IdGenerator.newId();
+            String hash = PasswordUtil.hash(plaintextPassword);
+            store.saveUser(new InMemoryStore.UserRecord(id, name, email, hash, role.name()));
+            store.awaitDurable();
+            return id;
+        });
     }
 
     public String authenticate(String email, String plaintextPassword) {
-        var user = store.findUserByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
-        if (!PasswordUtil.matches(plaintextPassword, user.passwordHash)) {
-            throw new IllegalArgumentException("Invalid credentials");
-        }
-        return user.id;
+        return BankMetrics.call(Op.AUTHENTICATE, () -> {
+            var user = store.findUserByEmail(email)
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
+            if (!PasswordUtil.matches(plaintextPassword, user.passwordHash)) {
+                throw new IllegalArgumentException("Invalid credentials");
+            }
+            return user.id;
+        });
     }
 
     // find role of a user
@@ -48,76 +73,242 @@ public class BankService {
     // Accounts
 
     public String openCheckingAccount(String userId) {
-        var user = store.findUserById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        String accountId = IdGenerator.newId();
-        String acctNum = IdGenerator.newAccountNumber();
-        var acct = new Account(accountId, user.id, acctNum);
-        store.saveAccount(acct);
-        return accountId;
+        return BankMetrics.call(Op.OPEN_ACCOUNT, () -> {
+            var user = store.findUserById(userId)
+                    .orElseThrow(() -> new IllegalArgumentException("User not found"));
+            String accountId = IdGenerator.newId();
+            String acctNum = IdGenerator.newAccountNumber();
+            var acct = new Account(accountId, user.id, acctNum);
+            store.saveAccount(acct);
+            store.awaitDurable();
+            return accountId;
+        });
     }
 
     public BigDecimal getBalance(String accountId) {
-        return store.findAccountById(accountId)
+        return BankMetrics.call(Op.BALANCE, () -> store.findAccountById(accountId)
                 .orElseThrow(() -> new IllegalArgumentException("Account not found"))
-                .getBalance();
+                .getBalance());
     }
 
     public List<Account> getAccountsForUser(String userId) {
-        return store.findAccountsByUserId(userId);
+        return BankMetrics.call(Op.LIST_ACCOUNTS, () -> store.findAccountsByUserId(userId));
     }
 
     public void deposit(String accountId, BigDecimal amount, String note) {
+        BankMetrics.run(Op.DEPOSIT, () -> applyDeposit(accountId, toPositiveMinor(amount), note));
+    }
+
+    public void withdraw(String accountId, BigDecimal amount, String note) {
+        BankMetrics.run(Op.WITHDRAW, () -> applyWithdraw(accountId, toPositiveMinor(amount), note));
+    }
+
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
+        BankMetrics.run(Op.TRANSFER, () -> applyTransfer(fromAccountId, toAccountId, toPositiveMinor(amount), note));
+    }
+
+    // Amounts in minor units (cents): no BigDecimal work on the way in.
+
+    public void depositMinor(String accountId, long amountMinor, String note) {
+        BankMetrics.run(Op.DEPOSIT, () -> applyDeposit(accountId, amountMinor, note));
+    }
+
+    private void applyDeposit(String accountId, long amountMinor, String note) {
+        if (engine != null) {
+            await(engine.deposit(accountId, amountMinor, note));
+            return;
+        }
         var acct = store.findAccountById(accountId)
                 .orElseThrow(() -> new IllegalArgumentException("Account not found"));
-        if (acct.isFrozen()) {
-            throw new IllegalStateException("Account is frozen");
+        locks.lock(accountId);
+        try {
+            if (acct.isFrozen()) {
+                throw new IllegalStateException("Account is frozen");
+            }
+            acct.depositMinor(amountMinor);
+            var tx = new Transaction(IdGenerator.newId(), accountId,
+                    TransactionType.DEPOSIT, amountMinor, Instant.now(), note);
+            store.appendTransaction(tx);
+        } finally {
+            locks.unlock(accountId);
         }
-        acct.deposit(amount);
-        var tx = new Transaction(IdGenerator.newId(), accountId,
-                TransactionType.DEPOSIT, amount, Instant.now(), note);
-        store.appendTransaction(tx);
+        store.awaitDurable();
     }
 
-    public void withdraw(String accountId, BigDecimal amount, String note) {
+    public void withdrawMinor(String accountId, long amountMinor, String note) {
+        BankMetrics.run(Op.WITHDRAW, () -> applyWithdraw(accountId, amountMinor, note));
+    }
+
+    private void applyWithdraw(String accountId, long amountMinor, String note) {
+        if (engine != null) {
+            await(engine.withdraw(accountId, amountMinor, note));
+            return;
+        }
         var acct = store.findAccountById(accountId)
                 .orElseThrow(() -> new IllegalArgumentException("Account not found"));
-        if (acct.isFrozen()) {
-            throw new IllegalStateException("Account is frozen");
+        locks.lock(accountId);
+        try {
+            if (acct.isFrozen()) {
+                throw new IllegalStateException("Account is frozen");
+            }
+            acct.withdrawMinor(amountMinor);
+            var tx = new Transaction(IdGenerator.newId(), accountId,
+                    TransactionType.WITHDRAWAL, amountMinor, Instant.now(), note);
+            store.appendTransaction(tx);
+        } finally {
+            locks.unlock(accountId);
         }
-        acct.withdraw(amount);
-        var tx = new Transaction(IdGenerator.newId(), accountId,
-                TransactionType.WITHDRAWAL, amount, Instant.now(), note);
-        store.appendTransaction(tx);
+        store.awaitDurable();
     }
 
-    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
+    public void transferMinor(String fromAccountId, String toAccountId, long amountMinor, String note) {
+        BankMetrics.run(Op.TRANSFER, () -> applyTransfer(fromAccountId, toAccountId, amountMinor, note));
+    }
+
+    private void applyTransfer(String fromAccountId, String toAccountId, long amountMinor, String note) {
         if (fromAccountId.equals(toAccountId)) {
             throw new IllegalArgumentException("Cannot transfer to same account");
         }
+        if (engine != null) {
+            await(engine.transfer(fromAccountId, toAccountId, amountMinor, note));
+            return;
+        }
 
         var from = store.findAccountById(fromAccountId)
                 .orElseThrow(() -> new IllegalArgumentException("From account not found"));
         var to = store.findAccountById(toAccountId)
                 .orElseThrow(() -> new IllegalArgumentException("To account not found"));
 
-        if (from.isFrozen()) {
-            throw new IllegalStateException("From account is frozen");
+        // Both stripes are taken in a fixed order, so opposite transfers can't deadlock.
+        locks.lockBoth(fromAccountId, toAccountId);
+        try {
+            if (from.isFrozen()) {
+                throw new IllegalStateException("From account is frozen");
+            }
+
+            Money.add(to.getBalanceMinor(), amountMinor); // an overflowing credit must fail before the debit
+            from.withdrawMinor(amountMinor);
+            to.depositMinor(amountMinor);
+
+            Instant now = Instant.now();
+            store.appendTransactions(List.of(
+                    new Transaction(IdGenerator.newId(), fromAccountId, TransactionType.TRANSFER_OUT, amountMinor, now, note),
+                    new Transaction(IdGenerator.newId(), toAccountId, TransactionType.TRANSFER_IN, amountMinor, now, note)));
+        } finally {
+            locks.unlockBoth(fromAccountId, toAccountId);
         }
+        store.awaitDurable();
+    }
+
+    /**
+     * Applies many deposits, withdrawals and transfers under one acquisition of
+     * every involved account's lock, taken in stripe order. Results line up
+     * with the commands. The batch's journal entries are logged as one unit.
+     */
+    public List<CommandResult> applyBatch(List<Command> commands, BatchMode mode) {
+        return BankMetrics.call(Op.BATCH, () -> {
+            if (engine != null) return applyBatchThroughEngine(commands, mode);
+            List<String> ids = BatchPlan.accountIds(commands);
+            Map<String, Account> accounts = new HashMap<>(ids.size() * 2);
+            for (String id : ids) store.findAccountById(id).ifPresent(a -> accounts.put(id, a));
+
+            BatchPlan plan;
+            int[] held = locks.lockAll(accounts.keySet());
+            try {
+                Map<String, Long> balances = new HashMap<>(accounts.size() * 2);
+                Set<String> frozen = new HashSet<>();
+                accounts.forEach((id, a) -> {
+                    balances.put(id, a.getBalanceMinor());
+                    if (a.isFrozen()) frozen.add(id);
+                });
+                plan = BatchPlan.evaluate(commands, mode, balances, frozen);
+                Instant now = Instant.now();
+                List<Transaction> entries = new ArrayList<>(plan.applied().size() + 8);
+                for (Command cmd : plan.applied()) {
+                    switch (cmd) {
+                        case Command.Deposit d -> {
+                            accounts.get(d.accountId()).depositMinor(d.amountMinor());
+                            entries.add(new Transaction(IdGenerator.newId(), d.accountId(),
+                                    TransactionType.DEPOSIT, d.amountMinor(), now, d.note()));
+                        }
+                        case Command.Withdraw w -> {
+                            accounts.get(w.accountId()).withdrawMinor(w.amountMinor());
+                            entries.add(new Transaction(IdGenerator.newId(), w.accountId(),
+                                    TransactionType.WITHDRAWAL, w.amountMinor(), now, w.note()));
+                        }
+                        case Command.Transfer t -> {
+                            accounts.get(t.fromAccountId()).withdrawMinor(t.amountMinor());
+                            accounts.get(t.toAccountId()).depositMinor(t.amountMinor());
+                            entries.add(new Transaction(IdGenerator.newId(), t.fromAccountId(),
+                                    TransactionType.TRANSFER_OUT, t.amountMinor(), now, t.note()));
+                            entries.add(new Transaction(IdGenerator.newId(), t.toAccountId(),
+                                    TransactionType.TRANSFER_IN, t.amountMinor(), now, t.note()));
+                        }
+                    }
+                }
+                if (!entries.isEmpty()) store.appendTransactions(entries);
+            } finally {
+                locks.unlockAll(held);
+            }
+            store.awaitDurable();
+            return plan.results();
+        });
+    }
 
-        from.withdraw(amount);
-        to.deposit(amount);
+    // The engine decides commands one at a time, so only best-effort batches fit it.
+    private List<CommandResult> applyBatchThroughEngine(List<Command> commands, BatchMode mode) {
+        if (mode != BatchMode.BEST_EFFORT) {
+            throw new IllegalStateException("All-or-nothing batches need the lock-based mode");
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>(commands.size());
+        for (Command cmd : commands) {
+            pending.add(switch (cmd) {
+                case Command.Deposit d -> engine.deposit(d.accountId(), d.amountMinor(), d.note());
+                case Command.Withdraw w -> engine.withdraw(w.accountId(), w.amountMinor(), w.note());
+                case Command.Transfer t -> engine.transfer(t.fromAccountId(), t.toAccountId(), t.amountMinor(), t.note());
+            });
+        }
+        List<CommandResult> results = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            try {
+                pending.get(i).join();
+                results.add(CommandResult.applied(commands.get(i)));
+            } catch (CompletionException e) {
+                results.add(CommandResult.failed(commands.get(i), e.getCause().getMessage()));
+            }
+        }
+        return results;
+    }
 
-        store.appendTransaction(new Transaction(IdGenerator.newId(), fromAccountId,
-                TransactionType.TRANSFER_OUT, amount, Instant.now(), note));
-        store.appendTransaction(new Transaction(IdGenerator.newId(), toAccountId,
-                TransactionType.TRANSFER_IN, amount, Instant.now(), note));
+    private static void await(CompletableFuture<Void> result) {
+        try {
+            result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private static long toPositiveMinor(BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        return Money.toMinor(amount);
     }
 
     public List<Transaction> getTransactions(String accountId) {
         return store.getTransactions(accountId);
     }
 
+    // Oldest first. Nothing is copied, so this stays cheap for very long histories.
+    public Stream<Transaction> streamTransactions(String accountId) {
+        return store.streamTransactions(accountId);
+    }
+
+    public TransactionPage getTransactionPage(String accountId, TransactionQuery query) {
+        return BankMetrics.call(Op.HISTORY, () -> store.getTransactionPage(accountId, query));
+    }
+
     // ADMIN FEATURES
 
     public Collection<InMemoryStore.UserRecord> getAllUsers() {
@@ -129,14 +320,38 @@ public class BankService {
     }
 
     public void freezeAccount(String accountId) {
-        var acct = store.findAccountById(accountId)
-                .orElseThrow(() -> new IllegalArgumentException("Account not found"));
-        acct.freeze();
+        BankMetrics.run(Op.FREEZE, () -> {
+            if (engine != null) {
+                await(engine.freeze(accountId));
+                return;
+            }
+            store.findAccountById(accountId)
+                    .orElseThrow(() -> new IllegalArgumentException("Account not found"));
+            locks.lock(accountId);
+            try {
+                store.setFrozen(accountId, true);
+            } finally {
+                locks.unlock(accountId);
+            }
+            store.awaitDurable();
+        });
     }
 
     public void unfreezeAccount(String accountId) {
-        var acct = store.findAccountById(accountId)
-                .orElseThrow(() -> new IllegalArgumentException("Account not found"));
-        acct.unfreeze();
+        BankMetrics.run(Op.UNFREEZE, () -> {
+            if (engine != null) {
+                await(engine.unfreeze(accountId));
+                return;
+            }
+            store.findAccountById(accountId)
+                    .orElseThrow(() -> new IllegalArgumentException("Account not found"));
+            locks.lock(accountId);
+            try {
+                store.setFrozen(accountId, false);
+            } finally {
+                locks.unlock(accountId);
+            }
+            store.awaitDurable();
+        });
     }
 }
@@ -1,7 +1,20 @@
 package com.jamesbranco.bank.service;
 
+import com.jamesbranco.bank.jdbc.AccountCache;
+import com.jamesbranco.bank.jdbc.AccountCacheConfig;
+import com.jamesbranco.bank.jdbc.GroupCommitConfig;
+import com.jamesbranco.bank.jdbc.GroupCommitter;
+import com.jamesbranco.bank.jdbc.IdColumns;
 import com.jamesbranco.bank.jdbc.Jdbc;
+import com.jamesbranco.bank.jdbc.RetryConfig;
+import com.jamesbranco.bank.jdbc.RetryStats;
+import com.jamesbranco.bank.jdbc.TransactionExecutor;
+import com.jamesbranco.bank.jdbc.TransactionRows;
+import com.jamesbranco.bank.jdbc.WriteMode;
+import com.jamesbranco.bank.metrics.BankMetrics;
+import com.jamesbranco.bank.metrics.BankMetrics.Op;
 import com.jamesbranco.bank.model.*;
+import com.jamesbranco.bank.repo.InMemoryStore;
 import com.jamesbranco.bank.security.PasswordUtil;
 import com.jamesbranco.bank.util.IdGenerator;
 
@@ -9,180 +22,562 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class BankServiceJdbc {
+public class BankServiceJdbc implements Banking, AutoCloseable {
+    private static final int STREAM_FETCH_SIZE = 1_000;
+    private static final int LOCK_IN_LIST = 500;
+    private static final String FROZEN = "FROZEN";
+    private static final String OPEN = "OPEN";
+    private static final String ACCOUNT_COLUMNS = "id, owner_user_id, account_number, balance, status";
+
+    private final GroupCommitter groupCommitter;
+    private final AccountCache accountCache;
+    private final WriteMode writeMode;
+    private final TransactionExecutor transactions;
+    private volatile boolean accountNumbersReserved;
+
+    public BankServiceJdbc() {
+        this(GroupCommitConfig.from(Jdbc.properties()), AccountCacheConfig.from(Jdbc.properties()),
+                WriteMode.from(Jdbc.properties()), RetryConfig.from(Jdbc.properties()));
+    }
+
+    public BankServiceJdbc(GroupCommitConfig groupCommit) {
+        this(groupCommit, AccountCacheConfig.disabled());
+    }
+
+    public BankServiceJdbc(GroupCommitConfig groupCommit, AccountCacheConfig cache) {
+        this(groupCommit, cache, WriteMode.GUARDED);
+    }
+
+    public BankServiceJdbc(GroupCommitConfig groupCommit, AccountCacheConfig cache, WriteMode writeMode) {
+        this(groupCommit, cache, writeMode, RetryConfig.defaults());
+    }
+
+    public BankServiceJdbc(GroupCommitConfig groupCommit, AccountCacheConfig cache, WriteMode writeMode, RetryConfig retry) {
+        this.groupCommitter = groupCommit.enabled() ? new GroupCommitter(groupCommit) : null;
+        this.accountCache = cache.enabled() ? new AccountCache(cache.maxEntries()) : null;
+        this.writeMode = writeMode;
+        this.transactions = new TransactionExecutor(retry);
+    }
 
     // --- Users ---
     public String registerUser(String name, String email, String plaintextPassword, Role role) {
-        String id = IdGenerator.newId();
-        String hash = PasswordUtil.hash(plaintextPassword);
-        String sql = "INSERT INTO users (id, name, email, password_hash, role) VALUES (?, ?, ?, ?, ?)";
-        try (Connection c = Jdbc.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, id);
-            ps.setString(2, name);
-            ps.setString(3, email);
-            ps.setString(4, hash);
-            ps.setString(5, role.name());
-            ps.executeUpdate();
-            return id;
-        } catch (SQLException e) {
-            if (e.getMessage() != null && e.getMessage().contains("Duplicate")) {
-                throw new IllegalArgumentException("Email already registered");
+        return BankMetrics.call(Op.REGISTER, () -> {
+            String id = IdGenerator.newId();
+            String hash = PasswordUtil.hash(plaintextPassword);
+            String sql = "INSERT INTO users (id, name, email, password_hash, role) VALUES (?, ?, ?, ?, ?)";
+            try (Connection c = Jdbc.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                IdColumns.set(ps, 1, id);
+                ps.setString(2, name);
+                ps.setString(3, email);
+                ps.setString(4, hash);
+                ps.setString(5, role.name());
+                ps.executeUpdate();
+                return id;
+            } catch (SQLException e) {
+                if (e instanceof SQLIntegrityConstraintViolationException
+                        || (e.getMessage() != null && e.getMessage().contains("Duplicate"))) {
+                    throw new IllegalArgumentException("Email already registered");
+                }
+                throw new RuntimeException(e);
             }
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     public String authenticate(String email, String plaintextPassword) {
-        String sql = "SELECT id, password_hash FROM users WHERE email=?";
-        try (Connection c = Jdbc.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, email);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) throw new IllegalArgumentException("Invalid credentials");
-                String id = rs.getString("id");
-                String hash = rs.getString("password_hash");
-                if (!PasswordUtil.matches(plaintextPassword, hash))
-                    throw new IllegalArgumentException("Invalid credentials");
-                return id;
+        return BankMetrics.call(Op.AUTHENTICATE, () -> {
+            String sql = "SELECT id, password_hash FROM users WHERE email=?";
+            try (Connection c = Jdbc.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                ps.setString(1, email);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) throw new IllegalArgumentException("Invalid credentials");
+                    String id = IdColumns.get(rs, "id");
+                    String hash = rs.getString("password_hash");
+                    if (!PasswordUtil.matches(plaintextPassword, hash))
+                        throw new IllegalArgumentException("Invalid credentials");
+                    return id;
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        });
     }
 
     // --- Accounts ---
     public String openCheckingAccount(String userId) {
-        String id = IdGenerator.newId();
-        String acctNum = IdGenerator.newAccountNumber();
-        String sql = "INSERT INTO accounts (id, owner_user_id, account_number, balance, status) VALUES (?, ?, ?, 0.00, 'OPEN')";
-        try (Connection c = Jdbc.getConnection();
-             PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, id);
-            ps.setString(2, userId);
-            ps.setString(3, acctNum);
-            ps.executeUpdate();
-            return id;
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        return BankMetrics.call(Op.OPEN_ACCOUNT, () -> {
+            String id = IdGenerator.newId();
+            String sql = "INSERT INTO accounts (id, owner_user_id, account_number, balance, status) VALUES (?, ?, ?, 0.00, 'OPEN')";
+            try (Connection c = Jdbc.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql)) {
+                // Another process may be handing out numbers too: catch up with the table and retry.
+                for (int attempt = 0; ; attempt++) {
+                    if (!accountNumbersReserved || attempt > 0) reserveAccountNumbers(c);
+                    IdColumns.set(ps, 1, id);
+                    IdColumns.set(ps, 2, userId);
+                    ps.setString(3, IdGenerator.newAccountNumber());
+                    try {
+                        ps.executeUpdate();
+                        return id;
+                    } catch (SQLException e) {
+                        boolean numberTaken = e.getMessage() != null
+                                && e.getMessage().toLowerCase().contains("uq_accounts_number");
+                        if (!numberTaken || attempt == 2) throw e;
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private void reserveAccountNumbers(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT MAX(account_number) FROM accounts");
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) IdGenerator.reserveAccountNumbersThrough(rs.getString(1));
         }
+        accountNumbersReserved = true;
     }
 
     public BigDecimal getBalance(String accountId) {
-        String sql = "SELECT balance FROM accounts WHERE id=?";
+        return getBalance(accountId, ReadConsistency.CACHED);
+    }
+
+    /**
+     * With the account cache enabled, CACHED answers from memory when it can.
+     * Money movements never consult the cache: they read under FOR UPDATE
+     * inside their own transaction.
+     */
+    public BigDecimal getBalance(String accountId, ReadConsistency consistency) {
+        return BankMetrics.call(Op.BALANCE, () -> {
+            if (accountCache == null || consistency == ReadConsistency.LATEST) return loadAccount(accountId).balance();
+            AccountCache.Entry cached = accountCache.get(accountId);
+            if (cached != null) return cached.balance();
+            long stamp = accountCache.stamp(accountId);
+            AccountCache.Entry loaded = loadAccount(accountId);
+            accountCache.putIfUnchanged(accountId, loaded, stamp);
+            return loaded.balance();
+        });
+    }
+
+    /** Hit, miss and eviction counts of the account cache, if it is enabled. */
+    public Optional<AccountCache.Stats> accountCacheStats() {
+        return Optional.ofNullable(accountCache).map(AccountCache::stats);
+    }
+
+    private static AccountCache.Entry loadAccount(String accountId) {
+        String sql = "SELECT owner_user_id, balance, status FROM accounts WHERE id=?";
         try (Connection c = Jdbc.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, accountId);
+            IdColumns.set(ps, 1, accountId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) throw new IllegalArgumentException("Account not found");
-                return rs.getBigDecimal("balance");
+                return new AccountCache.Entry(IdColumns.get(rs, "owner_user_id"), rs.getBigDecimal("balance"),
+                        FROZEN.equals(rs.getString("status")));
             }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
-    private void appendTransaction(Connection c, String accountId, TransactionType type, BigDecimal amount, String note) throws SQLException {
-        String txId = IdGenerator.newId();
-        try (PreparedStatement ps = c.prepareStatement(
-                "INSERT INTO transactions (id, account_id, type, amount, note) VALUES (?,?,?,?,?)")) {
-            ps.setString(1, txId);
-            ps.setString(2, accountId);
-            ps.setString(3, type.name());
-            ps.setBigDecimal(4, amount);
-            ps.setString(5, note);
-            ps.executeUpdate();
+    public void deposit(String accountId, BigDecimal amount, String note) {
+        BankMetrics.run(Op.DEPOSIT, () -> execute((c, journal) -> applyDeposit(c, journal, accountId, amount, note),
+                List.of(accountId)));
+    }
+
+    public void withdraw(String accountId, BigDecimal amount, String note) {
+        BankMetrics.run(Op.WITHDRAW, () -> execute((c, journal) -> applyWithdraw(c, journal, accountId, amount, note),
+                List.of(accountId)));
+    }
+
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
+        BankMetrics.run(Op.TRANSFER, () -> {
+            if (fromAccountId.equals(toAccountId)) throw new IllegalArgumentException("Cannot transfer to same account");
+            execute((c, journal) -> applyTransfer(c, journal, fromAccountId, toAccountId, amount, note),
+                    List.of(fromAccountId, toAccountId));
+        });
+    }
+
+    public List<CommandResult> applyBatch(List<Command> commands, BatchMode mode) {
+        return applyBatch(commands, mode, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Applies the batch in database transactions of up to chunkSize commands.
+     * Each chunk locks all of its accounts with one ordered SELECT ... FOR UPDATE,
+     * writes each touched balance once and inserts the journal rows as one batch.
+     * All-or-nothing batches always commit once, so they cannot be chunked.
+     */
+    public List<CommandResult> applyBatch(List<Command> commands, BatchMode mode, int chunkSize) {
+        return BankMetrics.call(Op.BATCH, () -> {
+            if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+            if (mode == BatchMode.ALL_OR_NOTHING && chunkSize < commands.size())
+                throw new IllegalArgumentException("All-or-nothing batches cannot be committed in chunks");
+            List<CommandResult> results = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i += chunkSize) {
+                results.addAll(applyChunk(commands.subList(i, Math.min(commands.size(), i + chunkSize)), mode));
+            }
+            return results;
+        });
+    }
+
+    private List<CommandResult> applyChunk(List<Command> chunk, BatchMode mode) {
+        List<String> accountIds = BatchPlan.accountIds(chunk);
+        try {
+            return transactions.inTransaction(c -> {
+                Set<String> frozen = new HashSet<>();
+                Map<String, Long> balances = lockBalances(c, accountIds, frozen);
+                BatchPlan plan = BatchPlan.evaluate(chunk, mode, balances, frozen);
+                if (!plan.applied().isEmpty()) {
+                    TransactionRows journal = new TransactionRows();
+                    Set<String> touched = new TreeSet<>();
+                    for (Command cmd : plan.applied()) {
+                        BigDecimal amount = Money.toBigDecimal(cmd.amountMinor());
+                        switch (cmd) {
+                            case Command.Deposit d -> journal.add(d.accountId(), TransactionType.DEPOSIT, amount, d.note());
+                            case Command.Withdraw w -> journal.add(w.accountId(), TransactionType.WITHDRAWAL, amount, w.note());
+                            case Command.Transfer t -> {
+                                journal.add(t.fromAccountId(), TransactionType.TRANSFER_OUT, amount, t.note());
+                                journal.add(t.toAccountId(), TransactionType.TRANSFER_IN, amount, t.note());
+                            }
+                        }
+                        touched.addAll(cmd.accountIds());
+                    }
+                    try (PreparedStatement ps = c.prepareStatement("UPDATE accounts SET balance = ?" + bumpVersion() + " WHERE id=?")) {
+                        for (String id : touched) {
+                            ps.setBigDecimal(1, Money.toBigDecimal(plan.finalBalance(id)));
+                            IdColumns.set(ps, 2, id);
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                    journal.flush(c);
+                }
+                return plan.results();
+            });
+        } finally {
+            invalidate(accountIds);
         }
     }
 
-    public void deposit(String accountId, BigDecimal amount, String note) {
-        String sql = "UPDATE accounts SET balance = balance + ? WHERE id=?";
-        try (Connection c = Jdbc.getConnection()) {
-            c.setAutoCommit(false);
+    // Locks the accounts in id order (a few hundred per statement) and returns the balances of those that exist.
+    private static Map<String, Long> lockBalances(Connection c, List<String> sortedIds, Set<String> frozen) throws SQLException {
+        Map<String, Long> balances = new HashMap<>(sortedIds.size() * 2);
+        for (int i = 0; i < sortedIds.size(); i += LOCK_IN_LIST) {
+            List<String> part = sortedIds.subList(i, Math.min(sortedIds.size(), i + LOCK_IN_LIST));
+            String sql = "SELECT id, balance, status FROM accounts WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(part.size(), "?")) + ") ORDER BY id FOR UPDATE";
             try (PreparedStatement ps = c.prepareStatement(sql)) {
-                ps.setBigDecimal(1, amount);
-                ps.setString(2, accountId);
-                int updated = ps.executeUpdate();
-                if (updated == 0) throw new IllegalArgumentException("Account not found");
-                appendTransaction(c, accountId, TransactionType.DEPOSIT, amount, note);
-                c.commit();
-            } catch (Exception ex) {
-                c.rollback();
-                throw ex;
-            } finally {
-                c.setAutoCommit(true);
+                for (int j = 0; j < part.size(); j++) IdColumns.set(ps, j + 1, part.get(j));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        balances.put(IdColumns.get(rs, "id"), Money.toMinor(rs.getBigDecimal("balance")));
+                        if (FROZEN.equals(rs.getString("status"))) frozen.add(IdColumns.get(rs, "id"));
+                    }
+                }
             }
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
         }
+        return balances;
     }
 
-    public void withdraw(String accountId, BigDecimal amount, String note) {
-        String check = "SELECT balance FROM accounts WHERE id=? FOR UPDATE";
-        String update = "UPDATE accounts SET balance = balance - ? WHERE id=?";
-        try (Connection c = Jdbc.getConnection()) {
-            c.setAutoCommit(false);
-            try (PreparedStatement ps1 = c.prepareStatement(check)) {
-                ps1.setString(1, accountId);
-                try (ResultSet rs = ps1.executeQuery()) {
+    @Override
+    public void close() {
+        if (groupCommitter != null) groupCommitter.close();
+    }
+
+    // Runs one money movement in its own database transaction, or hands it to the group committer;
+    // either way a deadlock, lock timeout or version conflict re-runs the whole unit.
+    // Whatever the outcome, the touched accounts leave the cache before the caller sees it.
+    private void execute(GroupCommitter.Unit unit, List<String> accountIds) {
+        try {
+            if (groupCommitter != null) {
+                transactions.retry(() -> submit(unit));
+            } else {
+                transactions.inTransaction(c -> {
+                    TransactionRows journal = new TransactionRows();
+                    unit.apply(c, journal);
+                    journal.flush(c);
+                    return null;
+                });
+            }
+        } finally {
+            invalidate(accountIds);
+        }
+    }
+
+    private Void submit(GroupCommitter.Unit unit) {
+        try {
+            return groupCommitter.submit(unit).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private void invalidate(List<String> accountIds) {
+        if (accountCache != null) accountCache.invalidateAll(accountIds);
+    }
+
+    /** Retry and abort counts of the money-movement transactions. */
+    public RetryStats retryStats() {
+        return transactions.stats();
+    }
+
+    private void applyDeposit(Connection c, TransactionRows journal, String accountId, BigDecimal amount, String note) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE accounts SET balance = balance + ?" + bumpVersion() + " WHERE id=? AND status <> 'FROZEN'")) {
+            ps.setBigDecimal(1, amount);
+            IdColumns.set(ps, 2, accountId);
+            int updated = ps.executeUpdate();
+            if (updated == 0) {
+                throw isFrozen(c, accountId) ? new IllegalStateException("Account is frozen")
+                        : new IllegalArgumentException("Account not found");
+            }
+        }
+        journal.add(accountId, TransactionType.DEPOSIT, amount, note);
+    }
+
+    private void applyWithdraw(Connection c, TransactionRows journal, String accountId, BigDecimal amount, String note) throws SQLException {
+        if (writeMode == WriteMode.LOCKING) {
+            lockAndWithdraw(c, accountId, amount);
+        } else {
+            debit(c, accountId, amount, "Account is frozen");
+        }
+        journal.add(accountId, TransactionType.WITHDRAWAL, amount, note);
+    }
+
+    private static void lockAndWithdraw(Connection c, String accountId, BigDecimal amount) throws SQLException {
+        try (PreparedStatement ps1 = c.prepareStatement("SELECT balance, status FROM accounts WHERE id=? FOR UPDATE")) {
+            IdColumns.set(ps1, 1, accountId);
+            try (ResultSet rs = ps1.executeQuery()) {
+                if (!rs.next()) throw new IllegalArgumentException("Account not found");
+                if (FROZEN.equals(rs.getString(2))) throw new IllegalStateException("Account is frozen");
+                BigDecimal bal = rs.getBigDecimal(1);
+                if (bal.compareTo(amount) < 0) throw new IllegalStateException("Insufficient funds");
+            }
+        }
+        try (PreparedStatement ps2 = c.prepareStatement("UPDATE accounts SET balance = balance - ? WHERE id=?")) {
+            ps2.setBigDecimal(1, amount);
+            IdColumns.set(ps2, 2, accountId);
+            ps2.executeUpdate();
+        }
+    }
+
+    private void applyTransfer(Connection c, TransactionRows journal, String fromAccountId, String toAccountId,
+                               BigDecimal amount, String note) throws SQLException {
+        if (writeMode == WriteMode.LOCKING) {
+            lockAndTransfer(c, fromAccountId, toAccountId, amount);
+        } else if (fromAccountId.compareTo(toAccountId) < 0) {
+            // Row locks are always taken in id order, so opposite transfers cannot deadlock.
+            debit(c, fromAccountId, amount, "From account is frozen");
+            credit(c, toAccountId, amount);
+        } else {
+            credit(c, toAccountId, amount);
+            debit(c, fromAccountId, amount, "From account is frozen");
+        }
+        journal.add(fromAccountId, TransactionType.TRANSFER_OUT, amount, note);
+        journal.add(toAccountId, TransactionType.TRANSFER_IN, amount, note);
+    }
+
+    private static void lockAndTransfer(Connection c, String fromAccountId, String toAccountId, BigDecimal amount) throws SQLException {
+        // Lock both accounts
+        try (PreparedStatement ps = c.prepareStatement("SELECT id, balance, status FROM accounts WHERE id IN (?, ?) FOR UPDATE")) {
+            IdColumns.set(ps, 1, fromAccountId);
+            IdColumns.set(ps, 2, toAccountId);
+            List<String> seen = new ArrayList<>();
+            BigDecimal fromBal = null;
+            boolean fromFrozen = false;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String id = IdColumns.get(rs, "id");
+                    seen.add(id);
+                    if (id.equals(fromAccountId)) {
+                        fromBal = rs.getBigDecimal("balance");
+                        fromFrozen = FROZEN.equals(rs.getString("status"));
+                    }
+                }
+            }
+            if (!seen.contains(fromAccountId) || !seen.contains(toAccountId))
+                throw new IllegalArgumentException("Account not found");
+            if (fromFrozen) throw new IllegalStateException("From account is frozen");
+            if (fromBal.compareTo(amount) < 0) throw new IllegalStateException("Insufficient funds");
+        }
+        try (PreparedStatement deb = c.prepareStatement("UPDATE accounts SET balance = balance - ? WHERE id=?");
+             PreparedStatement cre = c.prepareStatement("UPDATE accounts SET balance = balance + ? WHERE id=?")) {
+            deb.setBigDecimal(1, amount);
+            IdColumns.set(deb, 2, fromAccountId);
+            deb.executeUpdate();
+            cre.setBigDecimal(1, amount);
+            IdColumns.set(cre, 2, toAccountId);
+            cre.executeUpdate();
+        }
+    }
+
+    // GUARDED: the UPDATE itself checks status and funds, so success costs one statement.
+    // VERSIONED: unlocked read, checks in Java, UPDATE conditional on the version that was read.
+    private void debit(Connection c, String accountId, BigDecimal amount, String frozenMessage) throws SQLException {
+        if (writeMode == WriteMode.VERSIONED) {
+            long version;
+            BigDecimal balance;
+            try (PreparedStatement ps = c.prepareStatement("SELECT balance, status, version FROM accounts WHERE id=?")) {
+                IdColumns.set(ps, 1, accountId);
+                try (ResultSet rs = ps.executeQuery()) {
                     if (!rs.next()) throw new IllegalArgumentException("Account not found");
-                    BigDecimal bal = rs.getBigDecimal(1);
-                    if (bal.compareTo(amount) < 0) throw new IllegalStateException("Insufficient funds");
+                    checkDebit(rs.getBigDecimal(1), rs.getString(2), amount, frozenMessage);
+                    balance = rs.getBigDecimal(1);
+                    version = rs.getLong(3);
                 }
             }
-            try (PreparedStatement ps2 = c.prepareStatement(update)) {
-                ps2.setBigDecimal(1, amount);
-                ps2.setString(2, accountId);
-                ps2.executeUpdate();
+            try (PreparedStatement ps = c.prepareStatement(
+                    "UPDATE accounts SET balance = ?, version = version + 1 WHERE id=? AND version=?")) {
+                ps.setBigDecimal(1, balance.subtract(amount));
+                IdColumns.set(ps, 2, accountId);
+                ps.setLong(3, version);
+                if (ps.executeUpdate() == 0) throw new TransactionExecutor.Conflict("Account is busy, try again");
+            }
+            return;
+        }
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE accounts SET balance = balance - ? WHERE id=? AND balance >= ? AND status = 'OPEN'")) {
+            ps.setBigDecimal(1, amount);
+            IdColumns.set(ps, 2, accountId);
+            ps.setBigDecimal(3, amount);
+            if (ps.executeUpdate() == 1) return;
+            // Only failures pay for a second look. It locks the row, so if every check
+            // passes now (a deposit landed in between) the retried UPDATE must succeed.
+            try (PreparedStatement why = c.prepareStatement("SELECT balance, status FROM accounts WHERE id=? FOR UPDATE")) {
+                IdColumns.set(why, 1, accountId);
+                try (ResultSet rs = why.executeQuery()) {
+                    if (!rs.next()) throw new IllegalArgumentException("Account not found");
+                    checkDebit(rs.getBigDecimal(1), rs.getString(2), amount, frozenMessage);
+                }
+            }
+            if (ps.executeUpdate() != 1) throw new IllegalStateException("Account changed during withdrawal");
+        }
+    }
+
+    private static void checkDebit(BigDecimal balance, String status, BigDecimal amount, String frozenMessage) {
+        if (FROZEN.equals(status)) throw new IllegalStateException(frozenMessage);
+        if (!OPEN.equals(status)) throw new IllegalStateException("Account is closed");
+        if (balance.compareTo(amount) < 0) throw new IllegalStateException("Insufficient funds");
+    }
+
+    private void credit(Connection c, String accountId, BigDecimal amount) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "UPDATE accounts SET balance = balance + ?" + bumpVersion() + " WHERE id=?")) {
+            ps.setBigDecimal(1, amount);
+            IdColumns.set(ps, 2, accountId);
+            if (ps.executeUpdate() == 0) throw new IllegalArgumentException("Account not found");
+        }
+    }
+
+    // In VERSIONED mode every write moves the version on, so an optimistic debit notices it.
+    private String bumpVersion() {
+        return writeMode == WriteMode.VERSIONED ? ", version = version + 1" : "";
+    }
+
+    private static boolean isFrozen(Connection c, String accountId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT status FROM accounts WHERE id=?")) {
+            IdColumns.set(ps, 1, accountId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && FROZEN.equals(rs.getString(1));
+            }
+        }
+    }
+
+    public Role getUserRole(String userId) {
+        String sql = "SELECT role FROM users WHERE id=?";
+        try (Connection c = Jdbc.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            IdColumns.set(ps, 1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new IllegalArgumentException("User not found");
+                return Role.valueOf(rs.getString(1));
             }
-            appendTransaction(c, accountId, TransactionType.WITHDRAWAL, amount, note);
-            c.commit();
-            c.setAutoCommit(true);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
-    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
-        if (fromAccountId.equals(toAccountId)) throw new IllegalArgumentException("Cannot transfer to same account");
-        String lock = "SELECT id, balance FROM accounts WHERE id IN (?, ?) FOR UPDATE";
-        try (Connection c = Jdbc.getConnection()) {
-            c.setAutoCommit(false);
-            // Lock both accounts
-            try (PreparedStatement ps = c.prepareStatement(lock)) {
-                ps.setString(1, fromAccountId);
-                ps.setString(2, toAccountId);
-                List<String> seen = new ArrayList<>();
-                BigDecimal fromBal = null;
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        String id = rs.getString("id");
-                        seen.add(id);
-                        if (id.equals(fromAccountId)) fromBal = rs.getBigDecimal("balance");
-                    }
+    public List<Account> getAccountsForUser(String userId) {
+        return BankMetrics.call(Op.LIST_ACCOUNTS, () -> queryAccounts("SELECT " + ACCOUNT_COLUMNS + " FROM accounts WHERE owner_user_id=? ORDER BY created_at, id", userId));
+    }
+
+    // --- Admin ---
+    public Collection<InMemoryStore.UserRecord> getAllUsers() {
+        String sql = "SELECT id, name, email, password_hash, role FROM users ORDER BY created_at, id";
+        List<InMemoryStore.UserRecord> out = new ArrayList<>();
+        try (Connection c = Jdbc.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(new InMemoryStore.UserRecord(IdColumns.get(rs, "id"), rs.getString("name"),
+                        rs.getString("email"), rs.getString("password_hash"), rs.getString("role")));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return out;
+    }
+
+    public Collection<Account> getAllAccounts() {
+        return queryAccounts("SELECT " + ACCOUNT_COLUMNS + " FROM accounts ORDER BY created_at, id");
+    }
+
+    public void freezeAccount(String accountId) {
+        BankMetrics.run(Op.FREEZE, () -> setStatus(accountId, FROZEN));
+    }
+
+    public void unfreezeAccount(String accountId) {
+        BankMetrics.run(Op.UNFREEZE, () -> setStatus(accountId, "OPEN"));
+    }
+
+    private void setStatus(String accountId, String status) {
+        try (Connection c = Jdbc.getConnection();
+             PreparedStatement ps = c.prepareStatement("UPDATE accounts SET status=?" + bumpVersion() + " WHERE id=?")) {
+            ps.setString(1, status);
+            IdColumns.set(ps, 2, accountId);
+            if (ps.executeUpdate() == 0) throw new IllegalArgumentException("Account not found");
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            invalidate(List.of(accountId));
+        }
+    }
+
+    private static List<Account> queryAccounts(String sql, String... params) {
+        List<Account> out = new ArrayList<>();
+        try (Connection c = Jdbc.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) IdColumns.set(ps, i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new Account(IdColumns.get(rs, "id"), IdColumns.get(rs, "owner_user_id"),
+                            rs.getString("account_number"), Money.toMinor(rs.getBigDecimal("balance")),
+                            FROZEN.equals(rs.getString("status"))));
                 }
-                if (!seen.contains(fromAccountId) || !seen.contains(toAccountId))
-                    throw new IllegalArgumentException("Account not found");
-                if (fromBal.compareTo(amount) < 0) throw new IllegalStateException("Insufficient funds");
-            }
-            try (PreparedStatement deb = c.prepareStatement("UPDATE accounts SET balance = balance - ? WHERE id=?");
-                 PreparedStatement cre = c.prepareStatement("UPDATE accounts SET balance = balance + ? WHERE id=?")) {
-                deb.setBigDecimal(1, amount);
-                deb.setString(2, fromAccountId);
-                deb.executeUpdate();
-                cre.setBigDecimal(1, amount);
-                cre.setString(2, toAccountId);
-                cre.executeUpdate();
-            }
-            appendTransaction(c, fromAccountId, TransactionType.TRANSFER_OUT, amount, note);
-            appendTransaction(c, toAccountId, TransactionType.TRANSFER_IN, amount, note);
-            c.commit();
-            c.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
+        return out;
     }
 
     public List<Transaction> getTransactions(String accountId) {
@@ -190,17 +585,10 @@ public class BankServiceJdbc {
         List<Transaction> out = new ArrayList<>();
         try (Connection c = Jdbc.getConnection();
              PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, accountId);
+            IdColumns.set(ps, 1, accountId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    out.add(new Transaction(
-                            rs.getString("id"),
-                            accountId,
-                            TransactionType.valueOf(rs.getString("type")),
-                            rs.getBigDecimal("amount"),
-                            rs.getTimestamp("created_at").toInstant(),
-                            rs.getString("note")
-                    ));
+                    out.add(readTransaction(rs, accountId));
                 }
             }
         } catch (SQLException e) {
@@ -208,4 +596,104 @@ public class BankServiceJdbc {
         }
         return out;
     }
+
+    /**
+     * Full history, oldest first, read row by row from a forward-only result set
+     * (MySQL streams it; other drivers fetch in chunks). The stream holds a
+     * connection until it is closed, so use it in try-with-resources.
+     */
+    public Stream<Transaction> streamTransactions(String accountId) {
+        String sql = "SELECT id, type, amount, note, created_at FROM transactions WHERE account_id=? ORDER BY created_at, id";
+        Connection c = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            c = Jdbc.getConnection();
+            ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            boolean mysql = "MySQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName());
+            ps.setFetchSize(mysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+            IdColumns.set(ps, 1, accountId);
+            rs = ps.executeQuery();
+        } catch (SQLException e) {
+            closeAll(rs, ps, c);
+            throw new RuntimeException(e);
+        }
+        ResultSet rows = rs;
+        Spliterator<Transaction> split = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Transaction> action) {
+                try {
+                    if (!rows.next()) return false;
+                    action.accept(readTransaction(rows, accountId));
+                    return true;
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        AutoCloseable[] resources = {rs, ps, c};
+        return StreamSupport.stream(split, false).onClose(() -> closeAll(resources));
+    }
+
+    private static void closeAll(AutoCloseable... resources) {
+        for (AutoCloseable r : resources) {
+            if (r == null) continue;
+            try {
+                r.close();
+            } catch (Exception ignored) {
+                // best effort; the pool discards broken connections
+            }
+        }
+    }
+
+    // Keyset pagination over idx_tx_account_created (account_id, created_at, id):
+    // every page is an index range scan of pageSize + 1 rows, however deep the cursor.
+    public TransactionPage getTransactionPage(String accountId, TransactionQuery query) {
+        return BankMetrics.call(Op.HISTORY, () -> {
+            StringBuilder sql = new StringBuilder(
+                    "SELECT id, type, amount, note, created_at FROM transactions WHERE account_id=?");
+            if (query.from() != null) sql.append(" AND created_at >= ?");
+            if (query.to() != null) sql.append(" AND created_at < ?");
+            if (query.after() != null) sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+            sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+
+            List<Transaction> out = new ArrayList<>(query.pageSize() + 1);
+            try (Connection c = Jdbc.getConnection();
+                 PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                int i = 1;
+                IdColumns.set(ps, i++, accountId);
+                if (query.from() != null) ps.setTimestamp(i++, Timestamp.from(query.from()));
+                if (query.to() != null) ps.setTimestamp(i++, Timestamp.from(query.to()));
+                if (query.after() != null) {
+                    Timestamp at = Timestamp.from(query.after().createdAt());
+                    ps.setTimestamp(i++, at);
+                    ps.setTimestamp(i++, at);
+                    IdColumns.set(ps, i++, query.after().id());
+                }
+                ps.setInt(i, query.pageSize() + 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(readTransaction(rs, accountId));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            if (out.size() <= query.pageSize()) return new TransactionPage(out, null);
+            List<Transaction> page = out.subList(0, query.pageSize());
+            return new TransactionPage(List.copyOf(page), TransactionCursor.of(page.get(page.size() - 1)));
+        });
+    }
+
+    private static Transaction readTransaction(ResultSet rs, String accountId) throws SQLException {
+        return new Transaction(
+                IdColumns.get(rs, "id"),
+                accountId,
+                TransactionType.valueOf(rs.getString("type")),
+                rs.getBigDecimal("amount"),
+                rs.getTimestamp("created_at").toInstant(),
+                rs.getString("note")
+        );
+    }
 }
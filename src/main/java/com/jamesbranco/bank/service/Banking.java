@@ -0,0 +1,45 @@
+package com.jamesbranco.bank.service;
+
+import com.jamesbranco.bank.model.*;
+import com.jamesbranco.bank.repo.InMemoryStore;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * What front ends need from a banking backend; implemented by the in-memory
+ * {@link BankService} and the MySQL-backed {@link BankServiceJdbc}.
+ */
+public interface Banking {
+
+    String registerUser(String name, String email, String plaintextPassword, Role role);
+
+    String authenticate(String email, String plaintextPassword);
+
+    Role getUserRole(String userId);
+
+    String openCheckingAccount(String userId);
+
+    BigDecimal getBalance(String accountId);
+
+    List<Account> getAccountsForUser(String userId);
+
+    void deposit(String accountId, BigDecimal amount, String note);
+
+    void withdraw(String accountId, BigDecimal amount, String note);
+
+    void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note);
+
+    List<CommandResult> applyBatch(List<Command> commands, BatchMode mode);
+
+    TransactionPage getTransactionPage(String accountId, TransactionQuery query);
+
+    Collection<InMemoryStore.UserRecord> getAllUsers();
+
+    Collection<Account> getAllAccounts();
+
+    void freezeAccount(String accountId);
+
+    void unfreezeAccount(String accountId);
+}
@@ -0,0 +1,112 @@
+package com.jamesbranco.bank.service;
+
+import com.jamesbranco.bank.model.BatchMode;
+import com.jamesbranco.bank.model.Command;
+import com.jamesbranco.bank.model.CommandResult;
+import com.jamesbranco.bank.model.Money;
+
+import java.util.*;
+
+/**
+ * Works out which commands of a batch can be applied, given the balances of
+ * the (already locked) accounts, without touching anything. Services then
+ * apply exactly the commands in applied(), which cannot fail any more.
+ */
+final class BatchPlan {
+    private final List<CommandResult> results;
+    private final List<Command> applied;
+    private final Map<String, Long> balances;
+
+    private BatchPlan(List<CommandResult> results, List<Command> applied, Map<String, Long> balances) {
+        this.results = results;
+        this.applied = applied;
+        this.balances = balances;
+    }
+
+    // Distinct account ids of the batch, sorted, for lock ordering.
+    static List<String> accountIds(List<Command> commands) {
+        TreeSet<String> ids = new TreeSet<>();
+        for (Command c : commands) ids.addAll(c.accountIds());
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * balances holds every account that exists (missing ones fail with "not found");
+     * frozen accounts reject deposits, withdrawals and outgoing transfers.
+     */
+    static BatchPlan evaluate(List<Command> commands, BatchMode mode, Map<String, Long> balances, Set<String> frozen) {
+        Map<String, Long> working = new HashMap<>(balances);
+        List<CommandResult> results = new ArrayList<>(commands.size());
+        List<Command> applied = new ArrayList<>(commands.size());
+        for (Command cmd : commands) {
+            String error;
+            try {
+                error = apply(cmd, working, frozen);
+            } catch (ArithmeticException e) {
+                error = e.getMessage();
+            }
+            if (error == null) {
+                results.add(CommandResult.applied(cmd));
+                applied.add(cmd);
+            } else if (mode == BatchMode.BEST_EFFORT) {
+                results.add(CommandResult.failed(cmd, error));
+            } else {
+                return rolledBack(commands, results.size(), error);
+            }
+        }
+        return new BatchPlan(Collections.unmodifiableList(results), applied, working);
+    }
+
+    private static BatchPlan rolledBack(List<Command> commands, int failedAt, String error) {
+        List<CommandResult> results = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            Command cmd = commands.get(i);
+            results.add(CommandResult.failed(cmd, i == failedAt ? error : CommandResult.ROLLED_BACK));
+        }
+        return new BatchPlan(Collections.unmodifiableList(results), List.of(), Map.of());
+    }
+
+    // Returns an error message, or null after updating working.
+    private static String apply(Command cmd, Map<String, Long> working, Set<String> frozen) {
+        switch (cmd) {
+            case Command.Deposit d -> {
+                Long bal = working.get(d.accountId());
+                if (bal == null) return "Account not found";
+                if (frozen.contains(d.accountId())) return "Account is frozen";
+                working.put(d.accountId(), Money.add(bal, d.amountMinor()));
+            }
+            case Command.Withdraw w -> {
+                Long bal = working.get(w.accountId());
+                if (bal == null) return "Account not found";
+                if (frozen.contains(w.accountId())) return "Account is frozen";
+                if (bal < w.amountMinor()) return "Insufficient funds";
+                working.put(w.accountId(), bal - w.amountMinor());
+            }
+            case Command.Transfer t -> {
+                Long from = working.get(t.fromAccountId());
+                Long to = working.get(t.toAccountId());
+                if (from == null) return "From account not found";
+                if (to == null) return "To account not found";
+                if (frozen.contains(t.fromAccountId())) return "From account is frozen";
+                if (from < t.amountMinor()) return "Insufficient funds";
+                long credited = Money.add(to, t.amountMinor());
+                working.put(t.fromAccountId(), from - t.amountMinor());
+                working.put(t.toAccountId(), credited);
+            }
+        }
+        return null;
+    }
+
+    List<CommandResult> results() {
+        return results;
+    }
+
+    List<Command> applied() {
+        return applied;
+    }
+
+    // Balance after the applied commands, for accounts the batch touched.
+    long finalBalance(String accountId) {
+        return balances.get(accountId);
+    }
+}
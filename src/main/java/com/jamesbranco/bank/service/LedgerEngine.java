@@ -0,0 +1,367 @@
+package com.jamesbranco.bank.service;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Money;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.util.IdGenerator;
+import com.jamesbranco.bank.util.StripedLocks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer execution of money movements.
+ *
+ * Callers claim a slot in a preallocated ring buffer, fill it in and publish
+ * it. One business thread takes the commands in sequence order and decides
+ * them against its own copy of each account's balance and frozen flag, so it
+ * never locks. Accepted commands are handed in batches to a persistence
+ * thread, which applies them to the store (balances and journal, under the
+ * usual stripes, so snapshots stay consistent), waits for durability once
+ * per batch and then completes the callers' futures. Rejected commands fail
+ * their future straight away.
+ *
+ * While an engine runs, every money movement and freeze on its store has to
+ * go through it; the business thread caches account state on first use.
+ * If a step fails to persist, the cache no longer matches the store: the
+ * business thread then waits for persistence to catch up and reloads every
+ * account from the store before deciding anything else.
+ */
+public final class LedgerEngine implements AutoCloseable {
+    private static final int DEPOSIT = 0, WITHDRAW = 1, TRANSFER = 2, FREEZE = 3, UNFREEZE = 4, SKIP = 5;
+    // Spinning only pays off when the other side has a core of its own.
+    private static final int SPINS_BEFORE_PARK = Runtime.getRuntime().availableProcessors() > 1 ? 1_000 : 1;
+
+    private static final class Slot {
+        volatile long published = -1;
+        int op;
+        String account;
+        String other;
+        long amountMinor;
+        String note;
+        CompletableFuture<Void> result;
+    }
+
+    // Business thread's view of one account.
+    private static final class State {
+        final Account account;
+        long balanceMinor;
+        boolean frozen;
+
+        State(Account account) {
+            this.account = account;
+            this.balanceMinor = account.getBalanceMinor();
+            this.frozen = account.isFrozen();
+        }
+    }
+
+    private record Effect(int op, Account account, Account other, long amountMinor, String note,
+                          CompletableFuture<Void> result) {}
+
+    private final InMemoryStore store;
+    private final StripedLocks locks;
+    private final Slot[] ring;
+    private final int mask;
+    private final int maxBatch;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final BlockingQueue<List<Effect>> toPersist = new ArrayBlockingQueue<>(64);
+    private final Map<String, State> accounts = new HashMap<>(); // business thread only
+    private long batchesHandedOff; // business thread only
+    private final AtomicLong batchesPersisted = new AtomicLong();
+    private volatile boolean resync;
+    private final Thread businessThread;
+    private final Thread persistenceThread;
+    private volatile boolean running = true;
+    private volatile boolean businessParked;
+
+    public LedgerEngine(InMemoryStore store) {
+        this(store, 1 << 16, 4_096);
+    }
+
+    public LedgerEngine(InMemoryStore store, int ringSize, int maxBatch) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1)
+            throw new IllegalArgumentException("ringSize must be a power of two");
+        if (maxBatch <= 0) throw new IllegalArgumentException("maxBatch must be positive");
+        this.store = store;
+        this.locks = store.accountLocks();
+        this.ring = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) ring[i] = new Slot();
+        this.mask = ringSize - 1;
+        this.maxBatch = maxBatch;
+        this.businessThread = new Thread(this::runBusiness, "ledger-engine");
+        this.persistenceThread = new Thread(this::runPersistence, "ledger-persistence");
+        businessThread.setDaemon(true);
+        persistenceThread.setDaemon(true);
+        businessThread.start();
+        persistenceThread.start();
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, long amountMinor, String note) {
+        return publish(DEPOSIT, accountId, null, amountMinor, note);
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, long amountMinor, String note) {
+        return publish(WITHDRAW, accountId, null, amountMinor, note);
+    }
+
+    public CompletableFuture<Void> transfer(String fromAccountId, String toAccountId, long amountMinor, String note) {
+        if (fromAccountId.equals(toAccountId)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cannot transfer to same account"));
+        }
+        return publish(TRANSFER, fromAccountId, toAccountId, amountMinor, note);
+    }
+
+    public CompletableFuture<Void> freeze(String accountId) {
+        return publish(FREEZE, accountId, null, 0, null);
+    }
+
+    public CompletableFuture<Void> unfreeze(String accountId) {
+        return publish(UNFREEZE, accountId, null, 0, null);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(businessThread);
+        try {
+            businessThread.join(TimeUnit.SECONDS.toMillis(10));
+            persistenceThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> publish(int op, String account, String other, long amountMinor, String note) {
+        if (amountMinor <= 0 && op <= TRANSFER) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Amount must be positive"));
+        }
+        if (!running) return CompletableFuture.failedFuture(new IllegalStateException("Ledger engine is closed"));
+        long seq = claimed.getAndIncrement();
+        int spins = 0;
+        while (seq - consumed.get() >= ring.length) { // ring full: wait for the business thread
+            if (++spins < SPINS_BEFORE_PARK) Thread.onSpinWait();
+            else LockSupport.parkNanos(10_000);
+        }
+        Slot s = ring[(int) seq & mask];
+        if (!running) {
+            // close() raced the check above and the business thread may already have stopped. The slot
+            // is still published, so a business thread that is waiting for it moves on, but it is skipped.
+            s.op = SKIP;
+            s.published = seq;
+            if (businessParked) LockSupport.unpark(businessThread);
+            return CompletableFuture.failedFuture(new IllegalStateException("Ledger engine is closed"));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        s.op = op;
+        s.account = account;
+        s.other = other;
+        s.amountMinor = amountMinor;
+        s.note = note;
+        s.result = result;
+        s.published = seq;
+        if (businessParked) LockSupport.unpark(businessThread);
+        return result;
+    }
+
+    // --- business thread ---
+
+    private void runBusiness() {
+        long next = 0;
+        List<Effect> batch = new ArrayList<>();
+        int idle = 0;
+        while (true) {
+            Slot s = ring[(int) next & mask];
+            if (s.published != next) {
+                if (!batch.isEmpty()) {
+                    handOff(batch);
+                    batch = new ArrayList<>();
+                    continue;
+                }
+                if (!running && next == claimed.get()) break;
+                if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    businessParked = true;
+                    if (s.published != next) LockSupport.parkNanos(100_000);
+                    businessParked = false;
+                }
+                continue;
+            }
+            idle = 0;
+            if (resync) {
+                if (!batch.isEmpty()) {
+                    handOff(batch);
+                    batch = new ArrayList<>();
+                }
+                resynchronize();
+            }
+            int op = s.op;
+            String account = s.account, other = s.other, note = s.note;
+            long amount = s.amountMinor;
+            CompletableFuture<Void> result = s.result;
+            s.account = s.other = s.note = null;
+            s.result = null;
+            consumed.lazySet(++next);
+            if (op == SKIP) continue;
+            try {
+                Effect e = decide(op, account, other, amount, note, result);
+                batch.add(e);
+                if (batch.size() >= maxBatch) {
+                    handOff(batch);
+                    batch = new ArrayList<>();
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+        handOff(List.of()); // tells the persistence thread to stop
+    }
+
+    private Effect decide(int op, String accountId, String otherId, long amount, String note,
+                          CompletableFuture<Void> result) {
+        switch (op) {
+            case DEPOSIT -> {
+                State a = state(accountId, "Account not found");
+                if (a.frozen) throw new IllegalStateException("Account is frozen");
+                a.balanceMinor = Money.add(a.balanceMinor, amount);
+                return new Effect(op, a.account, null, amount, note, result);
+            }
+            case WITHDRAW -> {
+                State a = state(accountId, "Account not found");
+                if (a.frozen) throw new IllegalStateException("Account is frozen");
+                if (a.balanceMinor < amount) throw new IllegalStateException("Insufficient funds");
+                a.balanceMinor -= amount;
+                return new Effect(op, a.account, null, amount, note, result);
+            }
+            case TRANSFER -> {
+                State from = state(accountId, "From account not found");
+                State to = state(otherId, "To account not found");
+                if (from.frozen) throw new IllegalStateException("From account is frozen");
+                if (from.balanceMinor < amount) throw new IllegalStateException("Insufficient funds");
+                long credited = Money.add(to.balanceMinor, amount);
+                from.balanceMinor -= amount;
+                to.balanceMinor = credited;
+                return new Effect(op, from.account, to.account, amount, note, result);
+            }
+            default -> { // FREEZE, UNFREEZE
+                State a = state(accountId, "Account not found");
+                a.frozen = op == FREEZE;
+                return new Effect(op, a.account, null, 0, null, result);
+            }
+        }
+    }
+
+    private State state(String accountId, String notFound) {
+        State s = accounts.get(accountId);
+        if (s == null) {
+            Account acct = store.findAccountById(accountId)
+                    .orElseThrow(() -> new IllegalArgumentException(notFound));
+            s = new State(acct);
+            accounts.put(accountId, s);
+        }
+        return s;
+    }
+
+    // Once everything decided so far is in the store, drops the cached states so they are reloaded from it.
+    private void resynchronize() {
+        resync = false;
+        while (batchesPersisted.get() < batchesHandedOff) LockSupport.parkNanos(10_000);
+        accounts.clear();
+    }
+
+    private void handOff(List<Effect> batch) {
+        try {
+            toPersist.put(batch);
+            if (!batch.isEmpty()) batchesHandedOff++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            IllegalStateException failure = new IllegalStateException("Ledger engine interrupted");
+            batch.forEach(x -> x.result.completeExceptionally(failure));
+        }
+    }
+
+    // --- persistence thread ---
+
+    private void runPersistence() {
+        while (true) {
+            List<Effect> batch;
+            try {
+                batch = toPersist.take();
+            } catch (InterruptedException e) {
+                continue; // only the business thread's empty batch stops this thread
+            }
+            if (batch.isEmpty()) return;
+            Instant now = Instant.now();
+            for (Effect e : batch) {
+                try {
+                    persist(e, now);
+                } catch (RuntimeException ex) {
+                    resync = true;
+                    e.result.completeExceptionally(ex);
+                }
+            }
+            RuntimeException durability = null;
+            try {
+                store.awaitDurable();
+            } catch (RuntimeException ex) {
+                durability = ex;
+            }
+            for (Effect e : batch) {
+                if (durability != null) e.result.completeExceptionally(durability);
+                else e.result.complete(null);
+            }
+            batchesPersisted.incrementAndGet();
+        }
+    }
+
+    private void persist(Effect e, Instant now) {
+        String id = e.account.getId();
+        switch (e.op) {
+            case DEPOSIT, WITHDRAW -> {
+                locks.lock(id);
+                try {
+                    if (e.op == DEPOSIT) e.account.depositMinor(e.amountMinor);
+                    else e.account.withdrawMinor(e.amountMinor);
+                    store.appendTransaction(new Transaction(IdGenerator.newId(), id,
+                            e.op == DEPOSIT ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL,
+                            e.amountMinor, now, e.note));
+                } finally {
+                    locks.unlock(id);
+                }
+            }
+            case TRANSFER -> {
+                String toId = e.other.getId();
+                locks.lockBoth(id, toId);
+                try {
+                    e.account.withdrawMinor(e.amountMinor);
+                    e.other.depositMinor(e.amountMinor);
+                    store.appendTransactions(List.of(
+                            new Transaction(IdGenerator.newId(), id, TransactionType.TRANSFER_OUT, e.amountMinor, now, e.note),
+                            new Transaction(IdGenerator.newId(), toId, TransactionType.TRANSFER_IN, e.amountMinor, now, e.note)));
+                } finally {
+                    locks.unlockBoth(id, toId);
+                }
+            }
+            default -> {
+                locks.lock(id);
+                try {
+                    store.setFrozen(id, e.op == FREEZE);
+                } finally {
+                    locks.unlock(id);
+                }
+            }
+        }
+    }
+}
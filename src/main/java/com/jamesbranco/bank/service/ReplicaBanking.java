@@ -0,0 +1,105 @@
+package com.jamesbranco.bank.service;
+
+import com.jamesbranco.bank.model.*;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.ReplicationFollower;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-only {@link Banking} over a {@link ReplicationFollower}. Reads are
+ * served from the replica's store exactly as {@link BankService} serves them
+ * from a primary's, and may trail the primary by the follower's lag. Every
+ * write is refused; send it to the primary.
+ */
+public final class ReplicaBanking implements Banking {
+    private record Bound(InMemoryStore store, BankService service) {}
+
+    private final ReplicationFollower follower;
+    private volatile Bound current;
+
+    public ReplicaBanking(ReplicationFollower follower) {
+        this.follower = follower;
+    }
+
+    // The follower swaps in a new store after loading a snapshot.
+    private BankService service() {
+        InMemoryStore store = follower.store();
+        Bound b = current;
+        if (b == null || b.store() != store) {
+            b = new Bound(store, new BankService(store));
+            current = b;
+        }
+        return b.service();
+    }
+
+    private static IllegalStateException readOnly() {
+        return new IllegalStateException("Read-only replica");
+    }
+
+    public String registerUser(String name, String email, String plaintextPassword, Role role) {
+        throw readOnly();
+    }
+
+    public String authenticate(String email, String plaintextPassword) {
+        return service().authenticate(email, plaintextPassword);
+    }
+
+    public Role getUserRole(String userId) {
+        return service().getUserRole(userId);
+    }
+
+    public String openCheckingAccount(String userId) {
+        throw readOnly();
+    }
+
+    public BigDecimal getBalance(String accountId) {
+        return service().getBalance(accountId);
+    }
+
+    public List<Account> getAccountsForUser(String userId) {
+        return service().getAccountsForUser(userId);
+    }
+
+    public void deposit(String accountId, BigDecimal amount, String note) {
+        throw readOnly();
+    }
+
+    public void withdraw(String accountId, BigDecimal amount, String note) {
+        throw readOnly();
+    }
+
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
+        throw readOnly();
+    }
+
+    public List<CommandResult> applyBatch(List<Command> commands, BatchMode mode) {
+        throw readOnly();
+    }
+
+    public List<Transaction> getTransactions(String accountId) {
+        return service().getTransactions(accountId);
+    }
+
+    public TransactionPage getTransactionPage(String accountId, TransactionQuery query) {
+        return service().getTransactionPage(accountId, query);
+    }
+
+    public Collection<InMemoryStore.UserRecord> getAllUsers() {
+        return service().getAllUsers();
+    }
+
+    public Collection<Account> getAllAccounts() {
+        return service().getAllAccounts();
+    }
+
+    public void freezeAccount(String accountId) {
+        throw readOnly();
+    }
+
+    public void unfreezeAccount(String accountId) {
+        throw readOnly();
+    }
+}
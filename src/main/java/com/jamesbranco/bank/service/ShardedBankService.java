@@ -0,0 +1,317 @@
+package com.jamesbranco.bank.service;
+
+import com.jamesbranco.bank.metrics.BankMetrics;
+import com.jamesbranco.bank.metrics.BankMetrics.Op;
+import com.jamesbranco.bank.model.*;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.util.IdGenerator;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * In-memory backend split into shards. Accounts and their journals are
+ * placed by a hash of the account id; each shard is an {@link InMemoryStore}
+ * whose writes all run on that shard's single thread, so shards never
+ * contend with each other and a shard's locks are never contended.
+ * Users live in one directory store (they are read-mostly and need a global
+ * email index).
+ *
+ * A transfer within one shard is an ordinary local transfer. Across shards
+ * it runs in two phases: the source shard reserves the amount (checks and
+ * debits it, nothing journaled yet), the destination shard credits it, and
+ * then the source shard either commits the reservation by journaling the
+ * TRANSFER_OUT or, if the credit failed, releases it by putting the money
+ * back. If the commit itself fails, the destination journals a compensating
+ * TRANSFER_OUT that takes the credit back out before the reservation is
+ * released. Money is taken out before it is put in, so at no point does it
+ * exist twice; while a transfer is in flight the sum of balances is short by
+ * its amount.
+ *
+ * Balance and history reads go straight to the shard's store. Admin listings
+ * and per-user account lists ask every shard and merge. All-or-nothing
+ * batches have to stay within one shard.
+ */
+public final class ShardedBankService implements Banking, AutoCloseable {
+
+    private static final class Shard {
+        final InMemoryStore store;
+        final BankService service;
+        final ExecutorService executor;
+
+        Shard(int index, InMemoryStore store) {
+            this.store = store;
+            this.service = new BankService(store);
+            executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("bank-shard-" + index).daemon().factory());
+        }
+
+        <T> T call(Supplier<T> work) {
+            try {
+                return CompletableFuture.supplyAsync(work, executor).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+        }
+
+        void run(Runnable work) {
+            call(() -> {
+                work.run();
+                return null;
+            });
+        }
+    }
+
+    private final BankService directory = new BankService(new InMemoryStore());
+    private final Shard[] shards;
+
+    public ShardedBankService(int shardCount) {
+        this(shardCount, InMemoryStore::new);
+    }
+
+    // newStore builds each shard's store, in shard order (e.g. with a packed or tiered journal).
+    public ShardedBankService(int shardCount, Supplier<InMemoryStore> newStore) {
+        if (shardCount <= 0) throw new IllegalArgumentException("shardCount must be positive");
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) shards[i] = new Shard(i, newStore.get());
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public int shardOf(String accountId) {
+        int h = accountId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards.length);
+    }
+
+    private Shard shard(String accountId) {
+        return shards[shardOf(accountId)];
+    }
+
+    // --- Users (directory) ---
+
+    public String registerUser(String name, String email, String plaintextPassword, Role role) {
+        return directory.registerUser(name, email, plaintextPassword, role);
+    }
+
+    public String authenticate(String email, String plaintextPassword) {
+        return directory.authenticate(email, plaintextPassword);
+    }
+
+    public Role getUserRole(String userId) {
+        return directory.getUserRole(userId);
+    }
+
+    public Collection<InMemoryStore.UserRecord> getAllUsers() {
+        return directory.getAllUsers();
+    }
+
+    // --- Accounts ---
+
+    public String openCheckingAccount(String userId) {
+        return BankMetrics.call(Op.OPEN_ACCOUNT, () -> {
+            directory.getUserRole(userId); // throws "User not found"
+            String accountId = IdGenerator.newId();
+            Account acct = new Account(accountId, userId, IdGenerator.newAccountNumber());
+            Shard s = shard(accountId);
+            s.run(() -> s.store.saveAccount(acct));
+            return accountId;
+        });
+    }
+
+    public BigDecimal getBalance(String accountId) {
+        return shard(accountId).service.getBalance(accountId);
+    }
+
+    // Account ids are time-ordered, so sorting by id gives opening order.
+    public List<Account> getAccountsForUser(String userId) {
+        return BankMetrics.call(Op.LIST_ACCOUNTS, () -> {
+            List<Account> out = new ArrayList<>();
+            for (Shard s : shards) out.addAll(s.store.findAccountsByUserId(userId));
+            out.sort(Comparator.comparing(Account::getId));
+            return out;
+        });
+    }
+
+    public Collection<Account> getAllAccounts() {
+        List<Account> out = new ArrayList<>();
+        for (Shard s : shards) out.addAll(s.store.findAllAccounts());
+        return out;
+    }
+
+    public void freezeAccount(String accountId) {
+        Shard s = shard(accountId);
+        s.run(() -> s.service.freezeAccount(accountId));
+    }
+
+    public void unfreezeAccount(String accountId) {
+        Shard s = shard(accountId);
+        s.run(() -> s.service.unfreezeAccount(accountId));
+    }
+
+    // --- Money movements ---
+
+    public void deposit(String accountId, BigDecimal amount, String note) {
+        Shard s = shard(accountId);
+        s.run(() -> s.service.deposit(accountId, amount, note));
+    }
+
+    public void depositMinor(String accountId, long amountMinor, String note) {
+        Shard s = shard(accountId);
+        s.run(() -> s.service.depositMinor(accountId, amountMinor, note));
+    }
+
+    public void withdraw(String accountId, BigDecimal amount, String note) {
+        Shard s = shard(accountId);
+        s.run(() -> s.service.withdraw(accountId, amount, note));
+    }
+
+    public void withdrawMinor(String accountId, long amountMinor, String note) {
+        Shard s = shard(accountId);
+        s.run(() -> s.service.withdrawMinor(accountId, amountMinor, note));
+    }
+
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount, String note) {
+        if (amount == null || amount.signum() <= 0) throw new IllegalArgumentException("Amount must be positive");
+        transferMinor(fromAccountId, toAccountId, Money.toMinor(amount), note);
+    }
+
+    public void transferMinor(String fromAccountId, String toAccountId, long amountMinor, String note) {
+        Shard from = shard(fromAccountId), to = shard(toAccountId);
+        if (from == to) {
+            from.run(() -> from.service.transferMinor(fromAccountId, toAccountId, amountMinor, note));
+            return;
+        }
+        BankMetrics.run(Op.TRANSFER, () -> {
+            Account source = from.call(() -> reserve(from, fromAccountId, amountMinor));
+            Instant now = Instant.now();
+            try {
+                to.run(() -> credit(to, toAccountId, amountMinor, now, note));
+            } catch (RuntimeException e) {
+                from.run(() -> release(from, source, amountMinor));
+                throw e;
+            }
+            try {
+                from.run(() -> from.store.appendTransaction(new Transaction(IdGenerator.newId(), fromAccountId,
+                        TransactionType.TRANSFER_OUT, amountMinor, now, note)));
+            } catch (RuntimeException e) {
+                // The credit is journaled, so the reservation can only go back once the credit is undone.
+                try {
+                    to.run(() -> reverse(to, toAccountId, amountMinor, note));
+                    from.run(() -> release(from, source, amountMinor));
+                } catch (RuntimeException compensation) {
+                    e.addSuppressed(compensation);
+                }
+                throw e;
+            }
+        });
+    }
+
+    // Phase one, on the source shard: the same checks as a local transfer, then the debit.
+    private static Account reserve(Shard s, String accountId, long amountMinor) {
+        Account a = s.store.findAccountById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException("From account not found"));
+        s.store.accountLocks().lock(accountId);
+        try {
+            if (a.isFrozen()) throw new IllegalStateException("From account is frozen");
+            a.withdrawMinor(amountMinor);
+        } finally {
+            s.store.accountLocks().unlock(accountId);
+        }
+        return a;
+    }
+
+    private static void credit(Shard s, String accountId, long amountMinor, Instant at, String note) {
+        Account a = s.store.findAccountById(accountId)
+                .orElseThrow(() -> new IllegalArgumentException("To account not found"));
+        s.store.accountLocks().lock(accountId);
+        try {
+            a.depositMinor(amountMinor);
+            s.store.appendTransaction(new Transaction(IdGenerator.newId(), accountId,
+                    TransactionType.TRANSFER_IN, amountMinor, at, note));
+        } finally {
+            s.store.accountLocks().unlock(accountId);
+        }
+    }
+
+    private static void reverse(Shard s, String accountId, long amountMinor, String note) {
+        Account a = s.store.findAccountById(accountId).orElseThrow();
+        s.store.accountLocks().lock(accountId);
+        try {
+            a.withdrawMinor(amountMinor);
+            s.store.appendTransaction(new Transaction(IdGenerator.newId(), accountId,
+                    TransactionType.TRANSFER_OUT, amountMinor, Instant.now(), note));
+        } finally {
+            s.store.accountLocks().unlock(accountId);
+        }
+    }
+
+    private static void release(Shard s, Account a, long amountMinor) {
+        s.store.accountLocks().lock(a.getId());
+        try {
+            a.depositMinor(amountMinor);
+        } finally {
+            s.store.accountLocks().unlock(a.getId());
+        }
+    }
+
+    /**
+     * Single-shard batches run on their shard like any batch. Best-effort
+     * batches spanning shards are applied command by command.
+     */
+    public List<CommandResult> applyBatch(List<Command> commands, BatchMode mode) {
+        Set<Integer> touched = new HashSet<>();
+        for (String id : BatchPlan.accountIds(commands)) touched.add(shardOf(id));
+        if (touched.size() <= 1) {
+            Shard s = touched.isEmpty() ? shards[0] : shards[touched.iterator().next()];
+            return s.call(() -> s.service.applyBatch(commands, mode));
+        }
+        if (mode != BatchMode.BEST_EFFORT) {
+            throw new IllegalStateException("All-or-nothing batches must stay within one shard");
+        }
+        return BankMetrics.call(Op.BATCH, () -> {
+            List<CommandResult> results = new ArrayList<>(commands.size());
+            for (Command cmd : commands) {
+                try {
+                    switch (cmd) {
+                        case Command.Deposit d -> depositMinor(d.accountId(), d.amountMinor(), d.note());
+                        case Command.Withdraw w -> withdrawMinor(w.accountId(), w.amountMinor(), w.note());
+                        case Command.Transfer t -> transferMinor(t.fromAccountId(), t.toAccountId(), t.amountMinor(), t.note());
+                    }
+                    results.add(CommandResult.applied(cmd));
+                } catch (IllegalArgumentException | IllegalStateException | ArithmeticException e) {
+                    results.add(CommandResult.failed(cmd, e.getMessage()));
+                }
+            }
+            return results;
+        });
+    }
+
+    // --- History ---
+
+    public List<Transaction> getTransactions(String accountId) {
+        return shard(accountId).store.getTransactions(accountId);
+    }
+
+    public TransactionPage getTransactionPage(String accountId, TransactionQuery query) {
+        return shard(accountId).service.getTransactionPage(accountId, query);
+    }
+
+    /** Waits for work already handed to the shards, then stops their threads. */
+    @Override
+    public void close() {
+        for (Shard s : shards) s.executor.close();
+    }
+}
@@ -0,0 +1,32 @@
+package com.jamesbranco.bank.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out account numbers: 11 digits of a sequence plus a Luhn check digit.
+ * The sequence starts no lower than a clock floor (100 per second since 2024)
+ * or {@link #reserveThrough} the highest number already stored, whichever is
+ * higher. {@link IdGenerator} keeps the process-wide one; tests can use their own.
+ */
+public final class AccountNumberSequence {
+    private static final long EPOCH_SECONDS = Instant.parse("2024-01-01T00:00:00Z").getEpochSecond();
+    private static final long LIMIT = 100_000_000_000L; // 11 digits
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public String next() {
+        long floor = (System.currentTimeMillis() / 1000 - EPOCH_SECONDS) * 100;
+        long seq = sequence.updateAndGet(v -> Math.max(v + 1, floor));
+        if (seq >= LIMIT) throw new IllegalStateException("Account numbers exhausted");
+        return IdGenerator.withCheckDigit(seq);
+    }
+
+    /** Makes later account numbers sort after the given one (e.g. the highest found in storage). */
+    public void reserveThrough(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != 12 || !accountNumber.chars().allMatch(Character::isDigit))
+            return; // not one of ours
+        long seq = Long.parseLong(accountNumber.substring(0, 11));
+        sequence.accumulateAndGet(seq, Math::max);
+    }
+}
@@ -1,12 +1,80 @@
 package com.jamesbranco.bank.util;
 
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Ids and account numbers.
+ *
+ * Ids are version 7 UUIDs: 48 bits of Unix milliseconds, then a 12-bit
+ * per-thread counter, then 62 random bits. Each thread keeps its own clock
+ * and counter, so ids from one thread always increase and no two threads
+ * touch shared state; the random tail keeps threads apart. Because they sort
+ * by creation time, new rows land at the end of a B-tree primary key rather
+ * than all over it.
+ *
+ * Account numbers come from one process-wide {@link AccountNumberSequence}:
+ * 11 digits plus a Luhn check digit, starting no lower than
+ * {@link #reserveAccountNumbersThrough} the highest number already stored.
+ */
 public final class IdGenerator {
+    private static final class Clock {
+        long millis;
+        int counter;
+    }
+
+    private static final ThreadLocal<Clock> CLOCK = ThreadLocal.withInitial(Clock::new);
+    private static final AccountNumberSequence ACCOUNT_NUMBERS = new AccountNumberSequence();
+
     private IdGenerator() {}
-    public static String newId() { return UUID.randomUUID().toString(); }
+
+    public static String newId() {
+        return newUuid().toString();
+    }
+
+    public static UUID newUuid() {
+        Clock clock = CLOCK.get();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+        if (now > clock.millis) {
+            clock.millis = now;
+            clock.counter = random.nextInt(1 << 11); // random start, leaving room to count up
+        } else if (++clock.counter > 0xFFF) {
+            clock.millis++; // counter exhausted, or the clock went back: borrow the next millisecond
+            clock.counter = 0;
+        }
+        long msb = clock.millis << 16 | 0x7000L | clock.counter;
+        long lsb = random.nextLong() & 0x3FFF_FFFF_FFFF_FFFFL | 0x8000_0000_0000_0000L;
+        return new UUID(msb, lsb);
+    }
+
     public static String newAccountNumber() {
-        return String.valueOf(Math.abs(UUID.randomUUID().getMostSignificantBits()))
-                .substring(0, 12);
+        return ACCOUNT_NUMBERS.next();
+    }
+
+    /** Makes later account numbers sort after the given one (e.g. the highest found in storage). */
+    public static void reserveAccountNumbersThrough(String accountNumber) {
+        ACCOUNT_NUMBERS.reserveThrough(accountNumber);
+    }
+
+    public static boolean isValidAccountNumber(String accountNumber) {
+        return accountNumber != null && accountNumber.length() == 12 && accountNumber.chars().allMatch(Character::isDigit)
+                && withCheckDigit(Long.parseLong(accountNumber.substring(0, 11))).equals(accountNumber);
+    }
+
+    static String withCheckDigit(long seq) {
+        char[] digits = new char[12];
+        for (int i = 10; i >= 0; i--, seq /= 10) digits[i] = (char) ('0' + seq % 10);
+        int sum = 0;
+        for (int i = 10, pos = 0; i >= 0; i--, pos++) { // Luhn: double every other digit from the right
+            int d = digits[i] - '0';
+            if (pos % 2 == 0) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+        }
+        digits[11] = (char) ('0' + (10 - sum % 10) % 10);
+        return new String(digits);
     }
 }
@@ -0,0 +1,80 @@
+package com.jamesbranco.bank.util;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that keys (account ids) are hashed onto.
+ * Multi-key acquisition always happens in ascending stripe order, so two
+ * threads locking overlapping key sets can never deadlock.
+ */
+public final class StripedLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLocks(int minStripes) {
+        if (minStripes <= 0) throw new IllegalArgumentException("minStripes must be positive");
+        int n = minStripes == 1 ? 1 : Integer.highestOneBit(minStripes - 1) << 1;
+        stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) stripes[i] = new ReentrantLock();
+        mask = n - 1;
+    }
+
+    public StripedLocks() {
+        this(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+    }
+
+    public int stripeCount() { return stripes.length; }
+
+    public int stripeOf(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public void lock(String key) { stripes[stripeOf(key)].lock(); }
+
+    public void unlock(String key) { stripes[stripeOf(key)].unlock(); }
+
+    public void lockBoth(String a, String b) {
+        int i = stripeOf(a), j = stripeOf(b);
+        if (i == j) {
+            stripes[i].lock();
+        } else {
+            stripes[Math.min(i, j)].lock();
+            stripes[Math.max(i, j)].lock();
+        }
+    }
+
+    public void unlockBoth(String a, String b) {
+        int i = stripeOf(a), j = stripeOf(b);
+        stripes[i].unlock();
+        if (i != j) stripes[j].unlock();
+    }
+
+    // Locks the stripes of all keys, each once, in ascending order; pass the result to unlockAll.
+    public int[] lockAll(Collection<String> keys) {
+        int[] ids = keys.stream().mapToInt(this::stripeOf).sorted().distinct().toArray();
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                stripes[ids[i]].lock();
+            } catch (RuntimeException e) {
+                for (int j = i - 1; j >= 0; j--) stripes[ids[j]].unlock();
+                throw e;
+            }
+        }
+        return ids;
+    }
+
+    public void unlockAll(int[] stripeIds) {
+        for (int i = stripeIds.length - 1; i >= 0; i--) stripes[stripeIds[i]].unlock();
+    }
+
+    // Stop-the-world: every stripe, in index order.
+    public void lockEverything() {
+        for (ReentrantLock l : stripes) l.lock();
+    }
+
+    public void unlockEverything() {
+        for (int i = stripes.length - 1; i >= 0; i--) stripes[i].unlock();
+    }
+}
@@ -0,0 +1,84 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.AsyncBanking;
+import com.jamesbranco.bank.service.AsyncConfig;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.service.Banking;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncBankingTest {
+
+    @Test
+    void callsOnOneAccountRunInSubmissionOrder() throws Exception {
+        BankService bank = new BankService(new InMemoryStore());
+        String user = bank.registerUser("Async", "async@e.com", "pw", Role.CUSTOMER);
+        String a = bank.openCheckingAccount(user);
+        String b = bank.openCheckingAccount(user);
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (AsyncBanking async = new AsyncBanking(bank, new AsyncConfig(8, virtual, 10_000, 30_000))) {
+                List<CompletableFuture<?>> calls = new ArrayList<>();
+                for (int i = 1; i <= 200; i++) {
+                    calls.add(async.deposit(a, BigDecimal.ONE, "d" + i));
+                    // only succeeds if the deposit before it has already run
+                    calls.add(async.transfer(a, b, BigDecimal.ONE, "t" + i));
+                }
+                CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+                var missing = assertThrows(ExecutionException.class, () -> async.deposit(null, BigDecimal.ONE, null).get());
+                assertInstanceOf(IllegalArgumentException.class, missing.getCause());
+                assertEquals(0, async.inFlight());
+            }
+        }
+        assertEquals(0, bank.getBalance(a).signum());
+        assertEquals(new BigDecimal("400.00"), bank.getBalance(b));
+        List<Transaction> history = bank.getTransactions(a);
+        assertEquals("d1", history.get(0).getNote());
+        assertEquals("t200", history.get(history.size() - 1).getNote());
+    }
+
+    @Test
+    void rejectsBeyondMaxInFlightAndSkipsCallsThatTimedOutInTheQueue() throws Exception {
+        BankService real = new BankService(new InMemoryStore());
+        String user = real.registerUser("Slow", "slow@e.com", "pw", Role.CUSTOMER);
+        String a = real.openCheckingAccount(user);
+        String b = real.openCheckingAccount(user);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger balanceReads = new AtomicInteger();
+        Banking slow = (Banking) Proxy.newProxyInstance(Banking.class.getClassLoader(), new Class<?>[]{Banking.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getBalance")) {
+                        balanceReads.incrementAndGet();
+                        release.await();
+                    }
+                    return method.invoke(real, args);
+                });
+
+        try (AsyncBanking async = new AsyncBanking(slow, new AsyncConfig(1, false, 3, 200))) {
+            CompletableFuture<BigDecimal> running = async.getBalance(a);
+            CompletableFuture<BigDecimal> queued = async.getBalance(b);
+            CompletableFuture<?> alsoQueued = async.getAllAccounts();
+            var overload = assertThrows(ExecutionException.class, () -> async.deposit(a, BigDecimal.ONE, null).get());
+            assertInstanceOf(RejectedExecutionException.class, overload.getCause());
+            assertEquals(1, async.rejected());
+
+            for (CompletableFuture<?> f : List.of(running, queued, alsoQueued)) {
+                var timeout = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(TimeoutException.class, timeout.getCause());
+            }
+            assertEquals(3, async.inFlight()); // the worker is still busy, so nothing is freed yet
+            release.countDown();
+        }
+        assertEquals(1, balanceReads.get()); // the queued calls were dropped, not run late
+    }
+}
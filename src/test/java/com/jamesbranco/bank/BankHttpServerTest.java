@@ -0,0 +1,131 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.http.BankHttpServer;
+import com.jamesbranco.bank.http.HttpConfig;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankHttpServerTest {
+    private BankService bank;
+    private BankHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() {
+        bank = new BankService(new InMemoryStore());
+        server = BankHttpServer.start(bank,
+                new HttpConfig(0, 64, 1024, 100, 1));
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void moneyFlowOverHttp() throws Exception {
+        String userId = field(post("/users", "{\"name\":\"Web\",\"email\":\"w@e.com\",\"password\":\"pw\"}", null, 201), "userId");
+        String login = post("/auth", "{\"email\":\"w@e.com\",\"password\":\"pw\"}", null, 200);
+        assertEquals(userId, field(login, "userId"));
+        String customer = field(login, "token");
+        post("/auth", "{\"email\":\"w@e.com\",\"password\":\"nope\"}", null, 401);
+
+        post("/accounts", "{\"userId\":\"" + userId + "\"}", null, 401);
+        String a1 = field(post("/accounts", "{\"userId\":\"" + userId + "\"}", customer, 201), "accountId");
+        String a2 = field(post("/accounts", "{\"userId\":\"" + userId + "\"}", customer, 201), "accountId");
+        post("/accounts/" + a1 + "/deposit", "{\"amount\":\"100.00\"}", null, 401);
+        assertTrue(post("/accounts/" + a1 + "/deposit", "{\"amount\":\"100.00\",\"note\":\"seed\"}", customer, 200)
+                .contains("\"balance\":100.00"));
+        post("/transfers", "{\"from\":\"" + a1 + "\",\"to\":\"" + a2 + "\",\"amount\":30.5}", customer, 200);
+        post("/accounts/" + a1 + "/withdraw", "{\"amount\":\"1000.00\"}", customer, 409);
+        post("/accounts/missing/deposit", "{\"amount\":\"1.00\"}", customer, 403);
+        post("/accounts/" + a1 + "/deposit", "{\"amount\":\"1.00\",\"note\":\"" + "x".repeat(2000) + "\"}", customer, 413);
+        post("/accounts/" + a1 + "/deposit", "{\"amount\":", customer, 400);
+
+        get("/accounts/" + a2 + "/balance", null, 401);
+        assertTrue(get("/accounts/" + a2 + "/balance", customer, 200).contains("\"balance\":30.50"));
+        String page = get("/accounts/" + a1 + "/transactions?limit=1", customer, 200);
+        assertTrue(page.contains("TRANSFER_OUT"));
+        String next = field(page, "next");
+        String older = get("/accounts/" + a1 + "/transactions?limit=1&cursor=" + next, customer, 200);
+        assertTrue(older.contains("\"note\":\"seed\""));
+        assertTrue(older.endsWith("\"next\":null}"));
+
+        // another customer can be paid, but cannot see or move the first one's money
+        String eveId = field(post("/users", "{\"name\":\"Eve\",\"email\":\"e@e.com\",\"password\":\"pw\"}", null, 201), "userId");
+        String eve = field(post("/auth", "{\"email\":\"e@e.com\",\"password\":\"pw\"}", null, 200), "token");
+        String e1 = field(post("/accounts", "{\"userId\":\"" + eveId + "\"}", eve, 201), "accountId");
+        post("/accounts", "{\"userId\":\"" + userId + "\"}", eve, 403);
+        get("/users/" + userId + "/accounts", eve, 403);
+        get("/accounts/" + a1 + "/balance", eve, 403);
+        get("/accounts/" + a1 + "/transactions", eve, 403);
+        post("/accounts/" + a1 + "/withdraw", "{\"amount\":\"1.00\"}", eve, 403);
+        post("/transfers", "{\"from\":\"" + a1 + "\",\"to\":\"" + e1 + "\",\"amount\":1}", eve, 403);
+        post("/transfers", "{\"from\":\"" + a1 + "\",\"to\":\"" + e1 + "\",\"amount\":1}", customer, 200);
+        assertTrue(get("/accounts/" + e1 + "/balance", eve, 200).contains("\"balance\":1.00"));
+        assertTrue(get("/users/" + userId + "/accounts", customer, 200).contains(a2));
+
+        get("/admin/accounts", null, 401);
+        get("/admin/accounts", customer, 403);
+
+        post("/users", "{\"name\":\"Root\",\"email\":\"r@e.com\",\"password\":\"pw\",\"role\":\"ADMIN\"}", null, 401);
+        post("/users", "{\"name\":\"Root\",\"email\":\"r@e.com\",\"password\":\"pw\",\"role\":\"ADMIN\"}", customer, 403);
+        post("/users", "{\"name\":\"Root\",\"email\":\"r@e.com\",\"password\":\"pw\",\"role\":\"ROOT\"}", null, 400);
+        bank.registerUser("Root", "r@e.com", "pw", Role.ADMIN);
+        String admin = field(post("/auth", "{\"email\":\"r@e.com\",\"password\":\"pw\"}", null, 200), "token");
+        post("/users", "{\"name\":\"Ops\",\"email\":\"o@e.com\",\"password\":\"pw\",\"role\":\"ADMIN\"}", admin, 201);
+        assertTrue(get("/accounts/" + a1 + "/balance", admin, 200).contains("\"balance\":68.50"));
+        post("/accounts/missing/deposit", "{\"amount\":\"1.00\"}", admin, 404);
+        post("/admin/accounts/" + a1 + "/freeze", "", admin, 200);
+        post("/accounts/" + a1 + "/deposit", "{\"amount\":\"1.00\"}", customer, 409);
+        assertTrue(get("/admin/accounts", admin, 200).contains("\"frozen\":true"));
+        String metrics = get("/admin/metrics", admin, 200);
+        assertTrue(metrics.contains("{\"name\":\"transfer\",\"count\":"));
+        assertTrue(metrics.contains("\"sessions\":{\"active\":3,"), metrics);
+
+        assertTrue(send(request("/admin/users/" + userId + "/sessions", admin).DELETE().build(), 200)
+                .contains("\"revoked\":1"));
+        get("/accounts/" + a2 + "/balance", customer, 401);
+        send(request("/auth", admin).DELETE().build(), 200);
+        get("/admin/accounts", admin, 401);
+        get("/nowhere", null, 404);
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path));
+        return token == null ? b : b.header("Authorization", "Bearer " + token);
+    }
+
+    private String post(String path, String json, String token, int expectedStatus) throws Exception {
+        return send(request(path, token).POST(HttpRequest.BodyPublishers.ofString(json)).build(), expectedStatus);
+    }
+
+    private String get(String path, String token, int expectedStatus) throws Exception {
+        return send(request(path, token).build(), expectedStatus);
+    }
+
+    private String send(HttpRequest req, int expectedStatus) throws Exception {
+        HttpResponse<String> res = client.send(req, HttpResponse.BodyHandlers.ofString());
+        assertEquals(expectedStatus, res.statusCode(), res.body());
+        return res.body();
+    }
+
+    private static String field(String json, String name) {
+        Matcher m = Pattern.compile("\"" + name + "\":\"([^\"]*)\"").matcher(json);
+        assertTrue(m.find(), json);
+        return m.group(1);
+    }
+}
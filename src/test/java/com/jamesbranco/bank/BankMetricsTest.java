@@ -0,0 +1,80 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.metrics.BankMetrics;
+import com.jamesbranco.bank.metrics.BankMetrics.Failure;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.service.BankServiceJdbc;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankMetricsTest {
+    @Test
+    void countsCallsAndFailureReasonsAndEmitsJfrEvents(@TempDir Path dir) throws Exception {
+        BankMetrics.reset();
+        BankService bank = new BankService(new InMemoryStore());
+        String user = bank.registerUser("Ann", "ann@example.com", "pw", Role.CUSTOMER);
+        String acct = bank.openCheckingAccount(user);
+
+        Path jfr = dir.resolve("bank.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.jamesbranco.bank.Operation");
+            recording.start();
+            bank.deposit(acct, new BigDecimal("10.00"), null);
+            assertThrows(IllegalStateException.class, () -> bank.withdraw(acct, new BigDecimal("50.00"), null));
+            assertThrows(IllegalArgumentException.class, () -> bank.authenticate("ann@example.com", "wrong"));
+            bank.freezeAccount(acct);
+            assertThrows(IllegalStateException.class, () -> bank.deposit(acct, BigDecimal.ONE, null));
+            recording.stop();
+            recording.dump(jfr);
+        }
+
+        BankMetrics.Snapshot snapshot = BankMetrics.snapshot();
+        assertEquals(2, stats(snapshot.operations(), "DEPOSIT").count());
+        assertEquals(1L, stats(snapshot.operations(), "DEPOSIT").failures().get(Failure.ACCOUNT_FROZEN));
+        assertEquals(1L, stats(snapshot.operations(), "WITHDRAW").failures().get(Failure.INSUFFICIENT_FUNDS));
+        assertEquals(1L, stats(snapshot.operations(), "AUTHENTICATE").failures().get(Failure.BAD_CREDENTIALS));
+        assertTrue(stats(snapshot.operations(), "REGISTER").failures().isEmpty());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(jfr);
+        assertEquals(5, events.size());
+        assertTrue(events.stream().anyMatch(e -> e.getString("operation").equals("WITHDRAW")
+                && e.getString("outcome").equals("INSUFFICIENT_FUNDS")));
+
+        BankMetrics.setEnabled(false);
+        try {
+            bank.getBalance(acct);
+            assertEquals(0, stats(BankMetrics.snapshot().operations(), "BALANCE").count());
+        } finally {
+            BankMetrics.setEnabled(true);
+        }
+    }
+
+    @Test
+    void timesJdbcStatementsAndCommits() {
+        TestDatabase.reset();
+        BankMetrics.reset();
+        try (BankServiceJdbc bank = new BankServiceJdbc()) {
+            String user = bank.registerUser("Bob", "bob@example.com", "pw", Role.CUSTOMER);
+            bank.deposit(bank.openCheckingAccount(user), new BigDecimal("5.00"), null);
+        }
+        BankMetrics.Snapshot snapshot = BankMetrics.snapshot();
+        assertTrue(stats(snapshot.database(), "DB_STATEMENT").count() >= 4);
+        assertTrue(stats(snapshot.database(), "DB_COMMIT").count() >= 1);
+        assertTrue(stats(snapshot.database(), "DB_ACQUIRE").count() >= 3);
+    }
+
+    private static BankMetrics.Stats stats(List<BankMetrics.Stats> all, String name) {
+        return all.stream().filter(s -> s.name().equals(name)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,240 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.export.TransactionExporter;
+import com.jamesbranco.bank.jdbc.AccountCache;
+import com.jamesbranco.bank.jdbc.AccountCacheConfig;
+import com.jamesbranco.bank.jdbc.GroupCommitConfig;
+import com.jamesbranco.bank.jdbc.IdColumns;
+import com.jamesbranco.bank.jdbc.Jdbc;
+import com.jamesbranco.bank.jdbc.SchemaScript;
+import com.jamesbranco.bank.jdbc.WriteMode;
+import com.jamesbranco.bank.model.BatchMode;
+import com.jamesbranco.bank.model.Command;
+import com.jamesbranco.bank.model.CommandResult;
+import com.jamesbranco.bank.model.ReadConsistency;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.service.BankServiceJdbc;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankServiceJdbcTest {
+
+    @BeforeEach
+    void resetDatabase() {
+        TestDatabase.reset();
+    }
+
+    @Test
+    void groupCommitReportsEachCallerIndividually() throws Exception {
+        try (var bank = new BankServiceJdbc(new GroupCommitConfig(true, 16, 2_000))) {
+            String userId = bank.registerUser("Group", "group@e.com", "pw", Role.CUSTOMER);
+            String a1 = bank.openCheckingAccount(userId);
+            String a2 = bank.openCheckingAccount(userId);
+            bank.deposit(a1, new BigDecimal("100.00"), "seed");
+
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            List<Future<?>> ok = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                ok.add(pool.submit(() -> bank.transfer(a1, a2, new BigDecimal("1.00"), "payroll")));
+            }
+            Future<?> tooMuch = pool.submit(() -> bank.withdraw(a2, new BigDecimal("1000.00"), "nope"));
+            Future<?> missing = pool.submit(() -> bank.deposit("no-such-account", new BigDecimal("1.00"), "nope"));
+            for (Future<?> f : ok) f.get(30, TimeUnit.SECONDS);
+            var e1 = assertThrows(ExecutionException.class, () -> tooMuch.get(30, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e1.getCause());
+            var e2 = assertThrows(ExecutionException.class, () -> missing.get(30, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e2.getCause());
+            pool.shutdown();
+
+            assertEquals(new BigDecimal("60.00"), bank.getBalance(a1));
+            assertEquals(new BigDecimal("40.00"), bank.getBalance(a2));
+            assertEquals(41, bank.getTransactions(a1).size());
+            assertEquals(40, bank.getTransactions(a2).size());
+        }
+    }
+
+    @Test
+    void keysetPagesCoverHistoryWithoutOverlap() {
+        try (var bank = new BankServiceJdbc(GroupCommitConfig.disabled())) {
+            String userId = bank.registerUser("Pages", "pages@e.com", "pw", Role.CUSTOMER);
+            String a1 = bank.openCheckingAccount(userId);
+            for (int i = 1; i <= 23; i++) {
+                bank.deposit(a1, new BigDecimal(i), "d" + i);
+            }
+            var query = TransactionQuery.firstPage(5);
+            Set<String> seen = new HashSet<>();
+            int pages = 0;
+            TransactionPage page;
+            do {
+                page = bank.getTransactionPage(a1, query);
+                pages++;
+                page.items().forEach(t -> assertTrue(seen.add(t.getId())));
+                if (page.hasMore()) query = query.next(page);
+            } while (page.hasMore());
+            assertEquals(23, seen.size());
+            assertEquals(5, pages);
+        }
+    }
+
+    @Test
+    void streamedHistoryExportsAndReleasesItsConnection(@TempDir Path dir) throws Exception {
+        try (var bank = new BankServiceJdbc(GroupCommitConfig.disabled())) {
+            String userId = bank.registerUser("Export", "export@e.com", "pw", Role.CUSTOMER);
+            String a1 = bank.openCheckingAccount(userId);
+            for (int i = 1; i <= 12; i++) {
+                bank.deposit(a1, new BigDecimal(i), i % 2 == 0 ? "even, \"quoted\"" : "odd");
+            }
+            Path csv = dir.resolve("history.csv");
+            long written = TransactionExporter.export(bank.streamTransactions(a1), csv, TransactionExporter.Format.CSV);
+
+            assertEquals(12, written);
+            List<String> lines = Files.readAllLines(csv);
+            assertEquals(13, lines.size());
+            assertTrue(lines.get(2).endsWith("\"even, \"\"quoted\"\"\""));
+            assertEquals(0, Jdbc.poolStats().active());
+        }
+    }
+
+    @Test
+    void batchesCommitOncePerChunk() {
+        try (var bank = new BankServiceJdbc(GroupCommitConfig.disabled())) {
+            String userId = bank.registerUser("Payroll", "payroll@e.com", "pw", Role.CUSTOMER);
+            String employer = bank.openCheckingAccount(userId);
+            List<String> staff = new ArrayList<>();
+            for (int i = 0; i < 5; i++) staff.add(bank.openCheckingAccount(userId));
+            bank.deposit(employer, new BigDecimal("300.00"), "funding");
+
+            List<Command> payroll = new ArrayList<>();
+            for (String s : staff) payroll.add(Command.transfer(employer, s, new BigDecimal("100.00"), "salary"));
+
+            List<CommandResult> strict = bank.applyBatch(payroll, BatchMode.ALL_OR_NOTHING);
+            assertEquals("Insufficient funds", strict.get(3).error());
+            assertEquals(new BigDecimal("300.00"), bank.getBalance(employer));
+            assertThrows(IllegalArgumentException.class, () -> bank.applyBatch(payroll, BatchMode.ALL_OR_NOTHING, 2));
+
+            List<CommandResult> lenient = bank.applyBatch(payroll, BatchMode.BEST_EFFORT, 2);
+            assertEquals(List.of(true, true, true, false, false), lenient.stream().map(CommandResult::ok).toList());
+            assertEquals(new BigDecimal("0.00"), bank.getBalance(employer));
+            assertEquals(new BigDecimal("100.00"), bank.getBalance(staff.get(2)));
+            assertEquals(new BigDecimal("0.00"), bank.getBalance(staff.get(3)));
+            assertEquals(4, bank.getTransactions(employer).size());
+
+            bank.freezeAccount(staff.get(0));
+            assertThrows(IllegalStateException.class, () -> bank.withdraw(staff.get(0), new BigDecimal("1.00"), "x"));
+            assertEquals("From account is frozen", bank.applyBatch(
+                    List.of(Command.transfer(staff.get(0), employer, new BigDecimal("1.00"), "x")),
+                    BatchMode.BEST_EFFORT).get(0).error());
+            assertTrue(bank.getAccountsForUser(userId).get(1).isFrozen());
+        }
+    }
+
+    @Test
+    void everyWriteModeEnforcesTheSameRules() throws Exception {
+        for (WriteMode mode : WriteMode.values()) {
+            TestDatabase.reset();
+            try (var bank = new BankServiceJdbc(GroupCommitConfig.disabled(), AccountCacheConfig.disabled(), mode)) {
+                String userId = bank.registerUser("Mode", "mode@e.com", "pw", Role.CUSTOMER);
+                String a = bank.openCheckingAccount(userId);
+                String b = bank.openCheckingAccount(userId);
+                bank.deposit(a, new BigDecimal("100.00"), null);
+                bank.withdraw(a, new BigDecimal("10.00"), null);
+                var broke = assertThrows(IllegalStateException.class, () -> bank.withdraw(b, new BigDecimal("1.00"), null), mode.name());
+                assertEquals("Insufficient funds", broke.getMessage());
+                assertThrows(IllegalArgumentException.class, () -> bank.withdraw("missing", new BigDecimal("1.00"), null));
+                assertThrows(IllegalArgumentException.class, () -> bank.transfer(a, "missing", new BigDecimal("1.00"), null));
+                assertThrows(IllegalArgumentException.class, () -> bank.transfer("missing", a, new BigDecimal("1.00"), null));
+
+                // opposite directions, so both id orders are exercised
+                ExecutorService pool = Executors.newFixedThreadPool(4);
+                List<Future<?>> done = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    done.add(pool.submit(() -> bank.transfer(a, b, new BigDecimal("2.00"), null)));
+                    done.add(pool.submit(() -> bank.transfer(b, a, new BigDecimal("1.00"), null)));
+                }
+                for (Future<?> f : done) {
+                    try {
+                        f.get(30, TimeUnit.SECONDS);
+                    } catch (ExecutionException e) {
+                        // b can briefly run dry; anything else is a bug
+                        assertEquals("Insufficient funds", e.getCause().getMessage(), mode.name());
+                    }
+                }
+                pool.shutdown();
+                BigDecimal total = bank.getBalance(a).add(bank.getBalance(b));
+                assertEquals(new BigDecimal("90.00"), total, mode.name());
+                assertEquals(bank.getTransactions(b).stream().filter(t -> t.getType().name().equals("TRANSFER_IN")).count(),
+                        bank.getTransactions(a).stream().filter(t -> t.getType().name().equals("TRANSFER_OUT")).count());
+
+                bank.freezeAccount(a);
+                assertEquals("Account is frozen", assertThrows(IllegalStateException.class,
+                        () -> bank.withdraw(a, new BigDecimal("1.00"), null)).getMessage());
+                assertEquals("From account is frozen", assertThrows(IllegalStateException.class,
+                        () -> bank.transfer(a, b, new BigDecimal("1.00"), null)).getMessage());
+            }
+        }
+    }
+
+    @Test
+    void cachedBalancesFollowEveryCommit() {
+        try (var bank = new BankServiceJdbc(GroupCommitConfig.disabled(), new AccountCacheConfig(true, 1_000))) {
+            String userId = bank.registerUser("Cache", "cache@e.com", "pw", Role.CUSTOMER);
+            String a = bank.openCheckingAccount(userId);
+            String b = bank.openCheckingAccount(userId);
+            bank.deposit(a, new BigDecimal("50.00"), null);
+            assertEquals(new BigDecimal("50.00"), bank.getBalance(a));
+            assertEquals(new BigDecimal("50.00"), bank.getBalance(a));
+
+            bank.transfer(a, b, new BigDecimal("20.00"), null);
+            assertEquals(new BigDecimal("30.00"), bank.getBalance(a));
+            assertEquals(new BigDecimal("20.00"), bank.getBalance(b));
+            assertThrows(IllegalStateException.class, () -> bank.withdraw(a, new BigDecimal("99.00"), null));
+            bank.applyBatch(List.of(Command.withdraw(b, new BigDecimal("5.00"), null)), BatchMode.BEST_EFFORT);
+            assertEquals(new BigDecimal("15.00"), bank.getBalance(b));
+            assertEquals(new BigDecimal("15.00"), bank.getBalance(b, ReadConsistency.LATEST));
+
+            AccountCache.Stats stats = bank.accountCacheStats().orElseThrow();
+            assertEquals(1, stats.hits());
+            assertEquals(4, stats.misses());
+            assertEquals(1, stats.size()); // the failed withdrawal dropped a too
+        }
+        try (var bank = new BankServiceJdbc(GroupCommitConfig.disabled())) {
+            assertTrue(bank.accountCacheStats().isEmpty());
+        }
+    }
+
+    @Test
+    void binaryIdsRoundTrip() {
+        TestDatabase.reset(SchemaScript.BINARY_IDS);
+        IdColumns.useBinary(true);
+        try (var bank = new BankServiceJdbc(GroupCommitConfig.disabled())) {
+            String userId = bank.registerUser("Bin", "bin@e.com", "pw", Role.CUSTOMER);
+            assertEquals(userId, bank.authenticate("bin@e.com", "pw"));
+            String a = bank.openCheckingAccount(userId);
+            String b = bank.openCheckingAccount(userId);
+            bank.deposit(a, new BigDecimal("20.00"), null);
+            bank.transfer(a, b, new BigDecimal("5.00"), "rent");
+            assertEquals(List.of(a, b), bank.getAccountsForUser(userId).stream().map(x -> x.getId()).toList());
+            assertEquals(new BigDecimal("5.00"), bank.getBalance(b));
+            TransactionPage page = bank.getTransactionPage(a, TransactionQuery.firstPage(10));
+            assertEquals(2, page.items().size());
+            assertEquals(a, page.items().get(0).getAccountId());
+            assertThrows(IllegalArgumentException.class, () -> bank.getBalance("not-a-uuid"));
+        } finally {
+            IdColumns.useBinary(false);
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package com.jamesbranco.bank;
 
+import com.jamesbranco.bank.model.BatchMode;
+import com.jamesbranco.bank.model.Command;
+import com.jamesbranco.bank.model.CommandResult;
 import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
 import com.jamesbranco.bank.repo.InMemoryStore;
 import com.jamesbranco.bank.service.BankService;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,4 +34,62 @@ class BankServiceTest {
         assertEquals(3, svc.getTransactions(a1).size()); // deposit, withdraw, transfer_out
         assertEquals(1, svc.getTransactions(a2).size()); // transfer_in
     }
+
+    @Test
+    void transactionPagesWalkHistoryNewestFirst() {
+        var svc = new BankService(new InMemoryStore());
+        var userId = svc.registerUser("Pages", "p@e.com", "pw", Role.CUSTOMER);
+        var a1 = svc.openCheckingAccount(userId);
+        for (int i = 1; i <= 25; i++) {
+            svc.deposit(a1, new BigDecimal(i), "d" + i);
+        }
+
+        var query = TransactionQuery.firstPage(10);
+        List<String> notes = new ArrayList<>();
+        TransactionPage page;
+        do {
+            page = svc.getTransactionPage(a1, query);
+            page.items().forEach(t -> notes.add(t.getNote()));
+            if (page.hasMore()) query = query.next(page);
+        } while (page.hasMore());
+
+        assertEquals(25, notes.size());
+        assertEquals("d25", notes.get(0));
+        assertEquals("d1", notes.get(24));
+
+        Instant middle = svc.getTransactions(a1).get(10).getTimestamp();
+        var recent = svc.getTransactionPage(a1, TransactionQuery.firstPage(100).between(middle, null));
+        assertTrue(recent.items().stream().noneMatch(t -> t.getTimestamp().isBefore(middle)));
+        assertFalse(recent.hasMore());
+    }
+
+    @Test
+    void batchModesApplyAllOrOnlyTheValidItems() {
+        var svc = new BankService(new InMemoryStore());
+        var userId = svc.registerUser("Batch", "b@e.com", "pw", Role.CUSTOMER);
+        var a1 = svc.openCheckingAccount(userId);
+        var a2 = svc.openCheckingAccount(userId);
+        svc.deposit(a1, new BigDecimal("10.00"), "seed");
+
+        List<Command> batch = List.of(
+                Command.transfer(a1, a2, new BigDecimal("4.00"), "pay"),
+                Command.withdraw(a2, new BigDecimal("5.00"), "too much"),
+                Command.deposit("missing", new BigDecimal("1.00"), "nowhere"),
+                Command.transfer(a1, a2, new BigDecimal("6.00"), "pay"));
+
+        List<CommandResult> strict = svc.applyBatch(batch, BatchMode.ALL_OR_NOTHING);
+        assertEquals("Insufficient funds", strict.get(1).error());
+        assertEquals(CommandResult.ROLLED_BACK, strict.get(0).error());
+        assertEquals(new BigDecimal("10.00"), svc.getBalance(a1));
+        assertEquals(1, svc.getTransactions(a1).size());
+
+        List<CommandResult> lenient = svc.applyBatch(batch, BatchMode.BEST_EFFORT);
+        assertTrue(lenient.get(0).ok());
+        assertEquals("Insufficient funds", lenient.get(1).error());
+        assertEquals("Account not found", lenient.get(2).error());
+        assertTrue(lenient.get(3).ok());
+        assertEquals(new BigDecimal("0.00"), svc.getBalance(a1));
+        assertEquals(new BigDecimal("10.00"), svc.getBalance(a2));
+        assertEquals(2, svc.getTransactions(a2).size());
+    }
 }
@@ -0,0 +1,169 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.service.LedgerEngine;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentBankServiceTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentTransfersConserveMoney() throws Exception {
+        transferStress(new BankService(new InMemoryStore()));
+    }
+
+    @Test
+    void ledgerEngineTransfersConserveMoney() throws Exception {
+        var store = new InMemoryStore();
+        try (var engine = new LedgerEngine(store, 1024, 256)) {
+            var svc = new BankService(store, engine);
+            transferStress(svc);
+
+            String a = svc.getAllAccounts().iterator().next().getId();
+            svc.freezeAccount(a);
+            assertThrows(IllegalStateException.class, () -> svc.deposit(a, new BigDecimal("1.00"), "frozen"));
+            assertThrows(IllegalArgumentException.class, () -> svc.deposit("missing", new BigDecimal("1.00"), "x"));
+            svc.unfreezeAccount(a);
+            svc.deposit(a, new BigDecimal("1.00"), "thawed");
+        }
+    }
+
+    @Test
+    void closingTheEngineCompletesEveryAcceptedCall() throws Exception {
+        var store = new InMemoryStore();
+        var setup = new BankService(store);
+        String a = setup.openCheckingAccount(setup.registerUser("Close", "close@e.com", "pw", Role.CUSTOMER));
+        var engine = new LedgerEngine(store, 64, 16);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<CompletableFuture<Void>>>> callers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            callers.add(pool.submit(() -> {
+                List<CompletableFuture<Void>> calls = new ArrayList<>();
+                while (true) {
+                    CompletableFuture<Void> f = engine.deposit(a, 1, "race");
+                    calls.add(f);
+                    if (f.isCompletedExceptionally()) return calls; // closed
+                }
+            }));
+        }
+        Thread.sleep(50);
+        engine.close();
+        long applied = 0;
+        for (Future<List<CompletableFuture<Void>>> c : callers) {
+            for (CompletableFuture<Void> f : c.get(30, TimeUnit.SECONDS)) {
+                try {
+                    f.get(10, TimeUnit.SECONDS);
+                    applied++;
+                } catch (ExecutionException closed) {
+                    assertInstanceOf(IllegalStateException.class, closed.getCause());
+                }
+            }
+        }
+        pool.shutdown();
+        assertEquals(applied, store.findAccountById(a).orElseThrow().getBalanceMinor());
+    }
+
+    @Test
+    void ledgerEngineReloadsAccountsAfterAStepFailsToPersist() {
+        var store = new InMemoryStore();
+        long start = Long.MAX_VALUE - 100;
+        store.saveAccount(new Account("big", "u", "000000000001", start, false));
+        try (var engine = new LedgerEngine(store, 64, 16)) {
+            engine.withdraw("big", 10, "cached").join();
+            new BankService(store).withdrawMinor("big", start - 20, "behind the engine's back");
+            // the engine still thinks the balance is near the maximum, so this only fails when persisted
+            var failed = assertThrows(CompletionException.class, () -> engine.withdraw("big", 50, "stale").join());
+            assertEquals("Insufficient funds", failed.getCause().getMessage());
+            // reloaded: 10 + 200, no overflow against the stale balance
+            engine.deposit("big", 200, "fresh").join();
+            assertEquals(210, store.findAccountById("big").orElseThrow().getBalanceMinor());
+        }
+    }
+
+    private static void transferStress(BankService svc) throws Exception {
+        var userId = svc.registerUser("Stress", "stress@e.com", "pw", Role.CUSTOMER);
+        List<String> accounts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String a = svc.openCheckingAccount(userId);
+            svc.deposit(a, new BigDecimal("1000.00"), "seed");
+            accounts.add(a);
+        }
+        BigDecimal expectedTotal = new BigDecimal("10000.00");
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                var rnd = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    String from = accounts.get(rnd.nextInt(accounts.size()));
+                    String to = accounts.get(rnd.nextInt(accounts.size()));
+                    if (from.equals(to)) continue;
+                    try {
+                        svc.transfer(from, to, new BigDecimal(rnd.nextInt(1, 50) + ".25"), "stress");
+                    } catch (IllegalStateException insufficient) {
+                        // expected once an account runs low
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        BigDecimal total = BigDecimal.ZERO;
+        long outs = 0, ins = 0;
+        for (String a : accounts) {
+            BigDecimal bal = svc.getBalance(a);
+            assertTrue(bal.signum() >= 0, "negative balance on " + a);
+            total = total.add(bal);
+
+            BigDecimal replayed = BigDecimal.ZERO;
+            for (var tx : svc.getTransactions(a)) {
+                boolean credit = tx.getType() == TransactionType.DEPOSIT || tx.getType() == TransactionType.TRANSFER_IN;
+                replayed = credit ? replayed.add(tx.getAmount()) : replayed.subtract(tx.getAmount());
+                if (tx.getType() == TransactionType.TRANSFER_OUT) outs++;
+                if (tx.getType() == TransactionType.TRANSFER_IN) ins++;
+            }
+            assertEquals(bal, replayed.setScale(2), "journal disagrees with balance on " + a);
+        }
+        assertEquals(expectedTotal, total);
+        assertEquals(outs, ins);
+    }
+
+    @Test
+    void concurrentRegistrationOfSameEmailOnlySucceedsOnce() throws Exception {
+        var svc = new BankService(new InMemoryStore());
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> svc.registerUser("Dup", "dup@e.com", "pw", Role.CUSTOMER)));
+        }
+        int ok = 0;
+        for (Future<String> f : futures) {
+            try {
+                f.get(10, TimeUnit.SECONDS);
+                ok++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            }
+        }
+        pool.shutdown();
+        assertEquals(1, ok);
+        assertEquals(1, svc.getAllUsers().size());
+    }
+}
@@ -0,0 +1,116 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.jdbc.ConnectionPool;
+import com.jamesbranco.bank.jdbc.Jdbc;
+import com.jamesbranco.bank.jdbc.PoolConfig;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.service.BankServiceJdbc;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pool_test;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void reusesConnectionsAndStatements() throws SQLException {
+        try (var pool = new ConnectionPool(URL, "sa", "", new PoolConfig(1, 2, 500, 60_000, 5_000, 1, 8))) {
+            Object physical;
+            Object stmt;
+            try (Connection c = pool.getConnection();
+                 PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+                physical = c.unwrap(Connection.class);
+                stmt = ps.unwrap(PreparedStatement.class);
+                assertTrue(ps.executeQuery().next());
+            }
+            try (Connection c = pool.getConnection();
+                 PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+                assertSame(physical, c.unwrap(Connection.class));
+                assertSame(stmt, ps.unwrap(PreparedStatement.class));
+            }
+            var stats = pool.stats();
+            assertEquals(0, stats.active());
+            assertEquals(1, stats.idle());
+            assertEquals(1, stats.connectionsCreated());
+            assertEquals(2, stats.acquireCount());
+        }
+    }
+
+    @Test
+    void statementEvictedWhileInUseStaysOpenUntilClosed() throws SQLException {
+        try (var pool = new ConnectionPool(URL, "sa", "", new PoolConfig(0, 1, 500, 60_000, 5_000, 1, 1));
+             Connection c = pool.getConnection()) {
+            PreparedStatement first = c.prepareStatement("SELECT 1");
+            PreparedStatement raw = first.unwrap(PreparedStatement.class);
+            try (PreparedStatement second = c.prepareStatement("SELECT 2")) { // pushes the first out of the cache
+                assertTrue(second.executeQuery().next());
+            }
+            assertFalse(raw.isClosed());
+            assertTrue(first.executeQuery().next());
+            first.close();
+            assertTrue(raw.isClosed());
+        }
+    }
+
+    @Test
+    void boundedAcquireTimesOut() throws SQLException {
+        try (var pool = new ConnectionPool(URL, "sa", "", new PoolConfig(0, 1, 100, 60_000, 5_000, 1, 8));
+             Connection held = pool.getConnection()) {
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+            assertEquals(1, pool.stats().active());
+            assertEquals(1, pool.stats().acquireTimeouts());
+            assertTrue(pool.stats().maxWaitNanos() >= 100_000_000L);
+        }
+    }
+
+    @Test
+    void returnedConnectionIsRolledBackAndClosedHandleIsDead() throws SQLException {
+        try (var pool = new ConnectionPool(URL, "sa", "", new PoolConfig(0, 1, 500, 60_000, 5_000, 1, 8))) {
+            try (Connection c = pool.getConnection()) {
+                c.createStatement().execute("CREATE TABLE IF NOT EXISTS t (x INT)");
+                c.setAutoCommit(false);
+                c.createStatement().execute("INSERT INTO t VALUES (1)");
+            }
+            try (Connection c = pool.getConnection()) {
+                assertTrue(c.getAutoCommit());
+                var rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM t");
+                rs.next();
+                assertEquals(0, rs.getInt(1));
+            }
+            Connection c = pool.getConnection();
+            c.close();
+            assertTrue(c.isClosed());
+            assertThrows(SQLException.class, c::createStatement);
+        }
+    }
+
+    @Test
+    void jdbcServiceRunsThroughThePool() {
+        TestDatabase.reset();
+        var bank = new BankServiceJdbc();
+        String userId = bank.registerUser("Pool", "pool@e.com", "pw", Role.CUSTOMER);
+        String a1 = bank.openCheckingAccount(userId);
+        String a2 = bank.openCheckingAccount(userId);
+        bank.deposit(a1, new BigDecimal("100.00"), "seed");
+        bank.withdraw(a1, new BigDecimal("10.00"), "atm");
+        bank.transfer(a1, a2, new BigDecimal("30.00"), "move");
+
+        assertEquals(new BigDecimal("60.00"), bank.getBalance(a1));
+        assertEquals(new BigDecimal("30.00"), bank.getBalance(a2));
+        assertEquals(3, bank.getTransactions(a1).size());
+        assertEquals(userId, bank.authenticate("pool@e.com", "pw"));
+        assertThrows(IllegalArgumentException.class,
+                () -> bank.registerUser("Pool", "pool@e.com", "pw", Role.CUSTOMER));
+
+        var stats = Jdbc.poolStats();
+        assertNotNull(stats);
+        assertEquals(0, stats.active());
+        assertTrue(stats.connectionsCreated() <= 4);
+    }
+}
@@ -0,0 +1,110 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.repo.DurabilityConfig;
+import com.jamesbranco.bank.repo.DurableStore;
+import com.jamesbranco.bank.repo.FsyncPolicy;
+import com.jamesbranco.bank.service.BankService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenRestoresSnapshotAndLogTail() {
+        DurabilityConfig config = DurabilityConfig.defaults(dir);
+        String userId, a1, a2;
+        try (DurableStore durable = DurableStore.open(config)) {
+            var svc = new BankService(durable.store());
+            userId = svc.registerUser("Dee", "d@e.com", "pw", Role.CUSTOMER);
+            a1 = svc.openCheckingAccount(userId);
+            a2 = svc.openCheckingAccount(userId);
+            svc.deposit(a1, new BigDecimal("100.00"), "seed");
+            durable.snapshot();
+            svc.transfer(a1, a2, new BigDecimal("30.00"), "after snapshot");
+            svc.freezeAccount(a2);
+        }
+
+        try (DurableStore durable = DurableStore.open(config)) {
+            var svc = new BankService(durable.store());
+            assertEquals(userId, svc.authenticate("d@e.com", "pw"));
+            assertEquals(new BigDecimal("70.00"), svc.getBalance(a1));
+            assertEquals(new BigDecimal("30.00"), svc.getBalance(a2));
+            assertEquals(2, svc.getTransactions(a1).size());
+            assertTrue(durable.store().findAccountById(a2).orElseThrow().isFrozen());
+            assertThrows(IllegalArgumentException.class,
+                    () -> svc.registerUser("Dee", "d@e.com", "pw", Role.CUSTOMER));
+        }
+    }
+
+    @Test
+    void tornTailIsTruncatedOnRecovery() throws Exception {
+        DurabilityConfig config = DurabilityConfig.defaults(dir).withFsyncPolicy(FsyncPolicy.EVERY_WRITE);
+        String a1, a2;
+        try (DurableStore durable = DurableStore.open(config)) {
+            var svc = new BankService(durable.store());
+            String userId = svc.registerUser("Tor", "t@e.com", "pw", Role.CUSTOMER);
+            a1 = svc.openCheckingAccount(userId);
+            a2 = svc.openCheckingAccount(userId);
+            svc.deposit(a1, new BigDecimal("10.00"), "one");
+            svc.transfer(a1, a2, new BigDecimal("5.00"), "two");
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> logs = files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+            segment = logs.get(logs.size() - 1);
+        }
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3); // crash in the middle of the last record
+        }
+
+        try (DurableStore durable = DurableStore.open(config)) {
+            var svc = new BankService(durable.store());
+            // the transfer's two legs were one record: neither survives the tear
+            assertEquals(new BigDecimal("10.00"), svc.getBalance(a1));
+            assertEquals(new BigDecimal("0.00"), svc.getBalance(a2));
+            assertEquals(1, svc.getTransactions(a1).size());
+            assertTrue(svc.getTransactions(a2).isEmpty());
+            svc.deposit(a1, new BigDecimal("1.00"), "after recovery");
+        }
+        try (DurableStore durable = DurableStore.open(config)) {
+            assertEquals(new BigDecimal("11.00"), new BankService(durable.store()).getBalance(a1));
+        }
+    }
+
+    @Test
+    void longStringsSurviveLogReplayAndSnapshots() {
+        DurabilityConfig config = DurabilityConfig.defaults(dir);
+        String note = "n".repeat(3 << 20);
+        String a1;
+        try (DurableStore durable = DurableStore.open(config)) {
+            var svc = new BankService(durable.store());
+            a1 = svc.openCheckingAccount(svc.registerUser("Big", "b@e.com", "pw", Role.CUSTOMER));
+            svc.deposit(a1, new BigDecimal("2.00"), note);
+            svc.deposit(a1, new BigDecimal("1.00"), "small");
+        }
+        try (DurableStore durable = DurableStore.open(config)) {
+            var svc = new BankService(durable.store());
+            assertEquals(new BigDecimal("3.00"), svc.getBalance(a1));
+            assertEquals(note, svc.getTransactions(a1).get(0).getNote());
+            durable.snapshot(); // past the 64 KB limit of modified UTF-8
+        }
+        try (DurableStore durable = DurableStore.open(config)) {
+            var svc = new BankService(durable.store());
+            assertEquals(new BigDecimal("3.00"), svc.getBalance(a1));
+            assertEquals(note, svc.getTransactions(a1).get(0).getNote());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.util.AccountNumberSequence;
+import com.jamesbranco.bank.util.IdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+    @Test
+    void idsAreVersion7AndIncreaseWithinAThread() {
+        String previous = IdGenerator.newId();
+        for (int i = 0; i < 100_000; i++) {
+            String id = IdGenerator.newId();
+            assertTrue(id.compareTo(previous) > 0, id + " after " + previous);
+            previous = id;
+        }
+        UUID uuid = UUID.fromString(previous);
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(Math.abs((uuid.getMostSignificantBits() >>> 16) - System.currentTimeMillis()) < 60_000);
+    }
+
+    @Test
+    void accountNumbersAreUniqueCheckedAndSkipReservedOnes() {
+        AccountNumberSequence numbers = new AccountNumberSequence(); // not the shared one: reserving moves it for good
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String n = numbers.next();
+            assertEquals(12, n.length());
+            assertTrue(IdGenerator.isValidAccountNumber(n), n);
+            assertTrue(seen.add(n));
+        }
+        assertFalse(IdGenerator.isValidAccountNumber("123456789010"));
+        numbers.reserveThrough("900000000000");
+        assertTrue(numbers.next().compareTo("900000000009") > 0);
+        assertTrue(IdGenerator.newAccountNumber().compareTo("900000000000") < 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.load.LoadConfig;
+import com.jamesbranco.bank.load.LoadDriver;
+import com.jamesbranco.bank.load.LoadReport;
+import com.jamesbranco.bank.load.Operation;
+import com.jamesbranco.bank.metrics.LatencyHistogram;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadDriverTest {
+    @Test
+    void histogramPercentilesAndCoordinatedOmission() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) h.record(i * 1_000L);
+        assertEquals(1_000, h.count());
+        assertEquals(500_000, h.percentile(50), 500_000 * 0.02);
+        assertEquals(990_000, h.percentile(99), 990_000 * 0.02);
+        assertEquals(1_000_000, h.percentile(100));
+
+        // one 100 ms stall among 1 ms calls stands for the ~99 calls it held up
+        LatencyHistogram corrected = new LatencyHistogram();
+        for (int i = 0; i < 900; i++) corrected.recordCorrected(1_000_000, 1_000_000);
+        corrected.recordCorrected(100_000_000, 1_000_000);
+        assertEquals(1_000, corrected.count());
+        assertTrue(corrected.percentile(95) > 40_000_000);
+    }
+
+    @Test
+    void drivesEveryOperationAndKeepsMoneyConserved() throws InterruptedException {
+        Properties props = new Properties();
+        props.setProperty("load.users", "20");
+        props.setProperty("load.accounts", "50");
+        props.setProperty("load.threads", "2");
+        props.setProperty("load.warmupSeconds", "0");
+        props.setProperty("load.durationSeconds", "1");
+        props.setProperty("load.mix", "authenticate=1,balance=1,history=1,transfer=3");
+        BankService bank = new BankService(new InMemoryStore());
+
+        LoadDriver driver = new LoadDriver(bank, LoadConfig.from(props));
+        driver.seed();
+        LoadReport report = driver.run();
+
+        assertTrue(report.completed() > 0);
+        assertTrue(report.stats(Operation.TRANSFER).service().count() > 0);
+        assertEquals(0, report.stats(Operation.DEPOSIT).service().count());
+        BigDecimal total = bank.getAllAccounts().stream()
+                .map(a -> bank.getBalance(a.getId())).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(new BigDecimal("50000.00"), total);
+    }
+}
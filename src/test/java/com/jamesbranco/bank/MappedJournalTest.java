@@ -0,0 +1,102 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.MappedJournal;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.util.IdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void mappedHistoryMatchesHeapHistory() {
+        // small segments so records and notes roll over into several files
+        try (MappedJournal journal = MappedJournal.open(dir, 4096)) {
+            var mapped = new BankService(new InMemoryStore(journal));
+            var heap = new BankService(new InMemoryStore());
+            String m1 = mapped.openCheckingAccount(mapped.registerUser("M", "m@e.com", "pw", Role.CUSTOMER));
+            String m2 = mapped.openCheckingAccount(mapped.getAllUsers().iterator().next().id);
+            String h1 = heap.openCheckingAccount(heap.registerUser("H", "h@e.com", "pw", Role.CUSTOMER));
+            for (int i = 1; i <= 700; i++) {
+                BigDecimal amount = new BigDecimal(i).movePointLeft(2);
+                mapped.deposit(m1, amount, "note " + i);
+                heap.deposit(h1, amount, "note " + i);
+                if (i % 7 == 0) mapped.transfer(m1, m2, new BigDecimal("0.01"), "");
+            }
+            assertTrue(journal.recordCount() > 4096 / 64);
+
+            List<Transaction> history = mapped.getTransactions(m1);
+            assertEquals(800, history.size());
+            assertEquals("note 1", history.get(0).getNote());
+            assertEquals(100, mapped.getTransactions(m2).size());
+            assertEquals("", mapped.getTransactions(m2).get(99).getNote());
+            long streamed = mapped.streamTransactions(m1).mapToLong(Transaction::getAmountMinor).sum();
+            long sumEach = 0;
+            for (int i = 0; i < history.size(); i++) sumEach += history.get(i).getAmountMinor();
+            assertEquals(sumEach, streamed);
+            assertEquals(heap.getBalance(h1).subtract(new BigDecimal("1.00")), mapped.getBalance(m1));
+
+            List<String> notes = new ArrayList<>();
+            TransactionQuery q = TransactionQuery.firstPage(64);
+            while (true) {
+                TransactionPage page = mapped.getTransactionPage(m1, q);
+                page.items().forEach(t -> notes.add(t.getNote()));
+                if (!page.hasMore()) break;
+                q = q.next(page);
+            }
+            assertEquals(800, notes.size());
+            assertEquals("note 700", notes.get(1)); // newest is the transfer that followed it
+            assertEquals("note 1", notes.get(notes.size() - 1));
+        }
+    }
+
+    @Test
+    void outOfOrderTimestampsAreKeptAndStillPaged() {
+        try (MappedJournal journal = MappedJournal.open(dir, 4096)) {
+            InMemoryStore store = new InMemoryStore(journal);
+            Instant start = Instant.parse("2024-01-01T00:00:00Z");
+            List<Transaction> appended = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                // every 50th entry arrives stamped an hour before the one it follows
+                Instant ts = start.plusSeconds(i % 50 == 49 ? i - 3600 : i);
+                Transaction t = new Transaction(IdGenerator.newId(), "acct", TransactionType.DEPOSIT, 1, ts, "");
+                store.appendTransaction(t);
+                appended.add(t);
+            }
+            assertEquals(appended.stream().map(Transaction::getTimestamp).toList(),
+                    store.getTransactions("acct").stream().map(Transaction::getTimestamp).toList());
+
+            List<String> ids = new ArrayList<>();
+            TransactionQuery q = TransactionQuery.firstPage(37);
+            while (true) {
+                TransactionPage page = store.getTransactionPage("acct", q);
+                page.items().forEach(t -> ids.add(t.getId()));
+                if (!page.hasMore()) break;
+                q = q.next(page);
+            }
+            assertEquals(appended.reversed().stream().map(Transaction::getId).toList(), ids);
+
+            // a late entry counts from the time of the entry it followed
+            TransactionPage range = store.getTransactionPage("acct",
+                    TransactionQuery.firstPage(10).between(start.plusSeconds(48), start.plusSeconds(50)));
+            assertEquals(List.of(appended.get(49).getId(), appended.get(48).getId()),
+                    range.items().stream().map(Transaction::getId).toList());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Money;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.BankService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+    @Test
+    void convertsLosslesslyOrThrows() {
+        assertEquals(12_345, Money.toMinor(new BigDecimal("123.45")));
+        assertEquals(12_300, Money.toMinor(new BigDecimal("123")));
+        assertEquals(12_340, Money.toMinor(new BigDecimal("123.400")));
+        assertThrows(ArithmeticException.class, () -> Money.toMinor(new BigDecimal("1.005")));
+        assertEquals(new BigDecimal("123.45"), Money.toBigDecimal(12_345));
+        assertEquals("-0.05", Money.appendPlain(new StringBuilder(), -5).toString());
+        assertEquals("1234.50", Money.appendPlain(new StringBuilder(), 123_450).toString());
+        assertEquals(0, Money.scaleOf(Currency.getInstance("JPY")));
+        assertEquals(3, Money.scaleOf(Currency.getInstance("BHD")));
+    }
+
+    @Test
+    void arithmeticIsOverflowChecked() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        var acct = new Account("a", "u", "000000000001");
+        acct.depositMinor(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> acct.depositMinor(1));
+        assertEquals(Long.MAX_VALUE, acct.getBalanceMinor());
+        assertThrows(IllegalStateException.class, () -> new Account("b", "u", "000000000002").withdrawMinor(1));
+    }
+
+    @Test
+    void overflowingTransferLeavesBothBalancesAlone() {
+        var store = new InMemoryStore();
+        store.saveAccount(new Account("from", "u", "000000000001", 500, false));
+        store.saveAccount(new Account("to", "u", "000000000002", Long.MAX_VALUE - 100, false));
+        var bank = new BankService(store);
+        assertThrows(ArithmeticException.class, () -> bank.transferMinor("from", "to", 200, ""));
+        assertEquals(500, store.findAccountById("from").orElseThrow().getBalanceMinor());
+        assertEquals(Long.MAX_VALUE - 100, store.findAccountById("to").orElseThrow().getBalanceMinor());
+        assertTrue(store.getTransactions("from").isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.repo.DurabilityConfig;
+import com.jamesbranco.bank.repo.DurableStore;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.PackedJournal;
+import com.jamesbranco.bank.service.BankService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void packedHistoryMatchesHeapHistory() {
+        // a tiny intern table, so most notes fall back to per-account storage
+        PackedJournal journal = new PackedJournal(8);
+        var packed = new BankService(new InMemoryStore(journal));
+        var heap = new BankService(new InMemoryStore());
+        String p1 = packed.openCheckingAccount(packed.registerUser("P", "p@e.com", "pw", Role.CUSTOMER));
+        String p2 = packed.openCheckingAccount(packed.getAllUsers().iterator().next().id);
+        String h1 = heap.openCheckingAccount(heap.registerUser("H", "h@e.com", "pw", Role.CUSTOMER));
+        for (int i = 1; i <= 700; i++) {
+            BigDecimal amount = new BigDecimal(i).movePointLeft(2);
+            String note = i % 2 == 0 ? "ATM" : "note " + i;
+            packed.deposit(p1, amount, note);
+            heap.deposit(h1, amount, note);
+            if (i % 7 == 0) packed.transfer(p1, p2, new BigDecimal("0.01"), "");
+        }
+        assertEquals(8, journal.internedNotes());
+
+        List<Transaction> history = packed.getTransactions(p1);
+        List<Transaction> expected = heap.getTransactions(h1);
+        assertEquals(800, history.size());
+        assertEquals("note 1", history.get(0).getNote());
+        assertEquals("ATM", history.get(1).getNote());
+        assertEquals(expected.get(699).getNote(), history.get(798).getNote());
+        assertEquals(100, packed.getTransactions(p2).size());
+        assertEquals(heap.getBalance(h1).subtract(new BigDecimal("1.00")), packed.getBalance(p1));
+
+        List<String> ids = new ArrayList<>();
+        TransactionQuery q = TransactionQuery.firstPage(64);
+        while (true) {
+            TransactionPage page = packed.getTransactionPage(p1, q);
+            page.items().forEach(t -> ids.add(t.getId()));
+            if (!page.hasMore()) break;
+            q = q.next(page);
+        }
+        assertEquals(800, ids.size());
+        assertEquals(history.get(799).getId(), ids.get(0));
+        assertEquals(history.get(0).getId(), ids.get(799));
+    }
+
+    @Test
+    void packedStoreRecoversFromSnapshotAndLog() {
+        Path data = dir.resolve("data");
+        String account;
+        try (DurableStore durable = DurableStore.open(DurabilityConfig.defaults(data),
+                () -> new InMemoryStore(new PackedJournal()))) {
+            var bank = new BankService(durable.store());
+            account = bank.openCheckingAccount(bank.registerUser("D", "d@e.com", "pw", Role.CUSTOMER));
+            bank.deposit(account, new BigDecimal("5.00"), "Initial deposit");
+            durable.snapshot();
+            bank.withdraw(account, new BigDecimal("2.00"), "ATM");
+        }
+        try (DurableStore durable = DurableStore.open(DurabilityConfig.defaults(data),
+                () -> new InMemoryStore(new PackedJournal()))) {
+            var bank = new BankService(durable.store());
+            assertEquals(new BigDecimal("3.00"), bank.getBalance(account));
+            assertEquals(List.of("Initial deposit", "ATM"),
+                    bank.getTransactions(account).stream().map(Transaction::getNote).toList());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.repo.DurabilityConfig;
+import com.jamesbranco.bank.repo.DurableStore;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.ReplicationConfig;
+import com.jamesbranco.bank.repo.ReplicationFollower;
+import com.jamesbranco.bank.repo.ReplicationPrimary;
+import com.jamesbranco.bank.service.BankService;
+import com.jamesbranco.bank.service.ReplicaBanking;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void followerCatchesUpFromSnapshotThenStreamsChanges() throws Exception {
+        // Durable primary: replication runs next to the write-ahead log.
+        try (DurableStore durable = DurableStore.open(DurabilityConfig.defaults(dir.resolve("data")))) {
+            BankService bank = new BankService(durable.store());
+            String user = bank.registerUser("Rep", "rep@e.com", "pw", Role.CUSTOMER);
+            String a = bank.openCheckingAccount(user);
+            bank.deposit(a, new BigDecimal("50.00"), "before");
+
+            try (ReplicationPrimary primary = ReplicationPrimary.start(durable.store(),
+                         ReplicationConfig.defaults(dir.resolve("bank.sock")));
+                 ReplicationFollower follower = ReplicationFollower.start(dir.resolve("bank.sock"))) {
+                ReplicaBanking replica = new ReplicaBanking(follower);
+                assertTrue(follower.awaitApplied(primary.epoch(), primary.head(), 5_000));
+                assertEquals(new BigDecimal("50.00"), replica.getBalance(a));
+
+                String b = bank.openCheckingAccount(user);
+                bank.transfer(a, b, new BigDecimal("20.00"), "after");
+                bank.freezeAccount(b);
+                assertTrue(follower.awaitApplied(primary.epoch(), primary.head(), 5_000));
+
+                assertEquals(new BigDecimal("30.00"), replica.getBalance(a));
+                assertEquals(new BigDecimal("20.00"), replica.getBalance(b));
+                assertTrue(replica.getAccountsForUser(user).stream().anyMatch(x -> x.getId().equals(b) && x.isFrozen()));
+                assertEquals(bank.getTransactions(a).stream().map(Transaction::getId).toList(),
+                        replica.getTransactions(a).stream().map(Transaction::getId).toList());
+                assertEquals(user, replica.authenticate("rep@e.com", "pw"));
+                assertThrows(IllegalStateException.class, () -> replica.deposit(a, BigDecimal.ONE, "no"));
+
+                var lag = follower.lag();
+                assertTrue(lag.connected());
+                assertEquals(0, lag.records());
+                assertEquals(1, lag.snapshotsLoaded());
+            }
+            // the write-ahead log is still attached and working
+            bank.deposit(bank.getAccountsForUser(user).get(0).getId(), new BigDecimal("1.00"), "wal");
+        }
+    }
+
+    @Test
+    void followerRecoversWhenItFallsBehindOrThePrimaryRestarts() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        BankService bank = new BankService(store);
+        String user = bank.registerUser("Lag", "lag@e.com", "pw", Role.CUSTOMER);
+        String a = bank.openCheckingAccount(user);
+        Path socket = dir.resolve("bank.sock");
+        // a tiny backlog: any follower that is more than 4 records behind needs a snapshot
+        ReplicationConfig config = ReplicationConfig.defaults(socket).withBacklogRecords(4);
+
+        try (ReplicationFollower follower = ReplicationFollower.start(socket)) {
+            ReplicaBanking replica = new ReplicaBanking(follower);
+            try (ReplicationPrimary primary = ReplicationPrimary.start(store, config)) {
+                for (int i = 0; i < 200; i++) bank.depositMinor(a, 100, "burst");
+                assertTrue(follower.awaitApplied(primary.epoch(), primary.head(), 5_000));
+                assertEquals(new BigDecimal("200.00"), replica.getBalance(a));
+                assertEquals(200, replica.getTransactions(a).size());
+            }
+            long before = follower.lag().snapshotsLoaded();
+
+            // written while no primary is serving; the restarted primary is a new run
+            bank.depositMinor(a, 500, "offline");
+            try (ReplicationPrimary primary = ReplicationPrimary.start(store, config)) {
+                bank.depositMinor(a, 500, "online");
+                assertTrue(follower.awaitApplied(primary.epoch(), primary.head(), 5_000));
+                assertTrue(follower.lag().snapshotsLoaded() > before);
+                assertEquals(new BigDecimal("210.00"), replica.getBalance(a));
+                assertEquals(202, replica.getTransactions(a).size());
+            }
+        }
+    }
+}
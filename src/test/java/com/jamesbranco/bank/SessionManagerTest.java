@@ -0,0 +1,64 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.security.Session;
+import com.jamesbranco.bank.security.SessionConfig;
+import com.jamesbranco.bank.security.SessionManager;
+import com.jamesbranco.bank.security.SessionStats;
+import com.jamesbranco.bank.service.BankService;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionManagerTest {
+    private final BankService bank = new BankService(new InMemoryStore());
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void resolvesUntilExpiryOrRevocation() {
+        String ann = bank.registerUser("Ann", "ann@e.com", "pw", Role.ADMIN);
+        SessionManager sessions = new SessionManager(bank, new SessionConfig(60, 100), now::get);
+        assertThrows(IllegalArgumentException.class, () -> sessions.login("ann@e.com", "wrong"));
+
+        Session s = sessions.login("ann@e.com", "pw");
+        Session other = sessions.login("ann@e.com", "pw");
+        assertNotEquals(s.token(), other.token());
+        assertEquals(ann, sessions.resolve(s.token()).orElseThrow().userId());
+        assertEquals(Role.ADMIN, sessions.resolve(s.token()).orElseThrow().role());
+        assertTrue(sessions.resolve("forged").isEmpty());
+
+        now.addAndGet(60_000);
+        assertTrue(sessions.resolve(s.token()).isEmpty());
+        Session fresh = sessions.login("ann@e.com", "pw");
+        assertEquals(1, sessions.revokeUser(ann));
+        assertTrue(sessions.resolve(fresh.token()).isEmpty());
+
+        SessionStats stats = sessions.stats();
+        assertEquals(0, stats.active());
+        assertEquals(3, stats.issued());
+        assertEquals(2, stats.hits());
+        assertEquals(3, stats.misses());
+        assertEquals(2, stats.expired()); // one found by resolve, the other swept on the next login
+        assertEquals(1, stats.revoked());
+    }
+
+    @Test
+    void evictsOldestWhenFull() {
+        bank.registerUser("Bob", "bob@e.com", "pw", Role.CUSTOMER);
+        SessionManager sessions = new SessionManager(bank, new SessionConfig(60, 2), now::get);
+        Session first = sessions.login("bob@e.com", "pw");
+        Session second = sessions.login("bob@e.com", "pw");
+        Session third = sessions.login("bob@e.com", "pw");
+
+        assertTrue(sessions.resolve(first.token()).isEmpty());
+        assertTrue(sessions.resolve(second.token()).isPresent());
+        assertTrue(sessions.resolve(third.token()).isPresent());
+        assertEquals(2, sessions.stats().active());
+        assertEquals(1, sessions.stats().evicted());
+        sessions.logout(second.token());
+        assertEquals(1, sessions.stats().active());
+    }
+}
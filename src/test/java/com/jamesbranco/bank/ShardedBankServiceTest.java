@@ -0,0 +1,141 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.BatchMode;
+import com.jamesbranco.bank.model.Command;
+import com.jamesbranco.bank.model.Role;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.service.ShardedBankService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBankServiceTest {
+
+    @Test
+    void crossShardTransfersNeverCreateOrLoseMoney() throws Exception {
+        try (var bank = new ShardedBankService(4)) {
+            String user = bank.registerUser("Shard", "shard@e.com", "pw", Role.CUSTOMER);
+            List<String> ids = new ArrayList<>();
+            Set<Integer> used = new HashSet<>();
+            for (int i = 0; i < 16; i++) {
+                String id = bank.openCheckingAccount(user);
+                ids.add(id);
+                used.add(bank.shardOf(id));
+                bank.deposit(id, new BigDecimal("100.00"), "seed");
+            }
+            assertTrue(used.size() > 1);
+            assertEquals(ids, bank.getAccountsForUser(user).stream().map(Account::getId).toList());
+
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        int from = ThreadLocalRandom.current().nextInt(ids.size());
+                        int to = (from + 1 + ThreadLocalRandom.current().nextInt(ids.size() - 1)) % ids.size();
+                        try {
+                            bank.transfer(ids.get(from), ids.get(to), new BigDecimal("7.00"), null);
+                        } catch (IllegalStateException e) {
+                            assertEquals("Insufficient funds", e.getMessage());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : done) f.get(60, TimeUnit.SECONDS);
+            pool.shutdown();
+
+            BigDecimal total = BigDecimal.ZERO;
+            for (Account a : bank.getAllAccounts()) total = total.add(a.getBalance());
+            assertEquals(new BigDecimal("1600.00"), total);
+            for (String id : ids) {
+                long in = bank.getTransactions(id).stream().filter(t -> t.getType().name().startsWith("TRANSFER_IN")
+                        || t.getType().name().equals("DEPOSIT")).mapToLong(t -> t.getAmountMinor()).sum();
+                long out = bank.getTransactions(id).stream().filter(t -> t.getType().name().equals("TRANSFER_OUT"))
+                        .mapToLong(t -> t.getAmountMinor()).sum();
+                assertEquals(bank.getBalance(id), BigDecimal.valueOf(in - out, 2), "journal matches balance");
+            }
+        }
+    }
+
+    @Test
+    void failedCreditReleasesTheReservation() {
+        try (var bank = new ShardedBankService(2)) {
+            String user = bank.registerUser("Rel", "rel@e.com", "pw", Role.CUSTOMER);
+            String a = bank.openCheckingAccount(user);
+            String b;
+            do {
+                b = bank.openCheckingAccount(user);
+            } while (bank.shardOf(b) == bank.shardOf(a));
+            bank.deposit(a, new BigDecimal("50.00"), null);
+
+            String other = b;
+            assertThrows(IllegalArgumentException.class, () -> bank.transfer(a, "missing-" + other, new BigDecimal("10.00"), null));
+            assertEquals(new BigDecimal("50.00"), bank.getBalance(a));
+            assertEquals(1, bank.getTransactions(a).size());
+
+            bank.freezeAccount(a);
+            assertThrows(IllegalStateException.class, () -> bank.transfer(a, other, new BigDecimal("1.00"), null));
+            bank.unfreezeAccount(a);
+            bank.transfer(a, b, new BigDecimal("20.00"), "x");
+            assertEquals(new BigDecimal("30.00"), bank.getBalance(a));
+            assertEquals(new BigDecimal("20.00"), bank.getBalance(b));
+
+            List<Command> spanning = List.of(Command.deposit(a, BigDecimal.ONE, null), Command.deposit(b, BigDecimal.ONE, null));
+            assertThrows(IllegalStateException.class, () -> bank.applyBatch(spanning, BatchMode.ALL_OR_NOTHING));
+            assertTrue(bank.applyBatch(spanning, BatchMode.BEST_EFFORT).stream().allMatch(r -> r.ok()));
+        }
+    }
+
+    @Test
+    void failedCommitTakesTheCreditBackAndReleasesTheReservation() {
+        List<FailingStore> stores = new ArrayList<>();
+        try (var bank = new ShardedBankService(2, () -> {
+            FailingStore s = new FailingStore();
+            stores.add(s);
+            return s;
+        })) {
+            String user = bank.registerUser("Comp", "comp@e.com", "pw", Role.CUSTOMER);
+            String a = bank.openCheckingAccount(user);
+            String b;
+            do {
+                b = bank.openCheckingAccount(user);
+            } while (bank.shardOf(b) == bank.shardOf(a));
+            bank.deposit(a, new BigDecimal("50.00"), null);
+
+            stores.get(bank.shardOf(a)).failTransferOut = true; // the source shard can't journal the commit
+            String to = b;
+            var e = assertThrows(IllegalStateException.class, () -> bank.transfer(a, to, new BigDecimal("10.00"), "x"));
+            assertEquals("Disk full", e.getMessage());
+            assertEquals(new BigDecimal("50.00"), bank.getBalance(a));
+            assertEquals(1, bank.getTransactions(a).size());
+            assertEquals(BigDecimal.ZERO.setScale(2), bank.getBalance(b));
+            assertEquals(List.of(TransactionType.TRANSFER_IN, TransactionType.TRANSFER_OUT),
+                    bank.getTransactions(b).stream().map(Transaction::getType).toList());
+
+            stores.get(bank.shardOf(a)).failTransferOut = false;
+            bank.transfer(a, b, new BigDecimal("10.00"), "x");
+            assertEquals(new BigDecimal("40.00"), bank.getBalance(a));
+            assertEquals(new BigDecimal("10.00"), bank.getBalance(b));
+        }
+    }
+
+    private static final class FailingStore extends InMemoryStore {
+        volatile boolean failTransferOut;
+
+        @Override
+        public void appendTransaction(Transaction t) {
+            if (failTransferOut && t.getType() == TransactionType.TRANSFER_OUT) throw new IllegalStateException("Disk full");
+            super.appendTransaction(t);
+        }
+    }
+}
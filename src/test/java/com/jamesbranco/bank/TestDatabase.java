@@ -0,0 +1,29 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.jdbc.Jdbc;
+import com.jamesbranco.bank.jdbc.SchemaScript;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Recreates the schema from one of the database/ scripts in the H2 test database.
+ */
+final class TestDatabase {
+    private TestDatabase() {}
+
+    static void reset() {
+        reset(SchemaScript.DEFAULT);
+    }
+
+    static void reset(Path script) {
+        try (Connection c = Jdbc.getConnection(); Statement st = c.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+            SchemaScript.apply(c, script);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
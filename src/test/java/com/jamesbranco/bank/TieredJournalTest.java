@@ -0,0 +1,113 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.model.Account;
+import com.jamesbranco.bank.model.Transaction;
+import com.jamesbranco.bank.model.TransactionPage;
+import com.jamesbranco.bank.model.TransactionQuery;
+import com.jamesbranco.bank.model.TransactionType;
+import com.jamesbranco.bank.repo.InMemoryStore;
+import com.jamesbranco.bank.repo.TieredJournal;
+import com.jamesbranco.bank.repo.TieringConfig;
+import com.jamesbranco.bank.util.IdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void historyReadsTheSameAcrossHotAndColdTiers() {
+        // small blocks and cache so reads cross many blocks and evict
+        TieringConfig config = new TieringConfig(dir, Duration.ofDays(30), 60_000, 16, 4096, 4);
+        try (TieredJournal tiered = TieredJournal.open(config)) {
+            InMemoryStore store = new InMemoryStore(tiered);
+            InMemoryStore heap = new InMemoryStore();
+            Instant start = Instant.now().minus(10_001, ChronoUnit.HOURS); // 1000 entries, 10 hours apart, ending now
+            for (int i = 0; i < 1000; i++) {
+                Transaction t = new Transaction(IdGenerator.newId(), "acct", i % 3 == 0 ? TransactionType.WITHDRAWAL
+                        : TransactionType.DEPOSIT, 100 + i, start.plus(i * 10L, ChronoUnit.HOURS), "note " + i % 5);
+                store.appendTransaction(t);
+                heap.appendTransaction(t);
+                if (i == 500) tiered.sealNow(); // seal in two rounds
+            }
+            tiered.sealNow();
+
+            TieredJournal.Stats stats = tiered.stats();
+            assertEquals(1000, stats.hotEntries() + stats.coldEntries());
+            assertTrue(stats.coldEntries() > 900, "only the last 30 days stay hot: " + stats);
+            assertTrue(stats.segments() > 1);
+            assertEquals(heap.getTransactions("acct").size(), store.getTransactions("acct").size());
+            Function<Transaction, String> key = t -> t.getId() + t.getType() + t.getAmountMinor() + t.getTimestamp() + t.getNote();
+            assertEquals(heap.getTransactions("acct").stream().map(key).toList(),
+                    store.getTransactions("acct").stream().map(key).toList());
+
+            // newest first, through both tiers, with and without a time range
+            for (TransactionQuery first : List.of(TransactionQuery.firstPage(37),
+                    TransactionQuery.firstPage(50).between(start.plus(100, ChronoUnit.DAYS), Instant.now().minus(10, ChronoUnit.DAYS)))) {
+                assertEquals(pageAll(heap, first), pageAll(store, first));
+            }
+            assertTrue(tiered.stats().cacheHits() > 0);
+
+            // appends keep going after sealing
+            store.appendTransaction(new Transaction(IdGenerator.newId(), "acct", TransactionType.DEPOSIT, 1, Instant.now(), "new"));
+            assertEquals("new", store.getTransactionPage("acct", TransactionQuery.firstPage(1)).items().get(0).getNote());
+        }
+    }
+
+    @Test
+    void backgroundJobSealsQuietAccountsOnceTheyAreOverdue() throws InterruptedException {
+        TieringConfig config = new TieringConfig(dir, Duration.ofDays(1), 20, 256, 1 << 20, 16);
+        try (TieredJournal tiered = TieredJournal.open(config)) {
+            InMemoryStore store = new InMemoryStore(tiered);
+            store.saveAccount(new Account("quiet", "u", "000000000001"));
+            Instant old = Instant.now().minus(3, ChronoUnit.DAYS);
+            for (int i = 0; i < 10; i++) {
+                store.appendTransaction(new Transaction(IdGenerator.newId(), "quiet", TransactionType.DEPOSIT, 1,
+                        old.plusSeconds(i), ""));
+            }
+            store.appendTransaction(new Transaction(IdGenerator.newId(), "quiet", TransactionType.DEPOSIT, 1,
+                    Instant.now(), "recent"));
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (tiered.stats().coldEntries() < 10 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertEquals(10, tiered.stats().coldEntries());
+            assertEquals(1, tiered.stats().hotEntries());
+            assertEquals(11, store.getTransactions("quiet").size());
+        }
+    }
+
+    @Test
+    void notesPast64KbSealAndReadBack() {
+        try (TieredJournal tiered = TieredJournal.open(TieringConfig.defaults(dir))) {
+            InMemoryStore store = new InMemoryStore(tiered);
+            Instant old = Instant.now().minus(90, ChronoUnit.DAYS);
+            String longNote = "é".repeat(70_000);
+            store.appendTransaction(new Transaction(IdGenerator.newId(), "long", TransactionType.DEPOSIT, 1, old, longNote));
+            store.appendTransaction(new Transaction(IdGenerator.newId(), "other", TransactionType.DEPOSIT, 1, old, "short"));
+            assertEquals(2, tiered.sealNow());
+            assertEquals(2, tiered.stats().coldEntries());
+            assertEquals(longNote, store.getTransactions("long").get(0).getNote());
+            assertEquals("short", store.getTransactions("other").get(0).getNote());
+        }
+    }
+
+    private static List<String> pageAll(InMemoryStore store, TransactionQuery q) {
+        List<String> ids = new ArrayList<>();
+        while (true) {
+            TransactionPage page = store.getTransactionPage("acct", q);
+            page.items().forEach(t -> ids.add(t.getId()));
+            if (!page.hasMore()) return ids;
+            q = q.next(page);
+        }
+    }
+}
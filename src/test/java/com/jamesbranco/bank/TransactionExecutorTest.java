@@ -0,0 +1,69 @@
+package com.jamesbranco.bank;
+
+import com.jamesbranco.bank.jdbc.RetryConfig;
+import com.jamesbranco.bank.jdbc.RetryStats;
+import com.jamesbranco.bank.jdbc.TransactionExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionExecutorTest {
+
+    @BeforeEach
+    void resetDatabase() {
+        TestDatabase.reset();
+    }
+
+    @Test
+    void deadlockVictimsAreRolledBackAndRerun() {
+        TransactionExecutor executor = new TransactionExecutor(new RetryConfig(5, 100, 1_000, 5_000));
+        AtomicInteger attempts = new AtomicInteger();
+        int users = executor.inTransaction(c -> {
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO users (id, name, email, password_hash, role) VALUES (?, 'R', ?, 'x', 'CUSTOMER')")) {
+                ps.setString(1, "00000000-0000-7000-8000-00000000000" + attempts.get());
+                ps.setString(2, "r" + attempts.get() + "@e.com");
+                ps.executeUpdate();
+            }
+            if (attempts.incrementAndGet() < 3) throw new SQLTransactionRollbackException("Deadlock found", "40001", 1213);
+            try (PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM users");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        });
+        assertEquals(2, users); // the seeded user and the last attempt's: the failed ones left nothing behind
+        assertEquals(3, attempts.get());
+        assertEquals(new RetryStats(1, 2, 0, 2, 0, 0), executor.stats());
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsAndNeverRetriesBusinessErrors() {
+        TransactionExecutor executor = new TransactionExecutor(new RetryConfig(3, 0, 0, 5_000));
+        AtomicInteger attempts = new AtomicInteger();
+        RuntimeException e = assertThrows(RuntimeException.class, () -> executor.inTransaction(c -> {
+            attempts.incrementAndGet();
+            throw new SQLException("Lock wait timeout exceeded", "HY000", 1205);
+        }));
+        assertTrue(TransactionExecutor.isRetryable(e));
+        assertEquals(3, attempts.get());
+
+        assertThrows(TransactionExecutor.Conflict.class, () -> executor.retry(() -> {
+            throw new TransactionExecutor.Conflict("Account is busy, try again");
+        }));
+        assertThrows(IllegalStateException.class, () -> executor.retry(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Insufficient funds");
+        }));
+        assertEquals(4, attempts.get());
+        assertFalse(TransactionExecutor.isRetryable(new SQLException("Duplicate entry", "23000", 1062)));
+        assertEquals(new RetryStats(3, 4, 2, 0, 3, 3), executor.stats());
+    }
+}